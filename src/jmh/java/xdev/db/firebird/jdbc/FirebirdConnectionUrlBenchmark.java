@@ -0,0 +1,65 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * JDBC URL creation of {@link FirebirdConnectionInformation} per connection mode and tuning.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FirebirdConnectionUrlBenchmark
+{
+	@Param({"PURE_JAVA", "NATIVE", "EMBEDDED"})
+	public FirebirdConnectionMode mode;
+	
+	@Param({"default", "lan_bulk, charSet=UTF-8"})
+	public String tuning;
+	
+	@Param({"", "encoding=UTF8&blobBufferSize=8192"})
+	public String urlExtension;
+	
+	private FirebirdConnectionInformation information;
+	
+	@Setup
+	public void setup()
+	{
+		this.information = new FirebirdConnectionInformation("db.example.com", 3050, "SYSDBA", "masterkey",
+			"/var/lib/firebird/data/benchmark.fdb", this.urlExtension, new FirebirdDbms());
+		this.information.setMode(this.mode);
+		this.information.setTuning(FirebirdConnectionTuning.parse(this.tuning));
+	}
+	
+	@Benchmark
+	public String createJdbcConnectionUrl()
+	{
+		return this.information.createJdbcConnectionUrl();
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.xdev.jadoth.sqlengine.SELECT;
+
+
+/**
+ * Rendering of the row limit clause by {@link FirebirdDMLAssembler}, literal and parameterized, for the server
+ * versions with <code>ROWS</code> and with <code>OFFSET</code>/<code>FETCH</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FirebirdDMLAssemblerBenchmark
+{
+	@Param({"2", "3"})
+	public int serverMajorVersion;
+	
+	@Param({"0", "" + FirebirdDMLAssembler.ROW_LIMIT_PARAMETERS})
+	public int flags;
+	
+	private FirebirdDMLAssembler assembler;
+	private SELECT page;
+	private SELECT firstRows;
+	private final StringBuilder sb = new StringBuilder(256);
+	
+	@Setup
+	public void setup()
+	{
+		final FirebirdDbms dbms = new FirebirdDbms();
+		dbms.setServerMajorVersion(this.serverMajorVersion);
+		this.assembler = dbms.getDMLAssembler();
+		this.page = rowLimit(1000, 50);
+		this.firstRows = rowLimit(null, 50);
+	}
+	
+	@Benchmark
+	public StringBuilder offsetAndRange()
+	{
+		this.sb.setLength(0);
+		return this.assembler.assembleSelectRowLimit(this.page, this.sb, this.flags, " ", "\n", 0);
+	}
+	
+	@Benchmark
+	public StringBuilder rangeOnly()
+	{
+		this.sb.setLength(0);
+		return this.assembler.assembleSelectRowLimit(this.firstRows, this.sb, this.flags, " ", "\n", 0);
+	}
+	
+	private static SELECT rowLimit(final Integer skip, final Integer range)
+	{
+		return new SELECT()
+		{
+			@Override
+			public Integer getOffsetSkipCount()
+			{
+				return skip;
+			}
+			
+			@Override
+			public Integer getFetchFirstRowCount()
+			{
+				return range;
+			}
+		};
+	}
+}
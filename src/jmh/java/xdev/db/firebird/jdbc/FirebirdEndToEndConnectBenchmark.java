@@ -0,0 +1,101 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * Latency of attaching and of a single statement round trip per {@link FirebirdConnectionMode}, to compare the TCP
+ * loopback with the local protocol and the embedded engine.
+ * <p>
+ * The database is selected by the system properties <code>firebird.benchmark.host</code>,
+ * <code>firebird.benchmark.port</code> and <code>firebird.benchmark.database</code>, the URL of each mode is built
+ * by {@link FirebirdConnectionMode#createJdbcConnectionUrl(String, int, String)}. The credentials are taken from
+ * <code>firebird.benchmark.user</code> and <code>firebird.benchmark.password</code>. All modes except
+ * {@link FirebirdConnectionMode#PURE_JAVA} need the native client library, {@link FirebirdConnectionMode#EMBEDDED}
+ * additionally the embedded engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FirebirdEndToEndConnectBenchmark
+{
+	@Param({"PURE_JAVA", "NATIVE", "LOCAL", "EMBEDDED"})
+	public FirebirdConnectionMode mode;
+	
+	private final String host = System.getProperty("firebird.benchmark.host", "localhost"); //$NON-NLS-1$ //$NON-NLS-2$
+	private final int port = Integer.getInteger("firebird.benchmark.port", 3050); //$NON-NLS-1$
+	private final String database = System.getProperty("firebird.benchmark.database", //$NON-NLS-1$
+		"benchmark"); //$NON-NLS-1$
+	private final String user = System.getProperty("firebird.benchmark.user", "SYSDBA"); //$NON-NLS-1$ //$NON-NLS-2$
+	private final String password = System.getProperty("firebird.benchmark.password", //$NON-NLS-1$
+		"masterkey"); //$NON-NLS-1$
+	private String url;
+	private Connection connection;
+	private Statement statement;
+	
+	@Setup(Level.Trial)
+	public void setup() throws SQLException
+	{
+		this.url = this.mode.createJdbcConnectionUrl(this.host, this.port, this.database);
+		this.connection = DriverManager.getConnection(this.url, this.user, this.password);
+		this.statement = this.connection.createStatement();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException
+	{
+		this.statement.close();
+		this.connection.close();
+	}
+	
+	@Benchmark
+	public boolean connect() throws SQLException
+	{
+		try(Connection jdbc = DriverManager.getConnection(this.url, this.user, this.password))
+		{
+			return jdbc.isClosed();
+		}
+	}
+	
+	@Benchmark
+	public int roundTrip() throws SQLException
+	{
+		try(ResultSet result = this.statement.executeQuery("SELECT 1 FROM RDB$DATABASE")) //$NON-NLS-1$
+		{
+			return result.next() ? result.getInt(1) : 0;
+		}
+	}
+}
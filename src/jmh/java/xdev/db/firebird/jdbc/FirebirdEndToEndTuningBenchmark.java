@@ -0,0 +1,155 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import xdev.db.DBException;
+import xdev.db.Result;
+import xdev.db.WriteResult;
+
+
+/**
+ * Queries and writes through {@link FirebirdJDBCConnection} per {@link FirebirdConnectionTuning} preset, to compare
+ * the presets on the link to the server. The rows carry a 4 KB blob, so the blob buffer size and the wire
+ * compression of the presets take effect.
+ * <p>
+ * The database is selected by the system properties <code>firebird.benchmark.url</code>,
+ * <code>firebird.benchmark.user</code> and <code>firebird.benchmark.password</code>, the properties of the preset
+ * are appended to the URL. The benchmark creates and drops the table <code>XDEV$BENCHMARK_TUNING</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FirebirdEndToEndTuningBenchmark
+{
+	private static final String TABLE = "XDEV$BENCHMARK_TUNING"; //$NON-NLS-1$
+	
+	@Param({"default", "lan_bulk", "wan_compressed"})
+	public String tuning;
+	
+	@Param({"10", "1000"})
+	public int pageSize;
+	
+	private final String url = System.getProperty("firebird.benchmark.url", //$NON-NLS-1$
+		"jdbc:firebirdsql://localhost:3050/benchmark"); //$NON-NLS-1$
+	private final String user = System.getProperty("firebird.benchmark.user", "SYSDBA"); //$NON-NLS-1$ //$NON-NLS-2$
+	private final String password = System.getProperty("firebird.benchmark.password", //$NON-NLS-1$
+		"masterkey"); //$NON-NLS-1$
+	private final AtomicInteger ids = new AtomicInteger(1_000_000);
+	private String tunedUrl;
+	private FirebirdJDBCDataSource dataSource;
+	private FirebirdJDBCConnection connection;
+	
+	@Setup(Level.Trial)
+	public void setup() throws SQLException
+	{
+		this.tunedUrl = FirebirdConnectionTuning.parse(this.tuning).appendTo(this.url);
+		this.dataSource = new FirebirdJDBCDataSource()
+		{
+			private final FirebirdConnectionPool pool = new FirebirdConnectionPool(this, 1, 8, 8, 0, 0, 30_000);
+			
+			@Override
+			Connection openPhysicalConnection() throws SQLException
+			{
+				return DriverManager.getConnection(FirebirdEndToEndTuningBenchmark.this.tunedUrl,
+					FirebirdEndToEndTuningBenchmark.this.user, FirebirdEndToEndTuningBenchmark.this.password);
+			}
+			
+			@Override
+			public FirebirdConnectionPool getConnectionPool()
+			{
+				return this.pool;
+			}
+		};
+		this.connection = new FirebirdJDBCConnection(this.dataSource);
+		
+		try(Connection jdbc = this.dataSource.openPhysicalConnection();
+			Statement statement = jdbc.createStatement())
+		{
+			statement.execute("RECREATE TABLE " + TABLE //$NON-NLS-1$
+				+ " (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(100), DATA BLOB SUB_TYPE BINARY)"); //$NON-NLS-1$
+			statement.execute("EXECUTE BLOCK AS DECLARE I INTEGER = 0; BEGIN WHILE (I < 10000) DO BEGIN" //$NON-NLS-1$
+				+ " INSERT INTO " + TABLE + " (ID, NAME, DATA)" //$NON-NLS-1$ //$NON-NLS-2$
+				+ " VALUES (:I, 'row ' || :I, LPAD('', 4096, 'x')); I = I + 1; END END"); //$NON-NLS-1$
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException
+	{
+		this.dataSource.getConnectionPool().close();
+		try(Connection jdbc = this.dataSource.openPhysicalConnection();
+			Statement statement = jdbc.createStatement())
+		{
+			statement.execute("DROP TABLE " + TABLE); //$NON-NLS-1$
+		}
+	}
+	
+	@Benchmark
+	public int queryPage() throws DBException
+	{
+		final Result result = this.connection.query("SELECT ID, NAME, DATA FROM " + TABLE //$NON-NLS-1$
+			+ " WHERE ID >= ? ORDER BY ID ROWS ?", 0, this.pageSize); //$NON-NLS-1$
+		try
+		{
+			int rows = 0;
+			while(result.next())
+			{
+				rows++;
+			}
+			return rows;
+		}
+		finally
+		{
+			result.close();
+		}
+	}
+	
+	@Benchmark
+	public int insertRow() throws DBException
+	{
+		final WriteResult result = this.connection.write("INSERT INTO " + TABLE //$NON-NLS-1$
+			+ " (ID, NAME, DATA) VALUES (?, ?, ?)", false, //$NON-NLS-1$
+			this.ids.incrementAndGet(), "benchmark", new byte[4096]); //$NON-NLS-1$
+		try
+		{
+			return result.getAffectedRows();
+		}
+		finally
+		{
+			result.close();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import xdev.db.DBException;
+
+
+/**
+ * Inserts {@value #ROWS} rows per invocation through {@link FirebirdJDBCConnection#writeBatch(String, List, int, int)}
+ * and {@link FirebirdJDBCConnection#writeInsertBlocks(String, String[], String[], List, int)}, with the JDBC batch
+ * size respectively the rows per <code>EXECUTE BLOCK</code> given by {@link #batchSize}. The score is rows per
+ * second.
+ * <p>
+ * Both commit once per batch or block, as the connection is in auto-commit mode. Before Firebird 4 the statement
+ * length is limited to 64 KB, which the largest blocks exceed.
+ * <p>
+ * The database is selected by the system properties <code>firebird.benchmark.url</code>,
+ * <code>firebird.benchmark.user</code> and <code>firebird.benchmark.password</code>. The benchmark creates and
+ * drops the table <code>XDEV$BENCHMARK_WRITE</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FirebirdEndToEndWriteBenchmark
+{
+	private static final String TABLE = "XDEV$BENCHMARK_WRITE"; //$NON-NLS-1$
+	
+	private static final String INSERT = "INSERT INTO " + TABLE //$NON-NLS-1$
+		+ " (ID, NAME) VALUES (?, ?)"; //$NON-NLS-1$
+	
+	private static final String[] COLUMNS = {"ID", "NAME"}; //$NON-NLS-1$ //$NON-NLS-2$
+	
+	private static final String[] COLUMN_TYPES = {"INTEGER", "VARCHAR(100)"}; //$NON-NLS-1$ //$NON-NLS-2$
+	
+	static final int ROWS = 10000;
+	
+	@Param({"1", "10", "100", "1000", "10000"})
+	public int batchSize;
+	
+	private final String url = System.getProperty("firebird.benchmark.url", //$NON-NLS-1$
+		"jdbc:firebirdsql://localhost:3050/benchmark"); //$NON-NLS-1$
+	private final String user = System.getProperty("firebird.benchmark.user", "SYSDBA"); //$NON-NLS-1$ //$NON-NLS-2$
+	private final String password = System.getProperty("firebird.benchmark.password", //$NON-NLS-1$
+		"masterkey"); //$NON-NLS-1$
+	private final List<Object[]> rows = new ArrayList<>(ROWS);
+	private FirebirdJDBCDataSource dataSource;
+	private FirebirdJDBCConnection connection;
+	
+	@Setup(Level.Trial)
+	public void setup() throws SQLException
+	{
+		this.dataSource = new FirebirdJDBCDataSource()
+		{
+			private final FirebirdConnectionPool pool = new FirebirdConnectionPool(this, 1, 8, 8, 0, 0, 30_000);
+			
+			@Override
+			Connection openPhysicalConnection() throws SQLException
+			{
+				return DriverManager.getConnection(FirebirdEndToEndWriteBenchmark.this.url,
+					FirebirdEndToEndWriteBenchmark.this.user, FirebirdEndToEndWriteBenchmark.this.password);
+			}
+			
+			@Override
+			public FirebirdConnectionPool getConnectionPool()
+			{
+				return this.pool;
+			}
+		};
+		this.connection = new FirebirdJDBCConnection(this.dataSource);
+		
+		for(int i = 0; i < ROWS; i++)
+		{
+			this.rows.add(new Object[]{i, "row " + i}); //$NON-NLS-1$
+		}
+		
+		// no primary key, so every invocation can insert the same rows
+		this.execute("RECREATE TABLE " + TABLE + " (ID INTEGER, NAME VARCHAR(100))"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@TearDown(Level.Iteration)
+	public void deleteRows() throws SQLException
+	{
+		this.execute("DELETE FROM " + TABLE); //$NON-NLS-1$
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException
+	{
+		this.dataSource.getConnectionPool().close();
+		this.execute("DROP TABLE " + TABLE); //$NON-NLS-1$
+	}
+	
+	private void execute(final String sql) throws SQLException
+	{
+		try(Connection jdbc = this.dataSource.openPhysicalConnection();
+			Statement statement = jdbc.createStatement())
+		{
+			statement.execute(sql);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int writeBatch() throws DBException
+	{
+		return this.connection.writeBatch(INSERT, this.rows, this.batchSize, 0);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int writeInsertBlocks() throws DBException
+	{
+		return this.connection.writeInsertBlocks(TABLE, COLUMNS, COLUMN_TYPES, this.rows, this.batchSize);
+	}
+}
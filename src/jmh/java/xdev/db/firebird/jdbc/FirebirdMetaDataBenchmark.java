@@ -0,0 +1,112 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import xdev.db.DBException;
+import xdev.db.jdbc.JDBCColumnsMetaData;
+
+
+/**
+ * Grouping of procedure columns by {@link FirebirdJDBCMetaData} over a synthetic
+ * {@link java.sql.DatabaseMetaData#getProcedureColumns(String, String, String, String)} result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FirebirdMetaDataBenchmark
+{
+	@Param({"10", "1000"})
+	public int procedures;
+	
+	@Param({"8"})
+	public int columnsPerProcedure;
+	
+	private FirebirdJDBCMetaData metaData;
+	private String[] names;
+	private String[] columns;
+	
+	@Setup
+	public void setup() throws DBException
+	{
+		this.metaData = new FirebirdJDBCMetaData(new FirebirdJDBCDataSource());
+		this.names = new String[this.procedures];
+		for(int i = 0; i < this.procedures; i++)
+		{
+			this.names[i] = "PROCEDURE_" + i;
+		}
+		this.columns = new String[this.columnsPerProcedure];
+		for(int i = 0; i < this.columnsPerProcedure; i++)
+		{
+			this.columns[i] = "PARAMETER_" + i;
+		}
+	}
+	
+	@Benchmark
+	public Map<String, List<JDBCColumnsMetaData>> columnsResultSetToMap() throws SQLException
+	{
+		return this.metaData.columnsResultSetToMap(this.procedureColumns());
+	}
+	
+	/**
+	 * @return a forward only result set with <code>procedures * columnsPerProcedure</code> rows
+	 */
+	private ResultSet procedureColumns()
+	{
+		final int rows = this.names.length * this.columns.length;
+		final int[] row = {-1};
+		return (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+			(proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "next":
+						return ++row[0] < rows;
+					case "getString":
+						switch((String)args[0])
+						{
+							case "PROCEDURE_NAME":
+								return this.names[row[0] / this.columns.length];
+							case "COLUMN_NAME":
+								return this.columns[row[0] % this.columns.length];
+							default:
+								return null;
+						}
+					case "getInt":
+						return "DATA_TYPE".equals(args[0]) ? Types.INTEGER : 1;
+					default:
+						return null;
+				}
+			});
+	}
+}
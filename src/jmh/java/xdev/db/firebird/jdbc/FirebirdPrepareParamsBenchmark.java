@@ -0,0 +1,165 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.serial.SerialClob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import xdev.db.DBException;
+
+
+/**
+ * Parameter preparation of {@link FirebirdJDBCConnection} for mixes of {@link String}, <code>byte[]</code> and
+ * {@link java.sql.Clob} values from 1 KB to 64 MB. Clobs are either materialized as strings or streamed as
+ * {@link Reader}, see {@link FirebirdJDBCDataSource#getClobInlineThreshold()}; both are then read in segments the
+ * way the driver sends them, so the two bindings can be compared per size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FirebirdPrepareParamsBenchmark
+{
+	private static final int SEGMENT_SIZE = 32 * 1024;
+	
+	/**
+	 * The parameter types, cycled through: <code>S</code> string, <code>B</code> byte[], <code>C</code> Clob.
+	 */
+	@Param({"SSSS", "SBSB", "SCSC", "CCCC"})
+	public String mix;
+	
+	@Param({"1024", "65536", "1048576", "16777216", "67108864"})
+	public int valueLength;
+	
+	/**
+	 * How Clobs are bound: <code>inline</code> as string, <code>streamed</code> as reader.
+	 */
+	@Param({"inline", "streamed"})
+	public String clobBinding;
+	
+	private FirebirdJDBCConnection connection;
+	private Connection physical;
+	private Object[] template;
+	private Object[] params;
+	private char[] segment;
+	
+	@Setup
+	public void setup() throws SQLException
+	{
+		final FirebirdJDBCDataSource dataSource = new FirebirdJDBCDataSource();
+		dataSource.setClobInlineThreshold("streamed".equals(this.clobBinding) ? 0 : Integer.MAX_VALUE);
+		this.connection = new FirebirdJDBCConnection(dataSource);
+		this.physical = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{Connection.class}, (proxy, method, args) -> null);
+		
+		final char[] chars = new char[this.valueLength];
+		Arrays.fill(chars, 'x');
+		final String text = new String(chars);
+		this.template = new Object[this.mix.length()];
+		for(int i = 0; i < this.template.length; i++)
+		{
+			switch(this.mix.charAt(i))
+			{
+				case 'B':
+					this.template[i] = new byte[this.valueLength];
+					break;
+				case 'C':
+					this.template[i] = new SerialClob(chars);
+					break;
+				default:
+					this.template[i] = text;
+					break;
+			}
+		}
+		this.params = new Object[this.template.length];
+		this.segment = new char[SEGMENT_SIZE];
+	}
+	
+	@Benchmark
+	public Object[] prepareParams() throws DBException
+	{
+		// prepareParams replaces the Clobs in place
+		System.arraycopy(this.template, 0, this.params, 0, this.template.length);
+		this.connection.prepareParams(this.physical, this.params);
+		this.connection.closeStreamedClobs();
+		return this.params;
+	}
+	
+	@Benchmark
+	public long prepareAndSendParams() throws DBException, IOException
+	{
+		System.arraycopy(this.template, 0, this.params, 0, this.template.length);
+		this.connection.prepareParams(this.physical, this.params);
+		try
+		{
+			long sent = 0;
+			for(final Object param : this.params)
+			{
+				sent += this.send(param);
+			}
+			return sent;
+		}
+		finally
+		{
+			this.connection.closeStreamedClobs();
+		}
+	}
+	
+	/**
+	 * Reads a bound value in segments, like the driver writes string and blob parameters.
+	 */
+	private long send(final Object param) throws IOException
+	{
+		if(param instanceof String)
+		{
+			final String text = (String)param;
+			for(int offset = 0; offset < text.length(); offset += SEGMENT_SIZE)
+			{
+				text.getChars(offset, Math.min(offset + SEGMENT_SIZE, text.length()), this.segment, 0);
+			}
+			return text.length();
+		}
+		if(param instanceof Reader)
+		{
+			long length = 0;
+			for(int read; (read = ((Reader)param).read(this.segment)) != -1; )
+			{
+				length += read;
+			}
+			return length;
+		}
+		return ((byte[])param).length;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Assembly of binary values as hex literals by {@link FirebirdDbms#assembleTransformBytes(byte[], StringBuilder)},
+ * from a single literal up to values split into many concatenated literals. The builder is reused, so the score is
+ * the encoding throughput without the growth of the builder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FirebirdTransformBytesBenchmark
+{
+	@Param({"1024", "16384", "65536", "262144", "1048576"})
+	public int length;
+	
+	private FirebirdDbms dbms;
+	private byte[] bytes;
+	private StringBuilder sb;
+	
+	@Setup
+	public void setup()
+	{
+		this.dbms = new FirebirdDbms();
+		this.bytes = new byte[this.length];
+		new Random(42).nextBytes(this.bytes);
+		this.sb = new StringBuilder(this.length * 2 + 1024);
+	}
+	
+	@Benchmark
+	public StringBuilder assembleTransformBytes()
+	{
+		this.sb.setLength(0);
+		return this.dbms.assembleTransformBytes(this.bytes, this.sb);
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.xdev.jadoth.sqlengine.SELECT;
+
+
+/**
+ * LRU cache of SQL texts assembled from {@link SELECT} objects, keyed by the identity of the query object, the
+ * assembly flags, the server version and the row limit.
+ * <p>
+ * Query objects are mutable, but the cache can't detect changes: a cached query object must not be modified after
+ * its first assembly, except for its row limit. If the row limit is rendered as bind parameters (see
+ * {@link FirebirdDMLAssembler#ROW_LIMIT_PARAMETERS}), all pages share one entry; otherwise every row limit gets its
+ * own. The cache holds strong references to the query objects of its entries.
+ */
+public class FirebirdAssembledSqlCache
+{
+	private final int maxSize;
+	private final Map<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Cache key, comparing the query object by identity.
+	 */
+	private static final class Key
+	{
+		final SELECT query;
+		final int flags;
+		final int serverVersion;
+		final Integer skip;
+		final Integer range;
+		
+		Key(final SELECT query, final int flags, final int serverVersion, final Integer skip, final Integer range)
+		{
+			this.query = query;
+			this.flags = flags;
+			this.serverVersion = serverVersion;
+			this.skip = skip;
+			this.range = range;
+		}
+		
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if(!(obj instanceof Key))
+			{
+				return false;
+			}
+			final Key other = (Key)obj;
+			return this.query == other.query && this.flags == other.flags
+				&& this.serverVersion == other.serverVersion && Objects.equals(this.skip, other.skip)
+				&& Objects.equals(this.range, other.range);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(this.query) * 31 + this.flags) * 31 + Objects.hash(this.serverVersion,
+				this.skip, this.range);
+		}
+	}
+	
+	/**
+	 * @param maxSize the maximum count of cached texts
+	 */
+	public FirebirdAssembledSqlCache(final int maxSize)
+	{
+		if(maxSize <= 0)
+		{
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Returns the cached text of <code>query</code> or assembles and caches it.
+	 *
+	 * @param query         the query object
+	 * @param flags         the assembly flags
+	 * @param serverVersion the server major version the text is assembled for
+	 * @param assembler     assembles the text on a miss, called without holding the lock
+	 * @return the SQL text
+	 */
+	public String get(
+		final SELECT query, final int flags, final int serverVersion,
+		final Supplier<String> assembler)
+	{
+		final Key key = (flags & FirebirdDMLAssembler.ROW_LIMIT_PARAMETERS) != 0
+			? new Key(query, flags, serverVersion, marker(query.getOffsetSkipCount()),
+				marker(query.getFetchFirstRowCount()))
+			: new Key(query, flags, serverVersion, query.getOffsetSkipCount(), query.getFetchFirstRowCount());
+		
+		this.lock.lock();
+		try
+		{
+			final String cached = this.entries.get(key);
+			if(cached != null)
+			{
+				this.hits.increment();
+				return cached;
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		
+		this.misses.increment();
+		final String sql = assembler.get();
+		this.lock.lock();
+		try
+		{
+			this.entries.put(key, sql);
+			final Iterator<String> iterator = this.entries.values().iterator();
+			while(this.entries.size() > this.maxSize)
+			{
+				iterator.next();
+				iterator.remove();
+				this.evictions.increment();
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		return sql;
+	}
+	
+	/**
+	 * Only the presence of a parameterized row limit changes the text.
+	 */
+	private static Integer marker(final Integer value)
+	{
+		return value == null ? null : 0;
+	}
+	
+	/**
+	 * Removes all entries.
+	 */
+	public void clear()
+	{
+		this.lock.lock();
+		try
+		{
+			this.entries.clear();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the count of assemblies served from the cache
+	 */
+	public long getHitCount()
+	{
+		return this.hits.sum();
+	}
+	
+	/**
+	 * @return the count of assemblies which built the text
+	 */
+	public long getMissCount()
+	{
+		return this.misses.sum();
+	}
+	
+	/**
+	 * @return the count of texts removed because the cache was full
+	 */
+	public long getEvictionCount()
+	{
+		return this.evictions.sum();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import xdev.db.Result;
+import xdev.db.StoredProcedure;
+import xdev.db.WriteResult;
+import xdev.util.ProgressMonitor;
+
+
+/**
+ * Asynchronous view of a {@link FirebirdJDBCConnection}: every call runs on the {@link FirebirdAsyncExecutor} of
+ * the data source and returns a {@link CompletableFuture} instead of blocking the caller.
+ * <p>
+ * The calls on the connection are serialized: each one starts after the previous one has completed, in submission
+ * order, as a connection in a transaction uses one physical connection, which must not be used concurrently.
+ * Concurrent calls need one connection each, their count is bounded by the in-flight limit of the executor. Calls
+ * on the data source, {@link #executeWithRetry(FirebirdTransactionalUnit)} and
+ * {@link #getStoredProcedures(ProgressMonitor)}, borrow their own connections and are not serialized.
+ *
+ * @see FirebirdJDBCConnection#async()
+ */
+public class FirebirdAsyncConnection
+{
+	private final FirebirdJDBCConnection connection;
+	private final ReentrantLock lock = new ReentrantLock();
+	private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+	
+	FirebirdAsyncConnection(final FirebirdJDBCConnection connection)
+	{
+		this.connection = connection;
+	}
+	
+	private FirebirdAsyncExecutor executor()
+	{
+		return this.connection.getDataSource().getAsyncExecutor();
+	}
+	
+	/**
+	 * Submits <code>call</code> to the executor once the previously serialized call has completed.
+	 */
+	private <T> CompletableFuture<T> serialize(final Callable<T> call)
+	{
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		final CompletableFuture<Void> previous;
+		this.lock.lock();
+		try
+		{
+			previous = this.tail;
+			this.tail = done;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		
+		previous.whenComplete((ignored, previousFailure) -> {
+			if(result.isDone())
+			{
+				// canceled while waiting
+				done.complete(null);
+				return;
+			}
+			this.executor().submit(call).whenComplete((value, failure) -> {
+				if(failure != null)
+				{
+					result.completeExceptionally(failure);
+				}
+				else
+				{
+					result.complete(value);
+				}
+				done.complete(null);
+			});
+		});
+		return result;
+	}
+	
+	/**
+	 * @see FirebirdJDBCConnection#query(String, Object...)
+	 */
+	public CompletableFuture<Result> query(final String sql, final Object... params)
+	{
+		return this.serialize(() -> this.connection.query(sql, params));
+	}
+	
+	/**
+	 * @see FirebirdJDBCConnection#query(FirebirdTransactionProfile, String, Object...)
+	 */
+	public CompletableFuture<Result> query(
+		final FirebirdTransactionProfile profile, final String sql, final Object... params)
+	{
+		return this.serialize(() -> this.connection.query(profile, sql, params));
+	}
+	
+	/**
+	 * @see FirebirdJDBCConnection#write(String, boolean, Object...)
+	 */
+	public CompletableFuture<WriteResult> write(
+		final String sql, final boolean returnGeneratedKeys, final Object... params)
+	{
+		return this.serialize(() -> this.connection.write(sql, returnGeneratedKeys, params));
+	}
+	
+	/**
+	 * @see FirebirdJDBCConnection#getQueryRowCount(String, FirebirdRowCountMode)
+	 */
+	public CompletableFuture<Integer> getQueryRowCount(final String select, final FirebirdRowCountMode mode)
+	{
+		return this.serialize(() -> this.connection.getQueryRowCount(select, mode));
+	}
+	
+	/**
+	 * @see FirebirdJDBCDataSource#executeWithRetry(FirebirdTransactionalUnit)
+	 */
+	public <T> CompletableFuture<T> executeWithRetry(final FirebirdTransactionalUnit<T> unit)
+	{
+		return this.executor().submit(() -> this.connection.getDataSource().executeWithRetry(unit));
+	}
+	
+	/**
+	 * @see FirebirdJDBCMetaData#getStoredProcedures(ProgressMonitor)
+	 */
+	public CompletableFuture<StoredProcedure[]> getStoredProcedures(final ProgressMonitor monitor)
+	{
+		return this.executor().submit(() -> this.connection.getDataSource().getMetaData().getStoredProcedures(
+			monitor));
+	}
+	
+	/**
+	 * Runs any other blocking call on the connection under the in-flight limit, serialized with the other calls.
+	 *
+	 * @param call the call
+	 * @return the future of the result
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> call)
+	{
+		return this.serialize(call);
+	}
+	
+	public FirebirdJDBCConnection getConnection()
+	{
+		return this.connection;
+	}
+}
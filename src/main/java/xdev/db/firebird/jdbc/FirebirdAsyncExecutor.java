@@ -0,0 +1,171 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Runs blocking calls of a data source asynchronously, with at most {@link #getMaxInFlight()} calls executing at
+ * the same time.
+ * <p>
+ * On Java 21 and later the calls run on virtual threads, so waiting calls don't occupy platform threads; the
+ * executor is looked up at runtime, the adapter itself is compiled for Java 8. On older runtimes they run on a
+ * pool of at most {@link #getMaxInFlight()} daemon threads.
+ */
+public class FirebirdAsyncExecutor implements AutoCloseable
+{
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final Semaphore inFlight;
+	private final int maxInFlight;
+	
+	/**
+	 * @param maxInFlight the maximum count of calls which execute at the same time, which should not exceed the
+	 *                    maximum size of the connection pool
+	 */
+	public FirebirdAsyncExecutor(final int maxInFlight)
+	{
+		if(maxInFlight <= 0)
+		{
+			throw new IllegalArgumentException("maxInFlight must be positive");
+		}
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight, true);
+		
+		final ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+		this.virtualThreads = virtualThreadExecutor != null;
+		this.executor = this.virtualThreads ? virtualThreadExecutor : newPlatformThreadExecutor(maxInFlight);
+	}
+	
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			return (ExecutorService)Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+		}
+		catch(final ReflectiveOperationException | RuntimeException e)
+		{
+			// before Java 21
+			return null;
+		}
+	}
+	
+	private static ExecutorService newPlatformThreadExecutor(final int threads)
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+				final Thread thread = new Thread(runnable, "Firebird async " + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	/**
+	 * Executes a call asynchronously. Calls beyond the in-flight limit wait in submission order.
+	 *
+	 * @param call the blocking call
+	 * @return the future of the result, completed exceptionally with the exception of the call
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> call)
+	{
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		try
+		{
+			this.executor.execute(() -> this.run(call, future));
+		}
+		catch(final RejectedExecutionException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	private <T> void run(final Callable<T> call, final CompletableFuture<T> future)
+	{
+		if(future.isDone())
+		{
+			// canceled while queued
+			return;
+		}
+		try
+		{
+			this.inFlight.acquire();
+		}
+		catch(final InterruptedException e)
+		{
+			future.completeExceptionally(e);
+			return;
+		}
+		try
+		{
+			future.complete(call.call());
+		}
+		catch(final Throwable t)
+		{
+			future.completeExceptionally(t);
+		}
+		finally
+		{
+			this.inFlight.release();
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if the calls run on virtual threads
+	 */
+	public boolean isVirtualThreads()
+	{
+		return this.virtualThreads;
+	}
+	
+	public int getMaxInFlight()
+	{
+		return this.maxInFlight;
+	}
+	
+	/**
+	 * @return the count of currently executing calls
+	 */
+	public int getInFlightCount()
+	{
+		return this.maxInFlight - this.inFlight.availablePermits();
+	}
+	
+	/**
+	 * Stops accepting calls, submitted calls are still executed.
+	 */
+	@Override
+	public void close()
+	{
+		this.executor.shutdown();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Date;
+
+
+/**
+ * One row change recorded in the change log by a trigger of {@link FirebirdChangeCapture}.
+ */
+public class FirebirdChange
+{
+	public enum Operation
+	{
+		INSERT('I'),
+		UPDATE('U'),
+		DELETE('D');
+		
+		final char code;
+		
+		private Operation(final char code)
+		{
+			this.code = code;
+		}
+		
+		static Operation of(final String code)
+		{
+			for(final Operation operation : values())
+			{
+				if(code.charAt(0) == operation.code)
+				{
+					return operation;
+				}
+			}
+			throw new IllegalArgumentException("Unknown operation code: " + code);
+		}
+	}
+	
+	private final long changeId;
+	private final String tableName;
+	private final Operation operation;
+	private final String rowKey;
+	private final long transactionId;
+	private final Date changedAt;
+	
+	FirebirdChange(
+		final long changeId, final String tableName, final Operation operation, final String rowKey,
+		final long transactionId, final Date changedAt)
+	{
+		this.changeId = changeId;
+		this.tableName = tableName;
+		this.operation = operation;
+		this.rowKey = rowKey;
+		this.transactionId = transactionId;
+		this.changedAt = changedAt;
+	}
+	
+	/**
+	 * @return the id of the change, assigned from a sequence when the row was changed
+	 */
+	public long getChangeId()
+	{
+		return this.changeId;
+	}
+	
+	/**
+	 * @return the unquoted name of the changed table
+	 */
+	public String getTableName()
+	{
+		return this.tableName;
+	}
+	
+	public Operation getOperation()
+	{
+		return this.operation;
+	}
+	
+	/**
+	 * @return the primary key of the changed row, the values of composite keys separated by
+	 *         {@link FirebirdChangeCapture#KEY_SEPARATOR}; of the old row for deletes
+	 */
+	public String getRowKey()
+	{
+		return this.rowKey;
+	}
+	
+	/**
+	 * @return the number of the transaction which changed the row
+	 */
+	public long getTransactionId()
+	{
+		return this.transactionId;
+	}
+	
+	/**
+	 * @return the server time of the change
+	 */
+	public Date getChangedAt()
+	{
+		return this.changedAt;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.changeId + " " + this.operation + " " + this.tableName + " " + this.rowKey;
+	}
+}
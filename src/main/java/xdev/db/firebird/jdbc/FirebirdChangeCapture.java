@@ -0,0 +1,649 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.firebirdsql.event.EventListener;
+import org.firebirdsql.event.EventManager;
+import org.firebirdsql.event.FBEventManager;
+import org.firebirdsql.gds.impl.GDSType;
+
+
+/**
+ * Change data capture of tables through a trigger-maintained change log.
+ * <p>
+ * {@link #install()} creates the change log table {@value #CHANGE_LOG_TABLE} and the sequence
+ * {@value #CHANGE_SEQUENCE}. {@link #captureTable(String)} creates a trigger on a table which records the
+ * operation and primary key of each changed row and posts the event {@value #EVENT_NAME}. Firebird delivers events
+ * when the posting transaction commits, so a consumer started by {@link #start(FirebirdChangeOffset,
+ * FirebirdChangeListener)} reads the log right after each commit instead of polling the tables. It still polls the
+ * log in the {@link #getPollIntervalMillis() poll interval}, for events lost while the event connection was
+ * interrupted.
+ * <p>
+ * Changes are delivered in batches in the order in which they become visible to the reader, which is the commit
+ * order of their transactions; within a batch they are ordered by change id. See {@link FirebirdChangeOffset} for
+ * how changes of transactions which commit after changes with higher ids are picked up. Gaps which are given up are
+ * reported to {@link FirebirdChangeListener#gapAbandoned(long, long)}. The log grows until it is
+ * {@link #purge(FirebirdChangeOffset) purged}.
+ */
+public class FirebirdChangeCapture implements AutoCloseable
+{
+	public static final String CHANGE_LOG_TABLE = "XDEV$CHANGE_LOG"; //$NON-NLS-1$
+	
+	public static final String CHANGE_SEQUENCE = "XDEV$CHANGE_SEQ"; //$NON-NLS-1$
+	
+	public static final String EVENT_NAME = "XDEV$CHANGE"; //$NON-NLS-1$
+	
+	/**
+	 * Prefix of the names of the capture triggers, followed by the table name.
+	 */
+	public static final String TRIGGER_PREFIX = "XDEV$CDC_"; //$NON-NLS-1$
+	
+	/**
+	 * Separator of the values of composite primary keys in {@link FirebirdChange#getRowKey()}.
+	 */
+	public static final String KEY_SEPARATOR = "|"; //$NON-NLS-1$
+	
+	/**
+	 * Maximum count of tracked gaps, the lowest ones are abandoned beyond.
+	 */
+	public static final int MAX_GAPS = 1000;
+	
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 5000;
+	
+	public static final long DEFAULT_GAP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	private static final String SELECT_RELATION =
+		"SELECT 1 FROM RDB$RELATIONS WHERE RDB$RELATION_NAME = ?"; //$NON-NLS-1$
+	
+	private static final String SELECT_SEQUENCE =
+		"SELECT 1 FROM RDB$GENERATORS WHERE RDB$GENERATOR_NAME = ?"; //$NON-NLS-1$
+	
+	private static final String SELECT_TRIGGER = "SELECT 1 FROM RDB$TRIGGERS WHERE RDB$TRIGGER_NAME = ?"; //$NON-NLS-1$
+	
+	private static final String CREATE_CHANGE_LOG = "CREATE TABLE " + CHANGE_LOG_TABLE //$NON-NLS-1$
+		+ " (CHANGE_ID BIGINT NOT NULL PRIMARY KEY, TABLE_NAME VARCHAR(63) NOT NULL," //$NON-NLS-1$
+		+ " OPERATION CHAR(1) NOT NULL, ROW_KEY VARCHAR(1000)," //$NON-NLS-1$
+		+ " TRANSACTION_ID BIGINT DEFAULT CURRENT_TRANSACTION NOT NULL," //$NON-NLS-1$
+		+ " CHANGED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)"; //$NON-NLS-1$
+	
+	private static final String SELECT_PRIMARY_KEY = "SELECT TRIM(S.RDB$FIELD_NAME)" //$NON-NLS-1$
+		+ " FROM RDB$RELATION_CONSTRAINTS RC" //$NON-NLS-1$
+		+ " JOIN RDB$INDEX_SEGMENTS S ON S.RDB$INDEX_NAME = RC.RDB$INDEX_NAME" //$NON-NLS-1$
+		+ " WHERE RC.RDB$RELATION_NAME = ? AND RC.RDB$CONSTRAINT_TYPE = 'PRIMARY KEY'" //$NON-NLS-1$
+		+ " ORDER BY S.RDB$FIELD_POSITION"; //$NON-NLS-1$
+	
+	private static final String SELECT_CHANGES = "SELECT CHANGE_ID, TRIM(TABLE_NAME), OPERATION, ROW_KEY," //$NON-NLS-1$
+		+ " TRANSACTION_ID, CHANGED_AT FROM " + CHANGE_LOG_TABLE + " WHERE CHANGE_ID > ?"; //$NON-NLS-1$ //$NON-NLS-2$
+	
+	private static final String DELETE_CHANGES = "DELETE FROM " + CHANGE_LOG_TABLE //$NON-NLS-1$
+		+ " WHERE CHANGE_ID <= ?"; //$NON-NLS-1$
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private final Semaphore signal = new Semaphore(0);
+	private final EventListener eventListener = event -> this.signal.release();
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+	private volatile long gapTimeoutMillis = DEFAULT_GAP_TIMEOUT_MILLIS;
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+	private volatile boolean running;
+	private volatile FirebirdChangeOffset offset = FirebirdChangeOffset.BEGINNING;
+	private volatile Exception lastError;
+	private final LongAdder abandonedChangeIds = new LongAdder();
+	private EventManager eventManager;
+	private ExecutorService worker;
+	
+	// state of the worker thread
+	private long lastChangeId;
+	private TreeMap<Long, Long> gaps = new TreeMap<>();
+	
+	public FirebirdChangeCapture(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Creates the change log table and sequence if they don't exist yet.
+	 *
+	 * @throws SQLException if they can't be created
+	 */
+	public void install() throws SQLException
+	{
+		try(Connection connection = this.dataSource.borrowConnection();
+			Statement statement = connection.createStatement())
+		{
+			if(!exists(connection, SELECT_SEQUENCE, CHANGE_SEQUENCE))
+			{
+				statement.execute("CREATE SEQUENCE " + CHANGE_SEQUENCE); //$NON-NLS-1$
+			}
+			if(!exists(connection, SELECT_RELATION, CHANGE_LOG_TABLE))
+			{
+				statement.execute(CREATE_CHANGE_LOG);
+			}
+			commit(connection);
+		}
+		finally
+		{
+			this.dataSource.ddlExecuted();
+		}
+	}
+	
+	/**
+	 * Creates or replaces the capture trigger of a table. Before Firebird 4 the trigger name, {@value #TRIGGER_PREFIX}
+	 * followed by the table name, must not exceed 31 characters.
+	 *
+	 * @param tableName the unquoted table name as stored in the system tables
+	 * @throws SQLException if the table has no primary key or the trigger can't be created
+	 */
+	public void captureTable(final String tableName) throws SQLException
+	{
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			final List<String> keyColumns = new ArrayList<>();
+			try(PreparedStatement statement = connection.prepareStatement(SELECT_PRIMARY_KEY))
+			{
+				statement.setString(1, tableName);
+				try(ResultSet resultSet = statement.executeQuery())
+				{
+					while(resultSet.next())
+					{
+						keyColumns.add(resultSet.getString(1));
+					}
+				}
+			}
+			if(keyColumns.isEmpty())
+			{
+				throw new SQLException("Table " + tableName + " has no primary key"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			
+			final String sql = "CREATE OR ALTER TRIGGER " //$NON-NLS-1$
+				+ FirebirdIndexMaintenance.quote(TRIGGER_PREFIX + tableName)
+				+ " FOR " + FirebirdIndexMaintenance.quote(tableName) //$NON-NLS-1$
+				+ " ACTIVE AFTER INSERT OR UPDATE OR DELETE POSITION 32767 AS\nBEGIN\n" //$NON-NLS-1$
+				+ "  INSERT INTO " + CHANGE_LOG_TABLE //$NON-NLS-1$
+				+ " (CHANGE_ID, TABLE_NAME, OPERATION, ROW_KEY)" //$NON-NLS-1$
+				+ " VALUES (NEXT VALUE FOR " + CHANGE_SEQUENCE //$NON-NLS-1$
+				+ ", '" + tableName.replace("'", "''") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ "', CASE WHEN INSERTING THEN 'I' WHEN UPDATING THEN 'U' ELSE 'D' END," //$NON-NLS-1$
+				+ " CASE WHEN DELETING THEN " + keyExpression("OLD", keyColumns) //$NON-NLS-1$ //$NON-NLS-2$
+				+ " ELSE " + keyExpression("NEW", keyColumns) + " END);\n" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ "  POST_EVENT '" + EVENT_NAME + "';\nEND"; //$NON-NLS-1$ //$NON-NLS-2$
+			try(Statement statement = connection.createStatement())
+			{
+				statement.execute(sql);
+			}
+			commit(connection);
+		}
+		finally
+		{
+			this.dataSource.ddlExecuted();
+		}
+	}
+	
+	private static String keyExpression(final String context, final List<String> keyColumns)
+	{
+		final StringBuilder sb = new StringBuilder();
+		for(final String column : keyColumns)
+		{
+			if(sb.length() > 0)
+			{
+				sb.append(" || '").append(KEY_SEPARATOR).append("' || "); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			sb.append("CAST(").append(context).append('.').append(FirebirdIndexMaintenance.quote(column)) //$NON-NLS-1$
+				.append(" AS VARCHAR(255))"); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Drops the capture trigger of a table if it exists. Its changes remain in the change log.
+	 *
+	 * @param tableName the unquoted table name as stored in the system tables
+	 * @throws SQLException if the trigger can't be dropped
+	 */
+	public void uncaptureTable(final String tableName) throws SQLException
+	{
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			if(exists(connection, SELECT_TRIGGER, TRIGGER_PREFIX + tableName))
+			{
+				try(Statement statement = connection.createStatement())
+				{
+					statement.execute("DROP TRIGGER " //$NON-NLS-1$
+						+ FirebirdIndexMaintenance.quote(TRIGGER_PREFIX + tableName));
+				}
+				commit(connection);
+			}
+		}
+		finally
+		{
+			this.dataSource.ddlExecuted();
+		}
+	}
+	
+	/**
+	 * Deletes the changes up to the {@link FirebirdChangeOffset#getCompleteChangeId() complete change id} of an
+	 * offset. With several consumers, the lowest of their offsets must be passed.
+	 *
+	 * @param offset the offset of the consumer
+	 * @return the count of deleted changes
+	 * @throws SQLException if the changes can't be deleted
+	 */
+	public int purge(final FirebirdChangeOffset offset) throws SQLException
+	{
+		try(Connection connection = this.dataSource.borrowConnection();
+			PreparedStatement statement = connection.prepareStatement(DELETE_CHANGES))
+		{
+			statement.setLong(1, offset.getCompleteChangeId());
+			final int count = statement.executeUpdate();
+			commit(connection);
+			return count;
+		}
+	}
+	
+	private static boolean exists(final Connection connection, final String sql, final String name)
+		throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(sql))
+		{
+			statement.setString(1, name);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				return resultSet.next();
+			}
+		}
+	}
+	
+	private static void commit(final Connection connection) throws SQLException
+	{
+		if(!connection.getAutoCommit())
+		{
+			connection.commit();
+		}
+	}
+	
+	/**
+	 * Subscribes to the change event and starts delivering the changes after <code>from</code> to the listener on a
+	 * daemon thread.
+	 *
+	 * @param from     the offset to resume from, {@link FirebirdChangeOffset#BEGINNING} for all logged changes
+	 * @param listener the listener
+	 * @throws SQLException if the event subscription fails
+	 * @throws IllegalStateException if the capture is already running
+	 */
+	public void start(final FirebirdChangeOffset from, final FirebirdChangeListener listener) throws SQLException
+	{
+		this.lock.lock();
+		try
+		{
+			if(this.running)
+			{
+				throw new IllegalStateException("Change capture is already running");
+			}
+			
+			final FirebirdConnectionInformation information = this.dataSource.getConnectionInformation();
+			final FirebirdConnectionMode mode = information.getMode().resolve(information.getHost());
+			final FBEventManager manager = new FBEventManager(GDSType.getType(mode.name()));
+			manager.setHost(information.getHost());
+			manager.setPort(information.getPort());
+			manager.setDatabase(information.getDatabase());
+			manager.setUser(information.getUser());
+			manager.setPassword(information.getPassword());
+			manager.connect();
+			try
+			{
+				manager.addEventListener(EVENT_NAME, this.eventListener);
+			}
+			catch(final SQLException e)
+			{
+				manager.disconnect();
+				throw e;
+			}
+			
+			this.eventManager = manager;
+			this.offset = from;
+			this.lastChangeId = from.getLastChangeId();
+			this.gaps = new TreeMap<>();
+			final long now = System.nanoTime();
+			for(final long gap : from.getGaps())
+			{
+				this.gaps.put(gap, now);
+			}
+			this.running = true;
+			this.worker = Executors.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "Firebird change capture");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.worker.execute(() -> this.run(listener));
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void run(final FirebirdChangeListener listener)
+	{
+		while(this.running)
+		{
+			try
+			{
+				this.poll(listener);
+			}
+			catch(final Exception e)
+			{
+				this.lastError = e;
+			}
+			
+			try
+			{
+				this.signal.tryAcquire(this.pollIntervalMillis, TimeUnit.MILLISECONDS);
+				this.signal.drainPermits();
+			}
+			catch(final InterruptedException e)
+			{
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Reads and delivers batches until the log has no more new changes.
+	 */
+	private void poll(final FirebirdChangeListener listener) throws Exception
+	{
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			while(this.running)
+			{
+				final List<FirebirdChange> read = this.read(connection);
+				commit(connection);
+				
+				final long now = System.nanoTime();
+				long last = this.lastChangeId;
+				final TreeMap<Long, Long> pending = new TreeMap<>(this.gaps);
+				final List<FirebirdChange> changes = new ArrayList<>(read.size());
+				final List<long[]> abandoned = new ArrayList<>();
+				for(final FirebirdChange change : read)
+				{
+					final long id = change.getChangeId();
+					if(id > last)
+					{
+						final long firstTracked = Math.max(last + 1, id - MAX_GAPS);
+						if(firstTracked > last + 1)
+						{
+							abandoned.add(new long[]{last + 1, firstTracked - 1});
+						}
+						for(long gap = firstTracked; gap < id; gap++)
+						{
+							pending.put(gap, now);
+						}
+						last = id;
+						changes.add(change);
+					}
+					else if(pending.remove(id) != null)
+					{
+						changes.add(change);
+					}
+				}
+				while(pending.size() > MAX_GAPS)
+				{
+					final long gap = pending.pollFirstEntry().getKey();
+					abandoned.add(new long[]{gap, gap});
+				}
+				final long timeout = TimeUnit.MILLISECONDS.toNanos(this.gapTimeoutMillis);
+				for(final Iterator<Map.Entry<Long, Long>> it = pending.entrySet().iterator(); it.hasNext();)
+				{
+					final Map.Entry<Long, Long> gap = it.next();
+					if(now - gap.getValue() > timeout)
+					{
+						it.remove();
+						abandoned.add(new long[]{gap.getKey(), gap.getKey()});
+					}
+				}
+				
+				if(changes.isEmpty() && abandoned.isEmpty() && pending.size() == this.gaps.size())
+				{
+					return;
+				}
+				
+				final FirebirdChangeOffset next = new FirebirdChangeOffset(last,
+					pending.keySet().stream().mapToLong(Long::longValue).toArray());
+				final List<long[]> ranges = mergeRanges(abandoned);
+				for(final long[] range : ranges)
+				{
+					listener.gapAbandoned(range[0], range[1]);
+				}
+				if(!changes.isEmpty())
+				{
+					listener.changesCaptured(changes, next);
+				}
+				for(final long[] range : ranges)
+				{
+					this.abandonedChangeIds.add(range[1] - range[0] + 1);
+				}
+				this.lastChangeId = last;
+				this.gaps = pending;
+				this.offset = next;
+				
+				if(read.size() < this.batchSize)
+				{
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the ascending, non-adjacent ranges covering <code>ranges</code>
+	 */
+	private static List<long[]> mergeRanges(final List<long[]> ranges)
+	{
+		ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+		final List<long[]> merged = new ArrayList<>(ranges.size());
+		for(final long[] range : ranges)
+		{
+			final long[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if(previous != null && range[0] <= previous[1] + 1)
+			{
+				previous[1] = Math.max(previous[1], range[1]);
+			}
+			else
+			{
+				merged.add(range.clone());
+			}
+		}
+		return merged;
+	}
+	
+	private List<FirebirdChange> read(final Connection connection) throws SQLException
+	{
+		final StringBuilder sql = new StringBuilder(SELECT_CHANGES);
+		if(!this.gaps.isEmpty())
+		{
+			sql.append(" OR CHANGE_ID IN ("); //$NON-NLS-1$
+			for(int i = 0; i < this.gaps.size(); i++)
+			{
+				sql.append(i == 0 ? "?" : ", ?"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			sql.append(')');
+		}
+		sql.append(" ORDER BY CHANGE_ID ROWS ?"); //$NON-NLS-1$
+		
+		try(PreparedStatement statement = connection.prepareStatement(sql.toString()))
+		{
+			int index = 1;
+			statement.setLong(index++, this.lastChangeId);
+			for(final Map.Entry<Long, Long> gap : this.gaps.entrySet())
+			{
+				statement.setLong(index++, gap.getKey());
+			}
+			statement.setInt(index, this.batchSize);
+			
+			final List<FirebirdChange> changes = new ArrayList<>();
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				while(resultSet.next())
+				{
+					changes.add(new FirebirdChange(resultSet.getLong(1), resultSet.getString(2),
+						FirebirdChange.Operation.of(resultSet.getString(3)), resultSet.getString(4),
+						resultSet.getLong(5), resultSet.getTimestamp(6)));
+				}
+			}
+			return changes;
+		}
+	}
+	
+	/**
+	 * Stops delivering changes and unsubscribes from the change event. A batch in delivery is completed.
+	 */
+	@Override
+	public void close()
+	{
+		this.lock.lock();
+		try
+		{
+			if(!this.running)
+			{
+				return;
+			}
+			this.running = false;
+			this.signal.release();
+			this.worker.shutdown();
+			try
+			{
+				this.eventManager.removeEventListener(EVENT_NAME, this.eventListener);
+				this.eventManager.disconnect();
+			}
+			catch(final SQLException e)
+			{
+				this.lastError = e;
+			}
+			this.eventManager = null;
+			this.worker = null;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> while changes are delivered
+	 */
+	public boolean isRunning()
+	{
+		return this.running;
+	}
+	
+	/**
+	 * @return the offset after the last delivered batch
+	 */
+	public FirebirdChangeOffset getOffset()
+	{
+		return this.offset;
+	}
+	
+	/**
+	 * @return the error of the last failed poll, including exceptions of the listener, or <code>null</code>
+	 */
+	public Exception getLastError()
+	{
+		return this.lastError;
+	}
+	
+	/**
+	 * @return the count of change ids which were given up as gaps without being seen, see
+	 *         {@link FirebirdChangeListener#gapAbandoned(long, long)}
+	 */
+	public long getAbandonedChangeIdCount()
+	{
+		return this.abandonedChangeIds.sum();
+	}
+	
+	/**
+	 * @return the interval in which the change log is read without an event
+	 */
+	public long getPollIntervalMillis()
+	{
+		return this.pollIntervalMillis;
+	}
+	
+	public void setPollIntervalMillis(final long pollIntervalMillis)
+	{
+		if(pollIntervalMillis <= 0)
+		{
+			throw new IllegalArgumentException("pollIntervalMillis must be positive");
+		}
+		this.pollIntervalMillis = pollIntervalMillis;
+	}
+	
+	/**
+	 * @return the time after which a gap is assumed to be a rolled back change, no longer read and reported to
+	 *         {@link FirebirdChangeListener#gapAbandoned(long, long)}
+	 */
+	public long getGapTimeoutMillis()
+	{
+		return this.gapTimeoutMillis;
+	}
+	
+	public void setGapTimeoutMillis(final long gapTimeoutMillis)
+	{
+		if(gapTimeoutMillis < 0)
+		{
+			throw new IllegalArgumentException("gapTimeoutMillis must not be negative");
+		}
+		this.gapTimeoutMillis = gapTimeoutMillis;
+	}
+	
+	/**
+	 * @return the maximum count of changes per batch
+	 */
+	public int getBatchSize()
+	{
+		return this.batchSize;
+	}
+	
+	public void setBatchSize(final int batchSize)
+	{
+		if(batchSize <= 0)
+		{
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		this.batchSize = batchSize;
+	}
+}
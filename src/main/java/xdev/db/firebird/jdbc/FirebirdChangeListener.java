@@ -0,0 +1,54 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.List;
+
+
+/**
+ * Consumer of the changes captured by a {@link FirebirdChangeCapture}.
+ */
+@FunctionalInterface
+public interface FirebirdChangeListener
+{
+	/**
+	 * Called with each batch of changes, on the capture thread. If the listener throws, the batch is delivered
+	 * again with the next poll.
+	 *
+	 * @param changes the changes, in the order in which they became visible
+	 * @param offset  the offset after this batch, to be stored by the consumer to resume from
+	 * @throws Exception if the changes could not be processed
+	 */
+	void changesCaptured(List<FirebirdChange> changes, FirebirdChangeOffset offset) throws Exception;
+	
+	/**
+	 * Called on the capture thread for each range of change ids which are no longer read although they were never
+	 * seen: gaps older than the {@link FirebirdChangeCapture#getGapTimeoutMillis() gap timeout} and the lowest gaps
+	 * beyond {@link FirebirdChangeCapture#MAX_GAPS}. Usually these are ids of rolled back changes, but changes of
+	 * transactions which commit later are missed, so consumers which must not lose changes can resynchronize the
+	 * tables of these ids. Called before the batch of the same poll; if the listener throws, both are delivered
+	 * again with the next poll. Ignores the ranges by default.
+	 *
+	 * @param firstChangeId the first abandoned change id
+	 * @param lastChangeId  the last abandoned change id, inclusive
+	 * @throws Exception if the gap could not be processed
+	 */
+	default void gapAbandoned(final long firstChangeId, final long lastChangeId) throws Exception
+	{
+	}
+}
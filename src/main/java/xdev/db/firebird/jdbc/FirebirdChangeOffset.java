@@ -0,0 +1,117 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Arrays;
+
+
+/**
+ * Resumable position in the change log of a {@link FirebirdChangeCapture}.
+ * <p>
+ * Change ids are assigned when rows change, but become visible when their transaction commits, so a long
+ * transaction can commit changes with lower ids than those already delivered. The offset therefore consists of
+ * the highest delivered id and the lower ids not seen yet (gaps), which are read again until they appear or
+ * expire. Ids of rolled back changes remain gaps until they expire, expired gaps are reported to
+ * {@link FirebirdChangeListener#gapAbandoned(long, long)}.
+ * <p>
+ * The text form of {@link #toString()} is parsed by {@link #parse(String)}.
+ */
+public class FirebirdChangeOffset
+{
+	/**
+	 * The offset before the first change.
+	 */
+	public static final FirebirdChangeOffset BEGINNING = new FirebirdChangeOffset(0, new long[0]);
+	
+	private final long lastChangeId;
+	private final long[] gaps;
+	
+	FirebirdChangeOffset(final long lastChangeId, final long[] gaps)
+	{
+		this.lastChangeId = lastChangeId;
+		this.gaps = gaps;
+	}
+	
+	/**
+	 * @param offset the text form of an offset, <code>lastChangeId[:gap,gap,...]</code>
+	 * @return the offset
+	 * @throws IllegalArgumentException if <code>offset</code> is malformed
+	 */
+	public static FirebirdChangeOffset parse(final String offset)
+	{
+		try
+		{
+			final int separator = offset.indexOf(':');
+			if(separator < 0)
+			{
+				return new FirebirdChangeOffset(Long.parseLong(offset.trim()), new long[0]);
+			}
+			final long lastChangeId = Long.parseLong(offset.substring(0, separator).trim());
+			final long[] gaps = Arrays.stream(offset.substring(separator + 1).split(",")).map(String::trim)
+				.filter(gap -> !gap.isEmpty()).mapToLong(Long::parseLong).sorted().toArray();
+			return new FirebirdChangeOffset(lastChangeId, gaps);
+		}
+		catch(final NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Malformed change offset: " + offset, e);
+		}
+	}
+	
+	/**
+	 * @return the highest delivered change id
+	 */
+	public long getLastChangeId()
+	{
+		return this.lastChangeId;
+	}
+	
+	/**
+	 * @return the ascending ids below {@link #getLastChangeId()} which were not delivered yet
+	 */
+	public long[] getGaps()
+	{
+		return this.gaps.clone();
+	}
+	
+	/**
+	 * @return the highest id up to which all changes were delivered or expired, e.g. to purge the change log
+	 */
+	public long getCompleteChangeId()
+	{
+		return this.gaps.length == 0 ? this.lastChangeId : this.gaps[0] - 1;
+	}
+	
+	@Override
+	public String toString()
+	{
+		if(this.gaps.length == 0)
+		{
+			return Long.toString(this.lastChangeId);
+		}
+		final StringBuilder sb = new StringBuilder().append(this.lastChangeId).append(':');
+		for(int i = 0; i < this.gaps.length; i++)
+		{
+			if(i > 0)
+			{
+				sb.append(',');
+			}
+			sb.append(this.gaps[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -24,6 +24,9 @@ import xdev.db.ConnectionInformation;
 
 public class FirebirdConnectionInformation extends ConnectionInformation<FirebirdDbms>
 {
+	private FirebirdConnectionTuning tuning = FirebirdConnectionTuning.DEFAULT;
+	private FirebirdConnectionMode mode = FirebirdConnectionMode.PURE_JAVA;
+	
 	// /////////////////////////////////////////////////////////////////////////
 	// constructors //
 	// ///////////////////
@@ -57,6 +60,26 @@ public class FirebirdConnectionInformation extends ConnectionInformation<Firebir
 		return this.getCatalog();
 	}
 	
+	/**
+	 * Gets the connection tuning.
+	 *
+	 * @return the tuning appended to the JDBC URL
+	 */
+	public FirebirdConnectionTuning getTuning()
+	{
+		return this.tuning;
+	}
+	
+	/**
+	 * Gets the connection mode.
+	 *
+	 * @return the protocol of the JDBC URL
+	 */
+	public FirebirdConnectionMode getMode()
+	{
+		return this.mode;
+	}
+	
 	// /////////////////////////////////////////////////////////////////////////
 	// setters //
 	// ///////////////////
@@ -71,18 +94,49 @@ public class FirebirdConnectionInformation extends ConnectionInformation<Firebir
 		this.setCatalog(database);
 	}
 	
+	/**
+	 * Sets the connection tuning.
+	 *
+	 * @param tuning the tuning to append to the JDBC URL
+	 */
+	public void setTuning(final FirebirdConnectionTuning tuning)
+	{
+		if(tuning == null)
+		{
+			throw new IllegalArgumentException("tuning must not be null");
+		}
+		this.tuning = tuning;
+	}
+	
+	/**
+	 * Sets the connection mode.
+	 *
+	 * @param mode the protocol of the JDBC URL
+	 */
+	public void setMode(final FirebirdConnectionMode mode)
+	{
+		if(mode == null)
+		{
+			throw new IllegalArgumentException("mode must not be null");
+		}
+		this.mode = mode;
+	}
+	
 	// /////////////////////////////////////////////////////////////////////////
 	// override methods //
 	// ///////////////////
 	
 	/**
+	 * Builds the URL of the {@link #getMode() mode} and appends the properties of the {@link #getTuning() tuning}
+	 * after the URL extension, unless the extension sets them itself.
+	 *
 	 * @see DbmsConnectionInformation#createJdbcConnectionUrl()
 	 */
 	@Override
 	public String createJdbcConnectionUrl()
 	{
-		final String url = "jdbc:firebirdsql:" + this.getHost() + "/" + this.getPort() + ":" + this.getCatalog();
-		return this.appendUrlExtension(url);
+		final String url = this.mode.createJdbcConnectionUrl(this.getHost(), this.getPort(), this.getCatalog());
+		return this.tuning.appendTo(this.appendUrlExtension(url));
 	}
 	
 	/**
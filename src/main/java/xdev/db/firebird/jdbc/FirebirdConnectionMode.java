@@ -0,0 +1,200 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Protocols to attach to a database, selected by {@link FirebirdJDBCDataSource#CONNECTION_MODE}.
+ * <p>
+ * All modes except {@link #PURE_JAVA} use the native client library <code>fbclient</code> and require JNA on the
+ * class path and the library on the library path.
+ */
+public enum FirebirdConnectionMode
+{
+	/**
+	 * The wire protocol over TCP, implemented in Java: <code>jdbc:firebirdsql:host/port:database</code>.
+	 */
+	PURE_JAVA,
+	
+	/**
+	 * The wire protocol over TCP, implemented by the native client library:
+	 * <code>jdbc:firebirdsql:native:host/port:database</code>.
+	 */
+	NATIVE,
+	
+	/**
+	 * The local protocol of the native client library, without TCP loopback:
+	 * <code>jdbc:firebirdsql:local:database</code>. Uses XNET shared memory on Windows. The server must run on
+	 * the same machine.
+	 */
+	LOCAL,
+	
+	/**
+	 * The database engine in the process of the application: <code>jdbc:firebirdsql:embedded:database</code>.
+	 * Requires the embedded engine next to the client library; the database file is opened exclusively unless the
+	 * server uses the SuperClassic or Classic architecture.
+	 */
+	EMBEDDED,
+	
+	/**
+	 * {@link #LOCAL} on Windows if the host is this machine and the native client library can be loaded, otherwise
+	 * {@link #PURE_JAVA}. Other systems have no shared memory transport, so the local protocol would only replace
+	 * the Java implementation of the TCP loopback by the native one.
+	 */
+	AUTO;
+	
+	private static final String JNA_LIBRARY_CLASS = "com.sun.jna.NativeLibrary"; //$NON-NLS-1$
+	private static final String CLIENT_LIBRARY = "fbclient"; //$NON-NLS-1$
+	
+	private static final Map<String, Boolean> LOCAL_HOSTS = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param name the case insensitive name of the mode, empty for {@link #PURE_JAVA}
+	 * @return the mode
+	 * @throws IllegalArgumentException if there is no mode with this name
+	 */
+	public static FirebirdConnectionMode parse(final String name)
+	{
+		if(name == null || name.trim().isEmpty())
+		{
+			return PURE_JAVA;
+		}
+		try
+		{
+			return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+		}
+		catch(final IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Unknown connection mode: " + name);
+		}
+	}
+	
+	/**
+	 * @param host the host of the server
+	 * @return this mode, or for {@link #AUTO} the detected one
+	 */
+	public FirebirdConnectionMode resolve(final String host)
+	{
+		if(this != AUTO)
+		{
+			return this;
+		}
+		return NativeClient.AVAILABLE && isLocalHost(host) ? LOCAL : PURE_JAVA;
+	}
+	
+	/**
+	 * @param host     the host of the server
+	 * @param port     the port of the server
+	 * @param database the database path or alias
+	 * @return the JDBC URL of this mode, {@link #AUTO} resolved
+	 */
+	public String createJdbcConnectionUrl(final String host, final int port, final String database)
+	{
+		switch(this.resolve(host))
+		{
+			case NATIVE:
+				return "jdbc:firebirdsql:native:" + host + "/" + port //$NON-NLS-1$ //$NON-NLS-2$
+					+ ":" + database; //$NON-NLS-1$
+			case LOCAL:
+				return "jdbc:firebirdsql:local:" + database; //$NON-NLS-1$
+			case EMBEDDED:
+				return "jdbc:firebirdsql:embedded:" + database; //$NON-NLS-1$
+			default:
+				return "jdbc:firebirdsql:" + host + "/" + port //$NON-NLS-1$ //$NON-NLS-2$
+					+ ":" + database; //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * A host is local if it is empty or resolves to a loopback address or an address of a network interface of this
+	 * machine. The result is cached per host name.
+	 *
+	 * @param host the host name or address
+	 * @return <code>true</code> if the server runs on this machine
+	 */
+	public static boolean isLocalHost(final String host)
+	{
+		if(host == null || host.isEmpty())
+		{
+			return true;
+		}
+		return LOCAL_HOSTS.computeIfAbsent(host.toLowerCase(Locale.ENGLISH),
+			FirebirdConnectionMode::detectLocalHost);
+	}
+	
+	private static boolean detectLocalHost(final String host)
+	{
+		try
+		{
+			for(final InetAddress address : InetAddress.getAllByName(host))
+			{
+				if(address.isLoopbackAddress() || address.isAnyLocalAddress()
+					|| NetworkInterface.getByInetAddress(address) != null)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		catch(final UnknownHostException | SocketException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if this is Windows and JNA loads the native client library, detected once
+	 */
+	public static boolean isNativeClientAvailable()
+	{
+		return NativeClient.AVAILABLE;
+	}
+	
+	private static final class NativeClient
+	{
+		static final boolean AVAILABLE = isWindows() && loadClientLibrary();
+		
+		private static boolean isWindows()
+		{
+			return System.getProperty("os.name", "").startsWith("Windows"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		
+		private static boolean loadClientLibrary()
+		{
+			try
+			{
+				Class.forName(JNA_LIBRARY_CLASS, true, FirebirdConnectionMode.class.getClassLoader())
+					.getMethod("getInstance", String.class).invoke(null, CLIENT_LIBRARY); //$NON-NLS-1$
+				return true;
+			}
+			catch(final ReflectiveOperationException | LinkageError e)
+			{
+				// JNA missing or the library not found, getInstance throws UnsatisfiedLinkError
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,708 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Pool of physical Firebird connections.
+ * <p>
+ * Firebird attachments are expensive to open (authentication, attachment setup, page cache warm-up), so
+ * connections are kept open and handed out again. Idle connections are kept in a lock-free deque and reused most
+ * recently used first, the pool size is bounded by a fair semaphore. Borrowed connections are proxies whose
+ * {@link Connection#close()} returns the physical connection to the pool.
+ * <p>
+ * Connections which have been idle for longer than {@link #VALIDATION_INTERVAL_MILLIS} are validated with
+ * <code>SELECT 1 FROM RDB$DATABASE</code> before they are handed out. Connections older than the maximum lifetime
+ * are closed instead of being reused.
+ * <p>
+ * Statements created through a borrowed connection return the borrowed connection from
+ * {@link Statement#getConnection()}, and their result sets the statement from {@link ResultSet#getStatement()},
+ * so the physical connection can't escape the lease. {@link Connection#prepareStatement(String)} is served from the
+ * {@link FirebirdStatementCache} of the physical connection, closing such a statement hands it back to the cache.
+ */
+public class FirebirdConnectionPool
+{
+	/**
+	 * Idle time after which a connection is validated before it is handed out.
+	 */
+	public static final long VALIDATION_INTERVAL_MILLIS = 1000;
+	
+	private static final String VALIDATION_QUERY = "SELECT 1 FROM RDB$DATABASE"; //$NON-NLS-1$
+	
+	private static final long HOUSEKEEPING_PERIOD_MILLIS = 5000;
+	
+	private static final Logger LOGGER = Logger.getLogger(FirebirdConnectionPool.class.getName());
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private final int minIdle;
+	private final int maxIdle;
+	private final int maxSize;
+	private final long maxLifetimeNanos;
+	private final long leakDetectionThresholdNanos;
+	private final long borrowTimeoutNanos;
+	
+	private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+	private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+	private final Semaphore permits;
+	private final AtomicInteger size = new AtomicInteger();
+	private final LongAdder leaks = new LongAdder();
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean closed;
+	
+	/**
+	 * @param dataSource                   the data source to open the physical connections with
+	 * @param minIdle                      the count of idle connections the pool keeps open
+	 * @param maxIdle                      the maximum count of idle connections, surplus connections are closed
+	 * @param maxSize                      the maximum count of connections, idle and borrowed
+	 * @param maxLifetimeMillis            the time after which a connection is closed, <code>0</code> for no limit
+	 * @param leakDetectionThresholdMillis the time after which a borrowed connection is reported as leak,
+	 *                                     <code>0</code> disables leak detection
+	 * @param borrowTimeoutMillis          the maximum time to wait for a connection if all are borrowed
+	 */
+	public FirebirdConnectionPool(
+		final FirebirdJDBCDataSource dataSource, final int minIdle, final int maxIdle, final int maxSize,
+		final long maxLifetimeMillis, final long leakDetectionThresholdMillis, final long borrowTimeoutMillis)
+	{
+		if(maxSize <= 0 || minIdle < 0 || maxIdle < minIdle || maxIdle > maxSize)
+		{
+			throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxIdle=" + maxIdle
+				+ ", maxSize=" + maxSize);
+		}
+		
+		this.dataSource = dataSource;
+		this.minIdle = minIdle;
+		this.maxIdle = maxIdle;
+		this.maxSize = maxSize;
+		this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+		this.leakDetectionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakDetectionThresholdMillis);
+		this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		this.permits = new Semaphore(maxSize, true);
+		
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "Firebird connection pool housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.housekeeper.scheduleWithFixedDelay(this::houseKeeping, 0, HOUSEKEEPING_PERIOD_MILLIS,
+			TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Borrows a connection. Closing the returned connection hands it back to the pool.
+	 *
+	 * @return a validated connection
+	 * @throws SQLException if no connection could be borrowed within the borrow timeout or opening a new physical
+	 *                      connection failed
+	 */
+	public Connection borrow() throws SQLException
+	{
+		if(this.closed)
+		{
+			throw new SQLException("Connection pool is closed");
+		}
+		
+		try
+		{
+			if(!this.permits.tryAcquire(this.borrowTimeoutNanos, TimeUnit.NANOSECONDS))
+			{
+				throw new SQLTransientConnectionException("No connection available within "
+					+ TimeUnit.NANOSECONDS.toMillis(this.borrowTimeoutNanos) + " ms, pool size is " + this.maxSize);
+			}
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+		}
+		
+		try
+		{
+			while(true)
+			{
+				PooledConnection pooled;
+				while((pooled = this.idle.pollFirst()) != null)
+				{
+					if(this.isUsable(pooled, System.nanoTime()))
+					{
+						return this.lend(pooled);
+					}
+					this.discard(pooled);
+				}
+				if(this.reserve())
+				{
+					return this.lend(this.open());
+				}
+				// the housekeeper is opening or discarding an idle connection
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+		}
+		catch(final SQLException | RuntimeException e)
+		{
+			this.permits.release();
+			throw e;
+		}
+	}
+	
+	private Connection lend(final PooledConnection pooled)
+	{
+		pooled.borrowedAt = System.nanoTime();
+		pooled.borrowSite = this.leakDetectionThresholdNanos > 0 ? new Throwable("Connection borrowed here") : null;
+		pooled.leakReported = false;
+		this.borrowed.add(pooled);
+		return pooled.newProxy();
+	}
+	
+	void giveBack(final PooledConnection pooled)
+	{
+		this.borrowed.remove(pooled);
+		try
+		{
+			if(this.closed || this.isExpired(pooled, System.nanoTime()) || this.idle.size() >= this.maxIdle)
+			{
+				this.discard(pooled);
+			}
+			else
+			{
+				pooled.reset();
+				pooled.lastUsed = System.nanoTime();
+				this.idle.offerFirst(pooled);
+			}
+		}
+		catch(final SQLException e)
+		{
+			this.discard(pooled);
+		}
+		finally
+		{
+			this.permits.release();
+		}
+	}
+	
+	/**
+	 * Reserves the size for one more physical connection, which must then be {@link #open()}ed.
+	 *
+	 * @return <code>false</code> if the pool has reached its maximum size
+	 */
+	private boolean reserve()
+	{
+		for(int current; (current = this.size.get()) < this.maxSize; )
+		{
+			if(this.size.compareAndSet(current, current + 1))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Opens a physical connection for a size {@link #reserve() reserved} before.
+	 */
+	private PooledConnection open() throws SQLException
+	{
+		try
+		{
+			return new PooledConnection(this.dataSource.openPhysicalConnection());
+		}
+		catch(final SQLException | RuntimeException e)
+		{
+			this.size.decrementAndGet();
+			throw e;
+		}
+	}
+	
+	private void discard(final PooledConnection pooled)
+	{
+		this.size.decrementAndGet();
+		this.dataSource.removeStatementCache(pooled.physical);
+		try
+		{
+			pooled.physical.close();
+		}
+		catch(final SQLException e)
+		{
+			// broken connections are discarded anyway
+		}
+	}
+	
+	private boolean isExpired(final PooledConnection pooled, final long now)
+	{
+		return this.maxLifetimeNanos > 0 && now - pooled.created > this.maxLifetimeNanos;
+	}
+	
+	private boolean isUsable(final PooledConnection pooled, final long now)
+	{
+		if(this.isExpired(pooled, now))
+		{
+			return false;
+		}
+		if(now - pooled.lastUsed < TimeUnit.MILLISECONDS.toNanos(VALIDATION_INTERVAL_MILLIS))
+		{
+			return true;
+		}
+		
+		try
+		{
+			final FirebirdStatementCache cache = this.dataSource.getPooledStatementCache(pooled.physical);
+			final PreparedStatement statement = cache.prepare(VALIDATION_QUERY);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				return resultSet.next();
+			}
+			finally
+			{
+				cache.release(statement, VALIDATION_QUERY);
+			}
+		}
+		catch(final SQLException e)
+		{
+			return false;
+		}
+	}
+	
+	private void houseKeeping()
+	{
+		final long now = System.nanoTime();
+		
+		for(final Iterator<PooledConnection> it = this.idle.descendingIterator(); it.hasNext(); )
+		{
+			final PooledConnection pooled = it.next();
+			if((this.isExpired(pooled, now) || this.idle.size() > this.maxIdle) && this.idle.remove(pooled))
+			{
+				this.discard(pooled);
+			}
+		}
+		
+		if(this.leakDetectionThresholdNanos > 0)
+		{
+			for(final PooledConnection pooled : this.borrowed)
+			{
+				if(!pooled.leakReported && now - pooled.borrowedAt > this.leakDetectionThresholdNanos)
+				{
+					pooled.leakReported = true;
+					this.leaks.increment();
+					LOGGER.log(Level.WARNING, "Connection borrowed for more than "
+						+ TimeUnit.NANOSECONDS.toMillis(this.leakDetectionThresholdNanos) + " ms, possible leak",
+						pooled.borrowSite);
+				}
+			}
+		}
+		
+		try
+		{
+			while(!this.closed && this.idle.size() < this.minIdle && this.reserve())
+			{
+				final PooledConnection pooled = this.open();
+				pooled.lastUsed = System.nanoTime();
+				this.idle.offerLast(pooled);
+			}
+		}
+		catch(final SQLException | RuntimeException e)
+		{
+			// retried with the next run
+		}
+	}
+	
+	/**
+	 * @return the count of open physical connections, idle and borrowed
+	 */
+	public int getSize()
+	{
+		return this.size.get();
+	}
+	
+	/**
+	 * @return the count of idle connections
+	 */
+	public int getIdleCount()
+	{
+		return this.idle.size();
+	}
+	
+	/**
+	 * @return the count of connections which have been borrowed for longer than the leak detection threshold
+	 */
+	public long getLeakCount()
+	{
+		return this.leaks.sum();
+	}
+	
+	/**
+	 * Returns the call sites which borrowed connections that are currently considered as leaked.
+	 *
+	 * @return the borrow stack traces of the leaked connections
+	 */
+	public List<Throwable> getLeakSuspects()
+	{
+		final List<Throwable> suspects = new ArrayList<>();
+		for(final PooledConnection pooled : this.borrowed)
+		{
+			final Throwable borrowSite = pooled.borrowSite;
+			if(pooled.leakReported && borrowSite != null)
+			{
+				suspects.add(borrowSite);
+			}
+		}
+		return suspects;
+	}
+	
+	/**
+	 * Closes all idle connections and stops the housekeeping. Borrowed connections are closed when they are handed
+	 * back.
+	 */
+	public void close()
+	{
+		this.closed = true;
+		this.housekeeper.shutdownNow();
+		PooledConnection pooled;
+		while((pooled = this.idle.pollFirst()) != null)
+		{
+			this.discard(pooled);
+		}
+	}
+	
+	/**
+	 * Returns the physical connection of a connection borrowed from a pool.
+	 *
+	 * @param connection a borrowed or physical connection
+	 * @return the physical connection
+	 */
+	static Connection physical(final Connection connection)
+	{
+		if(Proxy.isProxyClass(connection.getClass()))
+		{
+			final InvocationHandler handler = Proxy.getInvocationHandler(connection);
+			if(handler instanceof Lease)
+			{
+				return ((Lease)handler).pooled.physical;
+			}
+		}
+		return connection;
+	}
+	
+	final class PooledConnection
+	{
+		final Connection physical;
+		final long created = System.nanoTime();
+		volatile long lastUsed = this.created;
+		volatile long borrowedAt;
+		volatile Throwable borrowSite;
+		volatile boolean leakReported;
+		
+		PooledConnection(final Connection physical)
+		{
+			this.physical = physical;
+		}
+		
+		Connection newProxy()
+		{
+			return (Connection)Proxy.newProxyInstance(FirebirdConnectionPool.class.getClassLoader(),
+				new Class<?>[]{Connection.class}, new Lease(this));
+		}
+		
+		void reset() throws SQLException
+		{
+			if(!this.physical.getAutoCommit())
+			{
+				this.physical.rollback();
+				this.physical.setAutoCommit(true);
+			}
+			FirebirdTransactionProfile.reset(this.physical);
+			this.physical.clearWarnings();
+		}
+	}
+	
+	/**
+	 * Handler of the proxy which is handed out for one borrow of a pooled connection.
+	 */
+	private final class Lease implements InvocationHandler
+	{
+		final PooledConnection pooled;
+		private volatile boolean returned;
+		
+		Lease(final PooledConnection pooled)
+		{
+			this.pooled = pooled;
+		}
+		
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+		{
+			switch(method.getName())
+			{
+				case "close":
+					if(!this.returned)
+					{
+						this.returned = true;
+						FirebirdConnectionPool.this.giveBack(this.pooled);
+					}
+					return null;
+				
+				case "isClosed":
+					return this.returned || this.pooled.physical.isClosed();
+				
+				case "equals":
+					return proxy == args[0];
+				
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				
+				case "toString":
+					return "Pooled[" + this.pooled.physical + "]";
+				
+				case "prepareStatement":
+					if(!this.returned && method.getParameterCount() == 1)
+					{
+						final FirebirdStatementCache cache = FirebirdConnectionPool.this.dataSource
+							.getStatementCache((Connection)proxy);
+						final String sql = (String)args[0];
+						return Cached.checkout(cache, sql, proxy);
+					}
+					return this.delegate(proxy, method, args);
+				
+				default:
+					return this.delegate(proxy, method, args);
+			}
+		}
+		
+		private Object delegate(final Object proxy, final Method method, final Object[] args) throws Throwable
+		{
+			if(this.returned)
+			{
+				throw new SQLException("Connection is closed");
+			}
+			try
+			{
+				return Owned.wrap(method, method.invoke(this.pooled.physical, args), proxy);
+			}
+			catch(final InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+	}
+	
+	/**
+	 * Statement checked out of the {@link FirebirdStatementCache} of a lease. Closing it hands the statement back to
+	 * the cache, after closing its current result set and clearing its batch. Statements whose properties, e.g. the
+	 * fetch size or the query timeout, have been changed are closed instead, as the next user expects the defaults.
+	 */
+	private static final class Cached implements InvocationHandler
+	{
+		private final FirebirdStatementCache cache;
+		private final PreparedStatement target;
+		private final String sql;
+		private final Object owner;
+		private ResultSet resultSet;
+		private boolean batched;
+		private boolean reusable = true;
+		private boolean closed;
+		
+		private Cached(
+			final FirebirdStatementCache cache, final PreparedStatement target, final String sql,
+			final Object owner)
+		{
+			this.cache = cache;
+			this.target = target;
+			this.sql = sql;
+			this.owner = owner;
+		}
+		
+		static PreparedStatement checkout(final FirebirdStatementCache cache, final String sql, final Object owner)
+			throws SQLException
+		{
+			return (PreparedStatement)Proxy.newProxyInstance(FirebirdConnectionPool.class.getClassLoader(),
+				new Class<?>[]{PreparedStatement.class}, new Cached(cache, cache.prepare(sql), sql, owner));
+		}
+		
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+		{
+			switch(method.getName())
+			{
+				case "close":
+					if(!this.closed)
+					{
+						this.closed = true;
+						this.release();
+					}
+					return null;
+				
+				case "isClosed":
+					return this.closed || this.target.isClosed();
+				
+				case "getConnection":
+					if(method.getParameterCount() == 0)
+					{
+						return this.owner;
+					}
+					break;
+				
+				case "equals":
+					return proxy == args[0];
+				
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				
+				case "addBatch":
+					this.batched = true;
+					break;
+				
+				default:
+					if(method.getDeclaringClass() == Statement.class && method.getName().startsWith("set"))
+					{
+						this.reusable = false;
+					}
+					break;
+			}
+			if(this.closed)
+			{
+				throw new SQLException("Statement is closed");
+			}
+			try
+			{
+				final Object result = Owned.wrap(method, method.invoke(this.target, args), proxy);
+				if(result instanceof ResultSet)
+				{
+					this.resultSet = (ResultSet)result;
+				}
+				return result;
+			}
+			catch(final InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+		
+		private void release() throws SQLException
+		{
+			try
+			{
+				if(this.resultSet != null)
+				{
+					this.resultSet.close();
+				}
+				if(this.batched)
+				{
+					this.target.clearBatch();
+				}
+			}
+			catch(final SQLException e)
+			{
+				this.reusable = false;
+			}
+			if(this.reusable)
+			{
+				this.cache.release(this.target, this.sql);
+			}
+			else
+			{
+				this.target.close();
+			}
+		}
+	}
+	
+	/**
+	 * Handler of the proxy of a statement or result set which returns the proxy of its owner instead of the
+	 * physical one.
+	 */
+	private static final class Owned implements InvocationHandler
+	{
+		private final Object target;
+		private final Object owner;
+		
+		Owned(final Object target, final Object owner)
+		{
+			this.target = target;
+			this.owner = owner;
+		}
+		
+		/**
+		 * Wraps statements and result sets returned by <code>method</code> into proxies owned by <code>owner</code>.
+		 */
+		static Object wrap(final Method method, final Object result, final Object owner)
+		{
+			final Class<?> type = method.getReturnType();
+			if(result == null || !type.isInterface()
+				|| !(Statement.class.isAssignableFrom(type) || ResultSet.class.isAssignableFrom(type)))
+			{
+				return result;
+			}
+			return Proxy.newProxyInstance(FirebirdConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+				new Owned(result, owner));
+		}
+		
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+		{
+			switch(method.getName())
+			{
+				case "getConnection":
+				case "getStatement":
+					if(method.getParameterCount() == 0)
+					{
+						return this.owner;
+					}
+					break;
+				
+				case "equals":
+					return proxy == args[0];
+				
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				
+				default:
+					break;
+			}
+			try
+			{
+				return wrap(method, method.invoke(this.target, args), proxy);
+			}
+			catch(final InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+	}
+}
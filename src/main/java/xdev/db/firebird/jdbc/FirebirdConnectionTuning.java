@@ -0,0 +1,419 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.nio.charset.Charset;
+import java.sql.Driver;
+import java.util.Locale;
+
+
+/**
+ * Typed Jaybird connection properties which affect performance, appended to the JDBC URL by
+ * {@link FirebirdConnectionInformation#createJdbcConnectionUrl()}. Unset properties keep the driver default.
+ * <p>
+ * Tunings are immutable; the <code>with</code> methods return modified copies.
+ *
+ * @see FirebirdJDBCDataSource#CONNECTION_TUNING
+ */
+public class FirebirdConnectionTuning
+{
+	/**
+	 * Encryption of the wire protocol, Firebird 3 and later.
+	 */
+	public enum WireCrypt
+	{
+		/**
+		 * Fails if the server doesn't support encryption.
+		 */
+		REQUIRED,
+		
+		/**
+		 * Encrypts if the server supports it, the driver default.
+		 */
+		ENABLED,
+		
+		/**
+		 * Doesn't encrypt, fails if the server requires encryption (<code>WireCrypt = Required</code>, the server
+		 * default).
+		 */
+		DISABLED
+	}
+	
+	/**
+	 * Smallest accepted buffer size in bytes.
+	 */
+	public static final int MIN_BUFFER_SIZE = 512;
+	
+	/**
+	 * Largest accepted blob buffer size in bytes, the maximum segment size of Firebird.
+	 */
+	public static final int MAX_BLOB_BUFFER_SIZE = 65535;
+	
+	/**
+	 * First Jaybird version which supports the <code>wireCompression</code> property.
+	 */
+	public static final int WIRE_COMPRESSION_MIN_DRIVER_VERSION = 4;
+	
+	private static final String DRIVER_CLASS = "org.firebirdsql.jdbc.FBDriver"; //$NON-NLS-1$
+	
+	/**
+	 * No property set, the driver defaults.
+	 */
+	public static final FirebirdConnectionTuning DEFAULT = new FirebirdConnectionTuning("default", null, null, null,
+		null, null, null, null);
+	
+	/**
+	 * Bulk transfers in a trusted LAN: no encryption or compression, large blob segments and socket buffers,
+	 * non-holdable result sets. Requires a server which doesn't enforce wire encryption.
+	 */
+	public static final FirebirdConnectionTuning LAN_BULK = new FirebirdConnectionTuning("lan_bulk",
+		WireCrypt.DISABLED, false, MAX_BLOB_BUFFER_SIZE, false, 1024 * 1024, null, null);
+	
+	/**
+	 * Connections over slow or metered links: required encryption and zlib compression of the wire protocol, which
+	 * trades client and server CPU for fewer bytes on the wire. Compression requires Firebird 3 and Jaybird 4 or
+	 * later, with older drivers only encryption and the buffer sizes are applied, see {@link #appendTo(String)}.
+	 */
+	public static final FirebirdConnectionTuning WAN_COMPRESSED = new FirebirdConnectionTuning("wan_compressed",
+		WireCrypt.REQUIRED, true, 32768, false, 256 * 1024, null, null);
+	
+	/**
+	 * Embedded or local engine: no wire protocol options, large blob segments and a page cache of 8192 pages for
+	 * the attachment.
+	 */
+	public static final FirebirdConnectionTuning EMBEDDED = new FirebirdConnectionTuning("embedded", null, null,
+		MAX_BLOB_BUFFER_SIZE, false, null, 8192, null);
+	
+	private final String name;
+	private final WireCrypt wireCrypt;
+	private final Boolean wireCompression;
+	private final Integer blobBufferSize;
+	private final Boolean defaultResultSetHoldable;
+	private final Integer socketBufferSize;
+	private final Integer pageCacheSize;
+	private final String charSet;
+	
+	private FirebirdConnectionTuning(
+		final String name, final WireCrypt wireCrypt, final Boolean wireCompression, final Integer blobBufferSize,
+		final Boolean defaultResultSetHoldable, final Integer socketBufferSize, final Integer pageCacheSize,
+		final String charSet)
+	{
+		this.name = name;
+		this.wireCrypt = wireCrypt;
+		this.wireCompression = wireCompression;
+		this.blobBufferSize = blobBufferSize;
+		this.defaultResultSetHoldable = defaultResultSetHoldable;
+		this.socketBufferSize = socketBufferSize;
+		this.pageCacheSize = pageCacheSize;
+		this.charSet = charSet;
+	}
+	
+	/**
+	 * Parses a tuning: an optional preset name (<code>default</code>, <code>lan_bulk</code>,
+	 * <code>wan_compressed</code>, <code>embedded</code>) followed by <code>property=value</code> pairs which
+	 * override it, separated by commas or semicolons, e.g. <code>wan_compressed, blobBufferSize=65535</code>. The
+	 * property names are those of Jaybird and case insensitive.
+	 *
+	 * @param definition the tuning, empty for {@link #DEFAULT}
+	 * @return the tuning
+	 * @throws IllegalArgumentException if the definition contains an unknown preset or property or an invalid
+	 *                                  value
+	 */
+	public static FirebirdConnectionTuning parse(final String definition)
+	{
+		FirebirdConnectionTuning tuning = DEFAULT;
+		final String[] tokens = definition.trim().split("\\s*[,;]\\s*"); //$NON-NLS-1$
+		for(int i = 0; i < tokens.length; i++)
+		{
+			final String token = tokens[i];
+			final int separator = token.indexOf('=');
+			if(separator < 0)
+			{
+				if(i > 0)
+				{
+					throw new IllegalArgumentException("The preset must be the first element: " + token);
+				}
+				tuning = token.isEmpty() ? DEFAULT : preset(token);
+				continue;
+			}
+			
+			final String property = token.substring(0, separator).trim();
+			final String value = token.substring(separator + 1).trim();
+			switch(property.toLowerCase(Locale.ENGLISH))
+			{
+				case "wirecrypt": //$NON-NLS-1$
+					tuning = tuning.withWireCrypt(WireCrypt.valueOf(value.toUpperCase(Locale.ENGLISH)));
+					break;
+				case "wirecompression": //$NON-NLS-1$
+					tuning = tuning.withWireCompression(Boolean.parseBoolean(value));
+					break;
+				case "blobbuffersize": //$NON-NLS-1$
+					tuning = tuning.withBlobBufferSize(Integer.parseInt(value));
+					break;
+				case "defaultresultsetholdable": //$NON-NLS-1$
+					tuning = tuning.withDefaultResultSetHoldable(Boolean.parseBoolean(value));
+					break;
+				case "socketbuffersize": //$NON-NLS-1$
+					tuning = tuning.withSocketBufferSize(Integer.parseInt(value));
+					break;
+				case "pagecachesize": //$NON-NLS-1$
+					tuning = tuning.withPageCacheSize(Integer.parseInt(value));
+					break;
+				case "charset": //$NON-NLS-1$
+					tuning = tuning.withCharSet(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown connection property: " + property);
+			}
+		}
+		return tuning;
+	}
+	
+	/**
+	 * @param name the case insensitive name of a preset
+	 * @return the preset
+	 * @throws IllegalArgumentException if there is no preset with this name
+	 */
+	public static FirebirdConnectionTuning preset(final String name)
+	{
+		switch(name.toLowerCase(Locale.ENGLISH))
+		{
+			case "default": //$NON-NLS-1$
+				return DEFAULT;
+			case "lan_bulk": //$NON-NLS-1$
+				return LAN_BULK;
+			case "wan_compressed": //$NON-NLS-1$
+				return WAN_COMPRESSED;
+			case "embedded": //$NON-NLS-1$
+				return EMBEDDED;
+			default:
+				throw new IllegalArgumentException("Unknown connection tuning preset: " + name);
+		}
+	}
+	
+	/**
+	 * Appends the set properties to a JDBC URL. Properties which already occur in the URL, e.g. in the URL
+	 * extension, are skipped, so explicit settings take precedence. <code>wireCompression</code> is skipped if the
+	 * Jaybird version on the class path is older than {@link #WIRE_COMPRESSION_MIN_DRIVER_VERSION}, which doesn't
+	 * know the property.
+	 *
+	 * @param url the JDBC URL
+	 * @return the URL with the properties
+	 */
+	public String appendTo(final String url)
+	{
+		return this.appendTo(url, getDriverMajorVersion());
+	}
+	
+	/**
+	 * @param url                the JDBC URL
+	 * @param driverMajorVersion the major version of Jaybird, <code>0</code> if unknown
+	 * @return the URL with the properties supported by the driver version
+	 * @see #appendTo(String)
+	 */
+	String appendTo(final String url, final int driverMajorVersion)
+	{
+		final StringBuilder sb = new StringBuilder(url);
+		final String lowerUrl = url.toLowerCase(Locale.ENGLISH);
+		append(sb, lowerUrl, "wireCrypt", this.wireCrypt); //$NON-NLS-1$
+		if(driverMajorVersion >= WIRE_COMPRESSION_MIN_DRIVER_VERSION)
+		{
+			append(sb, lowerUrl, "wireCompression", this.wireCompression); //$NON-NLS-1$
+		}
+		append(sb, lowerUrl, "blobBufferSize", this.blobBufferSize); //$NON-NLS-1$
+		append(sb, lowerUrl, "defaultResultSetHoldable", this.defaultResultSetHoldable); //$NON-NLS-1$
+		append(sb, lowerUrl, "socketBufferSize", this.socketBufferSize); //$NON-NLS-1$
+		append(sb, lowerUrl, "pageCacheSize", this.pageCacheSize); //$NON-NLS-1$
+		append(sb, lowerUrl, "charSet", this.charSet); //$NON-NLS-1$
+		return sb.toString();
+	}
+	
+	private static void append(
+		final StringBuilder sb, final String lowerUrl, final String property,
+		final Object value)
+	{
+		if(value == null)
+		{
+			return;
+		}
+		final String key = property.toLowerCase(Locale.ENGLISH) + '=';
+		if(lowerUrl.contains("?" + key) || lowerUrl.contains("&" + key) //$NON-NLS-1$ //$NON-NLS-2$
+			|| lowerUrl.contains(";" + key)) //$NON-NLS-1$
+		{
+			return;
+		}
+		sb.append(sb.indexOf("?") < 0 ? '?' : '&').append(property).append('=').append(value);
+	}
+	
+	/**
+	 * @return the major version of the Jaybird driver on the class path, <code>0</code> if it can't be loaded
+	 */
+	public static int getDriverMajorVersion()
+	{
+		return DriverVersion.MAJOR;
+	}
+	
+	private static final class DriverVersion
+	{
+		static final int MAJOR = detect();
+		
+		private static int detect()
+		{
+			try
+			{
+				return ((Driver)Class.forName(DRIVER_CLASS).getDeclaredConstructor().newInstance()).getMajorVersion();
+			}
+			catch(final ReflectiveOperationException | LinkageError | ClassCastException e)
+			{
+				return 0;
+			}
+		}
+	}
+	
+	public FirebirdConnectionTuning withWireCrypt(final WireCrypt wireCrypt)
+	{
+		return new FirebirdConnectionTuning(this.name, wireCrypt, this.wireCompression, this.blobBufferSize,
+			this.defaultResultSetHoldable, this.socketBufferSize, this.pageCacheSize, this.charSet);
+	}
+	
+	public FirebirdConnectionTuning withWireCompression(final Boolean wireCompression)
+	{
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, wireCompression, this.blobBufferSize,
+			this.defaultResultSetHoldable, this.socketBufferSize, this.pageCacheSize, this.charSet);
+	}
+	
+	/**
+	 * @param blobBufferSize the size of the blob segments read and written in bytes, {@value #MIN_BUFFER_SIZE} to
+	 *                       {@value #MAX_BLOB_BUFFER_SIZE}, <code>null</code> for the driver default
+	 * @return the modified copy
+	 */
+	public FirebirdConnectionTuning withBlobBufferSize(final Integer blobBufferSize)
+	{
+		if(blobBufferSize != null && (blobBufferSize < MIN_BUFFER_SIZE || blobBufferSize > MAX_BLOB_BUFFER_SIZE))
+		{
+			throw new IllegalArgumentException("blobBufferSize must be between " + MIN_BUFFER_SIZE + " and "
+				+ MAX_BLOB_BUFFER_SIZE);
+		}
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, this.wireCompression, blobBufferSize,
+			this.defaultResultSetHoldable, this.socketBufferSize, this.pageCacheSize, this.charSet);
+	}
+	
+	/**
+	 * @param defaultResultSetHoldable <code>true</code> to keep result sets open on commit, which makes the driver
+	 *                                 fetch them completely into memory
+	 * @return the modified copy
+	 */
+	public FirebirdConnectionTuning withDefaultResultSetHoldable(final Boolean defaultResultSetHoldable)
+	{
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, this.wireCompression, this.blobBufferSize,
+			defaultResultSetHoldable, this.socketBufferSize, this.pageCacheSize, this.charSet);
+	}
+	
+	/**
+	 * @param socketBufferSize the size of the socket send and receive buffers in bytes, at least
+	 *                         {@value #MIN_BUFFER_SIZE}, <code>null</code> for the operating system default
+	 * @return the modified copy
+	 */
+	public FirebirdConnectionTuning withSocketBufferSize(final Integer socketBufferSize)
+	{
+		if(socketBufferSize != null && socketBufferSize < MIN_BUFFER_SIZE)
+		{
+			throw new IllegalArgumentException("socketBufferSize must be at least " + MIN_BUFFER_SIZE);
+		}
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, this.wireCompression, this.blobBufferSize,
+			this.defaultResultSetHoldable, socketBufferSize, this.pageCacheSize, this.charSet);
+	}
+	
+	/**
+	 * @param pageCacheSize the page cache of the attachment in pages, effective on Classic and embedded engines,
+	 *                      <code>null</code> for the database default
+	 * @return the modified copy
+	 */
+	public FirebirdConnectionTuning withPageCacheSize(final Integer pageCacheSize)
+	{
+		if(pageCacheSize != null && pageCacheSize <= 0)
+		{
+			throw new IllegalArgumentException("pageCacheSize must be positive");
+		}
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, this.wireCompression, this.blobBufferSize,
+			this.defaultResultSetHoldable, this.socketBufferSize, pageCacheSize, this.charSet);
+	}
+	
+	/**
+	 * @param charSet the Java name of the connection character set, <code>null</code> for the driver default
+	 * @return the modified copy
+	 */
+	public FirebirdConnectionTuning withCharSet(final String charSet)
+	{
+		if(charSet != null && !Charset.isSupported(charSet))
+		{
+			throw new IllegalArgumentException("Unsupported charSet: " + charSet);
+		}
+		return new FirebirdConnectionTuning(this.name, this.wireCrypt, this.wireCompression, this.blobBufferSize,
+			this.defaultResultSetHoldable, this.socketBufferSize, this.pageCacheSize, charSet);
+	}
+	
+	/**
+	 * @return the name of the preset this tuning is based on
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	public WireCrypt getWireCrypt()
+	{
+		return this.wireCrypt;
+	}
+	
+	public Boolean getWireCompression()
+	{
+		return this.wireCompression;
+	}
+	
+	public Integer getBlobBufferSize()
+	{
+		return this.blobBufferSize;
+	}
+	
+	public Boolean getDefaultResultSetHoldable()
+	{
+		return this.defaultResultSetHoldable;
+	}
+	
+	public Integer getSocketBufferSize()
+	{
+		return this.socketBufferSize;
+	}
+	
+	public Integer getPageCacheSize()
+	{
+		return this.pageCacheSize;
+	}
+	
+	public String getCharSet()
+	{
+		return this.charSet;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.appendTo(this.name);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Result of {@link FirebirdJDBCConnection#createTables(List)}: which tables were created and how long each phase
+ * took.
+ */
+public class FirebirdCreateTablesReport
+{
+	private final List<String> created;
+	private final List<String> existing;
+	private final long existenceCheckNanos;
+	private final long assemblyNanos;
+	private final long executionNanos;
+	private final long commitNanos;
+	
+	FirebirdCreateTablesReport(
+		final List<String> created, final List<String> existing, final long existenceCheckNanos,
+		final long assemblyNanos, final long executionNanos, final long commitNanos)
+	{
+		this.created = Collections.unmodifiableList(created);
+		this.existing = Collections.unmodifiableList(existing);
+		this.existenceCheckNanos = existenceCheckNanos;
+		this.assemblyNanos = assemblyNanos;
+		this.executionNanos = executionNanos;
+		this.commitNanos = commitNanos;
+	}
+	
+	/**
+	 * @return the names of the created tables
+	 */
+	public List<String> getCreated()
+	{
+		return this.created;
+	}
+	
+	/**
+	 * @return the names of the tables which already existed and were skipped
+	 */
+	public List<String> getExisting()
+	{
+		return this.existing;
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the existence check against <code>RDB$RELATIONS</code>
+	 */
+	public long getExistenceCheckTime(final TimeUnit unit)
+	{
+		return unit.convert(this.existenceCheckNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the DDL assembly
+	 */
+	public long getAssemblyTime(final TimeUnit unit)
+	{
+		return unit.convert(this.assemblyNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the DDL execution
+	 */
+	public long getExecutionTime(final TimeUnit unit)
+	{
+		return unit.convert(this.executionNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the commit, which applies the DDL on Firebird
+	 */
+	public long getCommitTime(final TimeUnit unit)
+	{
+		return unit.convert(this.commitNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Created " + this.created.size() + " tables, skipped " + this.existing.size()
+			+ " existing (check " + this.getExistenceCheckTime(TimeUnit.MILLISECONDS) + " ms, assembly "
+			+ this.getAssemblyTime(TimeUnit.MILLISECONDS) + " ms, execution "
+			+ this.getExecutionTime(TimeUnit.MILLISECONDS) + " ms, commit "
+			+ this.getCommitTime(TimeUnit.MILLISECONDS) + " ms)";
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Reader of RFC 4180 CSV as written by {@link FirebirdExportFormat#CSV}: unquoted empty fields are read as
+ * <code>null</code>, quoted fields may contain separators, quotes and line breaks.
+ */
+class FirebirdCsvReader implements Iterator<String[]>, Closeable
+{
+	private final Reader reader;
+	private final List<String> fields = new ArrayList<>();
+	private final StringBuilder field = new StringBuilder();
+	private String[] next;
+	private boolean eof;
+	private int pushedBack = -1;
+	
+	/**
+	 * @param reader the buffered source
+	 */
+	FirebirdCsvReader(final Reader reader)
+	{
+		this.reader = reader;
+	}
+	
+	@Override
+	public boolean hasNext()
+	{
+		if(this.next == null && !this.eof)
+		{
+			try
+			{
+				this.next = this.readRecord();
+			}
+			catch(final IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		return this.next != null;
+	}
+	
+	@Override
+	public String[] next()
+	{
+		if(!this.hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		final String[] record = this.next;
+		this.next = null;
+		return record;
+	}
+	
+	private String[] readRecord() throws IOException
+	{
+		this.fields.clear();
+		int c = this.read();
+		if(c == -1)
+		{
+			this.eof = true;
+			return null;
+		}
+		
+		while(true)
+		{
+			this.field.setLength(0);
+			boolean quoted = false;
+			if(c == '"')
+			{
+				quoted = true;
+				while(true)
+				{
+					c = this.read();
+					if(c == -1)
+					{
+						throw new IOException("Unterminated quoted field");
+					}
+					if(c == '"')
+					{
+						c = this.read();
+						if(c != '"')
+						{
+							break;
+						}
+					}
+					this.field.append((char)c);
+				}
+			}
+			else
+			{
+				while(c != ',' && c != '\r' && c != '\n' && c != -1)
+				{
+					this.field.append((char)c);
+					c = this.read();
+				}
+			}
+			this.fields.add(quoted || this.field.length() > 0 ? this.field.toString() : null);
+			
+			if(c == ',')
+			{
+				c = this.read();
+				continue;
+			}
+			if(c == '\r')
+			{
+				c = this.read();
+				if(c != '\n')
+				{
+					this.pushedBack = c;
+				}
+			}
+			else if(c == -1)
+			{
+				this.eof = true;
+			}
+			return this.fields.toArray(new String[this.fields.size()]);
+		}
+	}
+	
+	private int read() throws IOException
+	{
+		if(this.pushedBack != -1)
+		{
+			final int c = this.pushedBack;
+			this.pushedBack = -1;
+			return c;
+		}
+		return this.reader.read();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		this.reader.close();
+	}
+}
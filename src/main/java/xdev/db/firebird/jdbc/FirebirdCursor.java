@@ -0,0 +1,308 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Forward-only cursor over the rows of a query which fetches the rows in batches of the fetch size while it is
+ * iterated, so only one batch is held in memory at a time.
+ * <p>
+ * The cursor owns its connection and a transaction which stays open until the cursor is closed. It is closed
+ * automatically after the last row; cursors which are abandoned earlier must be closed explicitly, e.g. with
+ * try-with-resources. Rows are only fetched when the consumer asks for them, so a slow consumer slows down the
+ * fetching instead of filling the heap.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @see FirebirdJDBCConnection#openCursor(int, String, Object...)
+ */
+public class FirebirdCursor implements Iterator<Object[]>, AutoCloseable
+{
+	/**
+	 * Smallest fetch size chosen by {@link #estimateFetchSize(ResultSetMetaData, int)}.
+	 */
+	public static final int MIN_FETCH_SIZE = 20;
+	
+	/**
+	 * Largest fetch size chosen by {@link #estimateFetchSize(ResultSetMetaData, int)}.
+	 */
+	public static final int MAX_FETCH_SIZE = 10000;
+	
+	/**
+	 * Longest string or binary value Firebird stores inline, longer values are blobs.
+	 */
+	private static final int MAX_INLINE_WIDTH = 32765;
+	
+	private final String sql;
+	private final Connection connection;
+	private final boolean autoCommit;
+	private final PreparedStatement statement;
+	private final ResultSet resultSet;
+	private final int columnCount;
+	private final int fetchSize;
+	private final FirebirdInstrumentation instrumentation;
+	private long rowCount;
+	private Boolean hasNext;
+	private boolean closed;
+	
+	FirebirdCursor(
+		final String sql, final Connection connection, final boolean autoCommit, final PreparedStatement statement,
+		final int fetchSize, final FirebirdInstrumentation instrumentation) throws SQLException
+	{
+		this.sql = sql;
+		this.connection = connection;
+		this.autoCommit = autoCommit;
+		this.statement = statement;
+		this.fetchSize = fetchSize;
+		this.instrumentation = instrumentation;
+		statement.setFetchSize(fetchSize);
+		this.resultSet = statement.executeQuery();
+		this.resultSet.setFetchSize(fetchSize);
+		this.columnCount = this.resultSet.getMetaData().getColumnCount();
+	}
+	
+	/**
+	 * Estimates the fetch size for a result with the row width derived from the column types, so that one fetch
+	 * transfers about <code>fetchBufferSize</code> bytes. Blobs count with the size of their id, as their content
+	 * is fetched separately.
+	 *
+	 * @param metaData        the meta data of the result
+	 * @param fetchBufferSize the target size of one fetch in bytes
+	 * @return the fetch size, between {@link #MIN_FETCH_SIZE} and {@link #MAX_FETCH_SIZE}
+	 * @throws SQLException if the meta data can't be read
+	 */
+	public static int estimateFetchSize(final ResultSetMetaData metaData, final int fetchBufferSize)
+		throws SQLException
+	{
+		long rowWidth = 0;
+		for(int column = 1, count = metaData.getColumnCount(); column <= count; column++)
+		{
+			// null indicator and alignment
+			rowWidth += 4 + columnWidth(metaData, column);
+		}
+		final long fetchSize = fetchBufferSize / Math.max(rowWidth, 1);
+		return (int)Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, fetchSize));
+	}
+	
+	private static int columnWidth(final ResultSetMetaData metaData, final int column) throws SQLException
+	{
+		switch(metaData.getColumnType(column))
+		{
+			case Types.BOOLEAN:
+			case Types.BIT:
+				return 1;
+			
+			case Types.SMALLINT:
+			case Types.TINYINT:
+				return 2;
+			
+			case Types.INTEGER:
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DATE:
+			case Types.TIME:
+				return 4;
+			
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return metaData.getPrecision(column) > 18 ? 16 : 8;
+			
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.BINARY:
+			case Types.VARBINARY:
+				return Math.min(Math.max(metaData.getPrecision(column), 1), MAX_INLINE_WIDTH);
+			
+			default:
+				// BIGINT, DOUBLE, TIMESTAMP and blob ids
+				return 8;
+		}
+	}
+	
+	@Override
+	public boolean hasNext()
+	{
+		if(this.hasNext == null)
+		{
+			if(this.closed)
+			{
+				return false;
+			}
+			try
+			{
+				this.hasNext = this.resultSet.next();
+			}
+			catch(final SQLException e)
+			{
+				this.closeQuietly(e);
+				throw new FirebirdSQLEngineException(e);
+			}
+			if(!this.hasNext)
+			{
+				this.close();
+			}
+		}
+		return this.hasNext;
+	}
+	
+	/**
+	 * @return the values of the next row, indexed from 0
+	 */
+	@Override
+	public Object[] next()
+	{
+		if(!this.hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		this.hasNext = null;
+		
+		final Object[] row = new Object[this.columnCount];
+		try
+		{
+			for(int i = 0; i < this.columnCount; i++)
+			{
+				row[i] = this.resultSet.getObject(i + 1);
+			}
+		}
+		catch(final SQLException e)
+		{
+			this.closeQuietly(e);
+			throw new FirebirdSQLEngineException(e);
+		}
+		this.rowCount++;
+		return row;
+	}
+	
+	/**
+	 * Returns the remaining rows as sequential stream. Closing the stream closes the cursor.
+	 *
+	 * @return the stream of the rows
+	 */
+	public Stream<Object[]> stream()
+	{
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED
+			| Spliterator.NONNULL), false).onClose(this::close);
+	}
+	
+	/**
+	 * @return the meta data of the result
+	 * @throws SQLException if the meta data can't be read
+	 */
+	public ResultSetMetaData getMetaData() throws SQLException
+	{
+		return this.resultSet.getMetaData();
+	}
+	
+	public int getFetchSize()
+	{
+		return this.fetchSize;
+	}
+	
+	/**
+	 * @return the count of rows returned by {@link #next()} so far
+	 */
+	public long getRowCount()
+	{
+		return this.rowCount;
+	}
+	
+	public boolean isClosed()
+	{
+		return this.closed;
+	}
+	
+	/**
+	 * Closes the result set, ends the transaction of the cursor and releases the connection.
+	 *
+	 * @throws FirebirdSQLEngineException if the resources can't be released
+	 */
+	@Override
+	public void close()
+	{
+		if(this.closed)
+		{
+			return;
+		}
+		this.closed = true;
+		this.hasNext = false;
+		this.instrumentation.rowsFetched(this.sql, this.rowCount);
+		
+		SQLException failure = null;
+		try
+		{
+			this.resultSet.close();
+			this.statement.close();
+			this.connection.commit();
+			this.connection.setAutoCommit(this.autoCommit);
+		}
+		catch(final SQLException e)
+		{
+			failure = e;
+		}
+		finally
+		{
+			try
+			{
+				this.connection.close();
+			}
+			catch(final SQLException e)
+			{
+				if(failure == null)
+				{
+					failure = e;
+				}
+				else
+				{
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if(failure != null)
+		{
+			throw new FirebirdSQLEngineException(failure);
+		}
+	}
+	
+	private void closeQuietly(final SQLException cause)
+	{
+		try
+		{
+			this.close();
+		}
+		catch(final RuntimeException e)
+		{
+			cause.addSuppressed(e);
+		}
+	}
+}
@@ -23,11 +23,115 @@ import com.xdev.jadoth.sqlengine.dbms.standard.StandardDMLAssembler;
 
 public class FirebirdDMLAssembler extends StandardDMLAssembler<FirebirdDbms>
 {
+	/**
+	 * Assembly flag which renders the row limit as bind parameters, whose values are returned by
+	 * {@link #rowLimitParameters(SELECT)}. Paged queries then share one SQL text and one prepared statement.
+	 */
+	public static final int ROW_LIMIT_PARAMETERS = 1 << 30;
+	
+	private static final String SELECT_KEYWORD = "SELECT"; //$NON-NLS-1$
+	
+	private final FirebirdDbms dbms;
+	private volatile FirebirdAssembledSqlCache assembledSqlCache;
+	
 	public FirebirdDMLAssembler(final FirebirdDbms dbms)
 	{
 		super(dbms);
+		this.dbms = dbms;
+	}
+	
+	/**
+	 * Enables the cache of {@link #assembleSelect(SELECT, int)}, see {@link FirebirdAssembledSqlCache} for the
+	 * restrictions on cached query objects. Disabled by default.
+	 *
+	 * @param maxSize the maximum count of cached texts, <code>0</code> disables the cache
+	 */
+	public void setAssembledSqlCacheSize(final int maxSize)
+	{
+		if(maxSize < 0)
+		{
+			throw new IllegalArgumentException("maxSize must not be negative");
+		}
+		this.assembledSqlCache = maxSize == 0 ? null : new FirebirdAssembledSqlCache(maxSize);
+	}
+	
+	/**
+	 * @return the cache of {@link #assembleSelect(SELECT, int)}, <code>null</code> if disabled
+	 */
+	public FirebirdAssembledSqlCache getAssembledSqlCache()
+	{
+		return this.assembledSqlCache;
+	}
+	
+	/**
+	 * Assembles the SQL text of <code>query</code>, served from the assembled SQL cache if enabled.
+	 *
+	 * @param query the query
+	 * @param flags the assembly flags, optionally including {@link #ROW_LIMIT_PARAMETERS}
+	 * @return the SQL text
+	 */
+	public String assembleSelect(final SELECT query, final int flags)
+	{
+		final FirebirdAssembledSqlCache cache = this.assembledSqlCache;
+		if(cache == null)
+		{
+			return this.assembleQuery(query, new StringBuilder(), 0, flags).toString();
+		}
+		return cache.get(query, flags, this.dbms.getServerMajorVersion(),
+			() -> this.assembleQuery(query, new StringBuilder(), 0, flags).toString());
+	}
+	
+	/**
+	 * Returns the values of the row limit parameters of a <code>query</code> assembled with
+	 * {@link #ROW_LIMIT_PARAMETERS}. They follow the parameters of the query itself, except for
+	 * {@link #isRowLimitLeading(SELECT) a leading <code>SKIP</code>}.
+	 *
+	 * @param query the query
+	 * @return the parameter values, empty if <code>query</code> has no row limit
+	 */
+	public Object[] rowLimitParameters(final SELECT query)
+	{
+		final Integer skip = query.getOffsetSkipCount();
+		final Integer range = query.getFetchFirstRowCount();
+		
+		if(this.dbms.getServerMajorVersion() >= FirebirdDbms.OFFSET_FETCH_MIN_VERSION)
+		{
+			if(skip != null && range != null)
+			{
+				return new Object[]{skip, range};
+			}
+			return skip != null ? new Object[]{skip} : range != null ? new Object[]{range} : new Object[0];
+		}
+		if(range == null)
+		{
+			return skip != null ? new Object[]{skip} : new Object[0];
+		}
+		final long first = skip != null ? skip + 1L : 1L;
+		final long last = skip != null ? (long)skip + range : range;
+		return new Object[]{first, last};
+	}
+	
+	/**
+	 * Before Firebird 3, a row limit without range is rendered as <code>SKIP n</code> directly after the
+	 * <code>SELECT</code> keyword, as <code>ROWS</code> has no form without upper bound. Its parameter then precedes
+	 * the parameters of the query itself.
+	 *
+	 * @param query the query
+	 * @return <code>true</code> if the {@link #rowLimitParameters(SELECT) row limit parameters} of
+	 *         <code>query</code> precede its other parameters
+	 */
+	public boolean isRowLimitLeading(final SELECT query)
+	{
+		return this.dbms.getServerMajorVersion() < FirebirdDbms.OFFSET_FETCH_MIN_VERSION
+			&& query.getOffsetSkipCount() != null && query.getFetchFirstRowCount() == null;
 	}
 	
+	/**
+	 * Firebird 3 and later get <code>OFFSET n ROWS FETCH NEXT m ROWS ONLY</code>, older or unknown servers
+	 * <code>ROWS m TO n</code>, or <code>SKIP n</code> after the <code>SELECT</code> keyword if there is no range.
+	 * With {@link #ROW_LIMIT_PARAMETERS} the values are rendered as <code>?</code>, and before Firebird 3 as
+	 * <code>ROWS ? TO ?</code> or <code>SKIP ?</code>.
+	 */
 	@Override
 	protected StringBuilder assembleSelectRowLimit(
 		SELECT query, StringBuilder sb, int flags,
@@ -36,12 +140,49 @@ public class FirebirdDMLAssembler extends StandardDMLAssembler<FirebirdDbms>
 		Integer skip = query.getOffsetSkipCount();
 		Integer range = query.getFetchFirstRowCount();
 		
-		if(range != null)
+		if((flags & ROW_LIMIT_PARAMETERS) != 0)
+		{
+			if(dbms.getServerMajorVersion() < FirebirdDbms.OFFSET_FETCH_MIN_VERSION)
+			{
+				if(range != null)
+				{
+					sb.append(newLine).append(clauseSeperator).append("ROWS ? TO ?");
+				}
+				else if(skip != null)
+				{
+					insertSkip(sb, "?");
+				}
+				return sb;
+			}
+			if(skip != null)
+			{
+				sb.append(newLine).append(clauseSeperator).append("OFFSET ? ROWS");
+			}
+			if(range != null)
+			{
+				sb.append(newLine).append(clauseSeperator).append("FETCH NEXT ? ROWS ONLY");
+			}
+			return sb;
+		}
+		
+		if(dbms.getServerMajorVersion() >= FirebirdDbms.OFFSET_FETCH_MIN_VERSION)
 		{
 			if(skip != null)
 			{
-				sb.append(newLine).append(clauseSeperator).append("ROWS ").append(skip)
-					.append(" TO ").append(skip + range - 1);
+				sb.append(newLine).append(clauseSeperator).append("OFFSET ").append(skip).append(" ROWS");
+			}
+			if(range != null)
+			{
+				sb.append(newLine).append(clauseSeperator).append("FETCH NEXT ").append(range)
+					.append(" ROWS ONLY");
+			}
+		}
+		else if(range != null)
+		{
+			if(skip != null)
+			{
+				sb.append(newLine).append(clauseSeperator).append("ROWS ").append(skip + 1L)
+					.append(" TO ").append((long)skip + range);
 			}
 			else
 			{
@@ -50,10 +191,206 @@ public class FirebirdDMLAssembler extends StandardDMLAssembler<FirebirdDbms>
 		}
 		else if(skip != null)
 		{
-			sb.append(newLine).append(clauseSeperator).append("ROWS ").append(skip).append(" TO ")
-				.append(Integer.MAX_VALUE);
+			insertSkip(sb, skip.toString());
 		}
 		
 		return sb;
 	}
+	
+	/**
+	 * Inserts <code>SKIP skip</code> after the <code>SELECT</code> keyword of the query which ends at the end of
+	 * <code>sb</code>: the first one outside of parentheses and quotes, scanning back to the start of
+	 * <code>sb</code> or to the parenthesis which encloses the query.
+	 */
+	static void insertSkip(final StringBuilder sb, final String skip)
+	{
+		int select = -1;
+		int depth = 0;
+		for(int i = sb.length() - 1; i >= 0; i--)
+		{
+			final char c = sb.charAt(i);
+			if(c == '\'' || c == '"')
+			{
+				// doubled quotes inside the literal are skipped as an empty literal
+				i = sb.lastIndexOf(String.valueOf(c), i - 1);
+				if(i < 0)
+				{
+					break;
+				}
+			}
+			else if(c == ')')
+			{
+				depth++;
+			}
+			else if(c == '(')
+			{
+				if(depth == 0)
+				{
+					break;
+				}
+				depth--;
+			}
+			else if(depth == 0 && isSelectKeyword(sb, i))
+			{
+				select = i;
+			}
+		}
+		if(select < 0)
+		{
+			throw new IllegalStateException("No SELECT keyword to insert SKIP after");
+		}
+		sb.insert(select + SELECT_KEYWORD.length(), " SKIP " + skip); //$NON-NLS-1$
+	}
+	
+	private static boolean isSelectKeyword(final StringBuilder sb, final int index)
+	{
+		final int end = index + SELECT_KEYWORD.length();
+		return sb.length() > end && Character.isWhitespace(sb.charAt(end))
+			&& (index == 0 || !Character.isJavaIdentifierPart(sb.charAt(index - 1)))
+			&& sb.substring(index, end).equalsIgnoreCase(SELECT_KEYWORD);
+	}
+	
+	/**
+	 * Appends <code>identifier</code>, delimited if necessary for the server version, see
+	 * {@link FirebirdDbms#quoteIdentifier(String)}.
+	 *
+	 * @param identifier the undelimited identifier
+	 * @param sb         the builder to append to
+	 * @return <code>sb</code>
+	 */
+	public StringBuilder assembleIdentifier(final String identifier, final StringBuilder sb)
+	{
+		return sb.append(this.dbms.quoteIdentifier(identifier));
+	}
+	
+	/**
+	 * Assembles the predicate of keyset ("seek") pagination: rows after the last row of the previous page in the
+	 * order of <code>sortColumns</code>. Firebird has no row value comparison, so
+	 * <code>(a, b) &gt; (?, ?)</code> is expanded to <code>a &gt;= ? AND (a &gt; ? OR (a = ? AND b &gt; ?))</code>,
+	 * where the leading range condition lets the optimizer use an index on <code>a</code>. The parameters are the
+	 * last values expanded by {@link #keysetParameters(Object[])}.
+	 * <p>
+	 * The sort columns must be non-nullable and unique in combination.
+	 *
+	 * @param sortColumns the (delimited if necessary) sort columns
+	 * @param descending  the sort direction per column, <code>null</code> for ascending
+	 * @param sb          the builder to append to
+	 * @return <code>sb</code>
+	 */
+	public StringBuilder assembleKeysetPredicate(
+		final String[] sortColumns, final boolean[] descending,
+		final StringBuilder sb)
+	{
+		sb.append(sortColumns[0]).append(isDescending(descending, 0) ? " <= ?" : " >= ?").append(" AND (");
+		for(int i = 0; i < sortColumns.length; i++)
+		{
+			if(i > 0)
+			{
+				sb.append(" OR ");
+			}
+			sb.append('(');
+			for(int j = 0; j < i; j++)
+			{
+				sb.append(sortColumns[j]).append(" = ? AND ");
+			}
+			sb.append(sortColumns[i]).append(isDescending(descending, i) ? " < ?" : " > ?").append(')');
+		}
+		return sb.append(')');
+	}
+	
+	/**
+	 * Expands the last values of the previous page to the parameters of
+	 * {@link #assembleKeysetPredicate(String[], boolean[], StringBuilder)}.
+	 *
+	 * @param lastValues the values of the sort columns of the last row of the previous page
+	 * @return the parameters
+	 */
+	public static Object[] keysetParameters(final Object[] lastValues)
+	{
+		final Object[] params = new Object[1 + lastValues.length * (lastValues.length + 1) / 2];
+		params[0] = lastValues[0];
+		int p = 1;
+		for(int i = 0; i < lastValues.length; i++)
+		{
+			for(int j = 0; j <= i; j++)
+			{
+				params[p++] = lastValues[j];
+			}
+		}
+		return params;
+	}
+	
+	private static boolean isDescending(final boolean[] descending, final int index)
+	{
+		return descending != null && descending[index];
+	}
+	
+	/**
+	 * Assembles an <code>EXECUTE BLOCK</code> which inserts <code>rowCount</code> rows in one server call. The
+	 * values are bound as input parameters of the block, row by row in the order of <code>columns</code>.
+	 * <p>
+	 * Firebird limits the size of the parameter message and, before Firebird 4, the statement length to 64 KB, so
+	 * <code>rowCount</code> should be chosen accordingly.
+	 *
+	 * @param table       the (delimited if necessary) table name
+	 * @param columns     the (delimited if necessary) column names
+	 * @param columnTypes the Firebird data types of the columns, e.g. <code>VARCHAR(50)</code>
+	 * @param rowCount    the count of rows
+	 * @param sb          the builder to append to
+	 * @return <code>sb</code>
+	 */
+	public StringBuilder assembleInsertBlock(
+		final String table, final String[] columns, final String[] columnTypes, final int rowCount,
+		final StringBuilder sb)
+	{
+		if(columns.length == 0 || columns.length != columnTypes.length || rowCount <= 0)
+		{
+			throw new IllegalArgumentException("columns and columnTypes must be non-empty and of equal length, "
+				+ "rowCount must be positive");
+		}
+		
+		sb.append("EXECUTE BLOCK (");
+		for(int row = 0; row < rowCount; row++)
+		{
+			for(int col = 0; col < columns.length; col++)
+			{
+				if(row > 0 || col > 0)
+				{
+					sb.append(", ");
+				}
+				appendBlockParameter(sb, row, col).append(' ').append(columnTypes[col]).append(" = ?");
+			}
+		}
+		sb.append(")\nAS\nBEGIN\n");
+		
+		for(int row = 0; row < rowCount; row++)
+		{
+			sb.append("INSERT INTO ").append(table).append(" (");
+			for(int col = 0; col < columns.length; col++)
+			{
+				if(col > 0)
+				{
+					sb.append(", ");
+				}
+				sb.append(columns[col]);
+			}
+			sb.append(") VALUES (");
+			for(int col = 0; col < columns.length; col++)
+			{
+				if(col > 0)
+				{
+					sb.append(", ");
+				}
+				appendBlockParameter(sb.append(':'), row, col);
+			}
+			sb.append(");\n");
+		}
+		
+		return sb.append("END");
+	}
+	
+	private static StringBuilder appendBlockParameter(final StringBuilder sb, final int row, final int col)
+	{
+		return sb.append('P').append(row).append('_').append(col);
+	}
 }
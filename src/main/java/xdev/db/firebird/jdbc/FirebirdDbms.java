@@ -17,8 +17,12 @@
  */
 package xdev.db.firebird.jdbc;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+
 import com.xdev.jadoth.sqlengine.dbms.DbmsAdaptor;
 import com.xdev.jadoth.sqlengine.dbms.SQLExceptionParser;
+import com.xdev.jadoth.sqlengine.exceptions.SQLEngineException;
 import com.xdev.jadoth.sqlengine.internal.DatabaseGateway;
 import com.xdev.jadoth.sqlengine.internal.tables.SqlTableIdentity;
 
@@ -39,13 +43,29 @@ public class FirebirdDbms
 	protected static final int MAX_VARCHAR_LENGTH = Integer.MAX_VALUE;
 	protected static final char IDENTIFIER_DELIMITER = '"';
 	
+	/**
+	 * Maximum length in bytes of a binary literal which all supported Firebird versions accept.
+	 */
+	public static final int MAX_BINARY_LITERAL_LENGTH = 32765;
+	
+	/**
+	 * First Firebird version which supports <code>OFFSET ... FETCH ...</code>.
+	 */
+	public static final int OFFSET_FETCH_MIN_VERSION = 3;
+	
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	
+	private volatile FirebirdJDBCDataSource dataSource;
+	private volatile int maxBinaryLiteralLength = MAX_BINARY_LITERAL_LENGTH;
+	private volatile int serverMajorVersion;
+	
 	// /////////////////////////////////////////////////////////////////////////
 	// constructors //
 	// ///////////////////
 	
 	public FirebirdDbms()
 	{
-		this(new SQLExceptionParser.Body());
+		this(new FirebirdExceptionParser());
 	}
 	
 	/**
@@ -71,24 +91,133 @@ public class FirebirdDbms
 	}
 	
 	/**
-	 * HSQL does not support any means of calculating table columns selectivity as far as it is known.
+	 * Binds this adaptor to the data source which executes its maintenance statements.
+	 *
+	 * @param dataSource the data source
+	 */
+	void setDataSource(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * @return the data source this adaptor is bound to, <code>null</code> if none
+	 */
+	FirebirdJDBCDataSource getDataSource()
+	{
+		return this.dataSource;
+	}
+	
+	/**
+	 * @return the major version of the Firebird server, <code>0</code> if not known yet
+	 */
+	public int getServerMajorVersion()
+	{
+		return this.serverMajorVersion;
+	}
+	
+	/**
+	 * Sets the major version of the Firebird server, which selects version dependent syntax and the
+	 * {@link FirebirdSyntax#forVersion(int) keywords} of the version. It is detected on the first connection of a
+	 * {@link FirebirdJDBCDataSource}.
+	 *
+	 * @param serverMajorVersion the major version of the Firebird server
+	 */
+	public void setServerMajorVersion(final int serverMajorVersion)
+	{
+		this.serverMajorVersion = serverMajorVersion;
+		this.setSyntax(FirebirdSyntax.forVersion(serverMajorVersion));
+	}
+	
+	/**
+	 * Delimits the identifier if it is a reserved word of the {@link #getServerMajorVersion() server version}, no
+	 * regular identifier or not in upper case.
+	 *
+	 * @param identifier the identifier
+	 * @return the identifier, delimited if necessary
+	 * @see FirebirdIdentifierQuoter
+	 */
+	public String quoteIdentifier(final String identifier)
+	{
+		return FirebirdIdentifierQuoter.forVersion(this.serverMajorVersion).quote(identifier);
+	}
+	
+	/**
+	 * Recomputes the statistics of all active indices of the table with <code>SET STATISTICS INDEX</code>.
 	 *
 	 * @param table the table
-	 * @return the object
+	 * @return the {@link FirebirdSelectivityReport} with the selectivity before and after
 	 */
 	@Override
 	public Object updateSelectivity(final SqlTableIdentity table)
 	{
-		return null;
+		return this.maintainIndices(FirebirdIndexMaintenance.unqualify(table.sql().name), false);
+	}
+	
+	/**
+	 * @return the maximum length of a single binary literal
+	 */
+	public int getMaxBinaryLiteralLength()
+	{
+		return this.maxBinaryLiteralLength;
 	}
 	
 	/**
+	 * @param maxBinaryLiteralLength the maximum length of a single binary literal, between 1 and
+	 *                               {@link #MAX_BINARY_LITERAL_LENGTH}
+	 */
+	public void setMaxBinaryLiteralLength(final int maxBinaryLiteralLength)
+	{
+		if(maxBinaryLiteralLength < 1 || maxBinaryLiteralLength > MAX_BINARY_LITERAL_LENGTH)
+		{
+			throw new IllegalArgumentException("maxBinaryLiteralLength must be between 1 and "
+				+ MAX_BINARY_LITERAL_LENGTH);
+		}
+		this.maxBinaryLiteralLength = maxBinaryLiteralLength;
+	}
+	
+	/**
+	 * Assembles <code>bytes</code> as Firebird binary string literal <code>X'...'</code>.
+	 * <p>
+	 * Values longer than {@link #getMaxBinaryLiteralLength()} are split into literals of that length which are
+	 * concatenated to a BLOB: <code>CAST(X'...' AS BLOB SUB_TYPE 0) || X'...'</code>. The statement still has
+	 * to fit into the maximum statement length of the server, large values are better bound as parameters.
+	 *
 	 * @see DbmsAdaptor#assembleTransformBytes(byte[], StringBuilder)
 	 */
 	@Override
 	public StringBuilder assembleTransformBytes(final byte[] bytes, final StringBuilder sb)
 	{
-		return null;
+		final int chunkLength = this.maxBinaryLiteralLength;
+		if(bytes.length <= chunkLength)
+		{
+			sb.ensureCapacity(sb.length() + bytes.length * 2 + 3);
+			return appendBinaryLiteral(bytes, 0, bytes.length, sb);
+		}
+		
+		final int chunks = (bytes.length + chunkLength - 1) / chunkLength;
+		sb.ensureCapacity(sb.length() + bytes.length * 2 + chunks * 7 + 25);
+		sb.append("CAST("); //$NON-NLS-1$
+		appendBinaryLiteral(bytes, 0, chunkLength, sb).append(" AS BLOB SUB_TYPE 0)"); //$NON-NLS-1$
+		for(int offset = chunkLength; offset < bytes.length; offset += chunkLength)
+		{
+			sb.append(" || "); //$NON-NLS-1$
+			appendBinaryLiteral(bytes, offset, Math.min(offset + chunkLength, bytes.length), sb);
+		}
+		return sb;
+	}
+	
+	private static StringBuilder appendBinaryLiteral(
+		final byte[] bytes, final int start, final int end,
+		final StringBuilder sb)
+	{
+		sb.append("X'");
+		for(int i = start; i < end; i++)
+		{
+			final byte b = bytes[i];
+			sb.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+		}
+		return sb.append('\'');
 	}
 	
 	/**
@@ -97,7 +226,7 @@ public class FirebirdDbms
 	@Override
 	public FirebirdRetrospectionAccessor getRetrospectionAccessor()
 	{
-		throw new RuntimeException("HSQL Retrospection not implemented yet!");
+		return super.getRetrospectionAccessor();
 	}
 	
 	/**
@@ -109,12 +238,40 @@ public class FirebirdDbms
 	}
 	
 	/**
+	 * Deactivates and reactivates all active indices of the table. Indices which enforce constraints can't be
+	 * deactivated, their statistics are recomputed instead.
+	 *
+	 * @return the {@link FirebirdSelectivityReport} with the selectivity before and after
 	 * @see com.xdev.jadoth.sqlengine.dbms.DbmsAdaptor#rebuildAllIndices(java.lang.String)
 	 */
 	@Override
 	public Object rebuildAllIndices(final String fullQualifiedTableName)
 	{
-		return null;
+		return this.maintainIndices(FirebirdIndexMaintenance.unqualify(fullQualifiedTableName), true);
+	}
+	
+	private FirebirdSelectivityReport maintainIndices(final String tableName, final boolean rebuild)
+	{
+		final FirebirdJDBCDataSource dataSource = this.dataSource;
+		if(dataSource == null)
+		{
+			throw new SQLEngineException("Index maintenance requires a FirebirdJDBCDataSource");
+		}
+		
+		try(Connection connection = dataSource.borrowConnection())
+		{
+			return rebuild ? FirebirdIndexMaintenance.rebuildIndices(connection, tableName)
+				: FirebirdIndexMaintenance.updateSelectivity(connection, tableName);
+		}
+		catch(final SQLException e)
+		{
+			throw new SQLEngineException(e);
+		}
+		finally
+		{
+			// cached statements keep the plans of the old selectivity
+			dataSource.invalidateStatementCaches();
+		}
 	}
 	
 	@Override
@@ -0,0 +1,50 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+/**
+ * Classification of Firebird errors by {@link FirebirdExceptionParser#classify(Throwable)}.
+ */
+public enum FirebirdErrorCategory
+{
+	/**
+	 * The connection was lost or the server is shutting down. The unit of work can be retried on a new
+	 * connection.
+	 */
+	RETRYABLE,
+	
+	/**
+	 * The transaction lost against a concurrent transaction: lock conflict, deadlock, update conflict or lock
+	 * timeout. The transaction has to be rolled back, then the unit of work can be retried.
+	 */
+	CONFLICT,
+	
+	/**
+	 * Any other error, e.g. a syntax error or a constraint violation. Retrying won't help.
+	 */
+	FATAL;
+	
+	/**
+	 * @return <code>true</code> if a unit of work which failed with an error of this category may succeed when it
+	 *         is retried
+	 */
+	public boolean isTransient()
+	{
+		return this != FATAL;
+	}
+}
@@ -18,16 +18,100 @@
 package xdev.db.firebird.jdbc;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import com.xdev.jadoth.sqlengine.dbms.SQLExceptionParser;
 import com.xdev.jadoth.sqlengine.exceptions.SQLEngineException;
 
 
+/**
+ * Translates the exceptions of Jaybird into {@link FirebirdSQLEngineException}s, classified by the GDS codes of
+ * the status vector, which Jaybird reports as error codes of the exception and its chained exceptions.
+ */
 public class FirebirdExceptionParser implements SQLExceptionParser
 {
+	/**
+	 * isc_lock_conflict, isc_deadlock, isc_update_conflict, isc_concurrent_transaction and isc_lock_timeout.
+	 */
+	private static final Set<Integer> CONFLICT_CODES = new HashSet<>(Arrays.asList(335544345, 335544336,
+		335544451, 335544878, 335544510));
+	
+	/**
+	 * isc_network_error, isc_net_read_err, isc_net_write_err, isc_lost_db_connection, isc_conn_lost and
+	 * isc_att_shutdown.
+	 */
+	private static final Set<Integer> RETRYABLE_CODES = new HashSet<>(Arrays.asList(335544721, 335544726,
+		335544727, 335544741, 335544648, 335544856));
+	
+	private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001"; //$NON-NLS-1$
+	private static final String SQLSTATE_CONNECTION_EXCEPTION = "08"; //$NON-NLS-1$
+	
 	@Override
 	public SQLEngineException parseSQLException(SQLException e)
 	{
-		return new SQLEngineException(e);
+		return new FirebirdSQLEngineException(e);
+	}
+	
+	/**
+	 * Classifies an error by the GDS codes and SQL states of all {@link SQLException}s in the cause chain of
+	 * <code>t</code>. Conflicts take precedence over connection errors.
+	 *
+	 * @param t an exception
+	 * @return the category, {@link FirebirdErrorCategory#FATAL} if <code>t</code> contains no known error
+	 */
+	public static FirebirdErrorCategory classify(Throwable t)
+	{
+		FirebirdErrorCategory category = FirebirdErrorCategory.FATAL;
+		for(int depth = 0; t != null && depth < 16; t = t.getCause(), depth++)
+		{
+			if(t instanceof FirebirdSQLEngineException)
+			{
+				return ((FirebirdSQLEngineException)t).getCategory();
+			}
+			if(t instanceof SQLException)
+			{
+				for(SQLException e = (SQLException)t; e != null; e = e.getNextException())
+				{
+					String state = e.getSQLState();
+					if(CONFLICT_CODES.contains(e.getErrorCode()) || SQLSTATE_SERIALIZATION_FAILURE.equals(state))
+					{
+						return FirebirdErrorCategory.CONFLICT;
+					}
+					if(RETRYABLE_CODES.contains(e.getErrorCode())
+						|| (state != null && state.startsWith(SQLSTATE_CONNECTION_EXCEPTION)))
+					{
+						category = FirebirdErrorCategory.RETRYABLE;
+					}
+				}
+			}
+		}
+		return category;
+	}
+	
+	/**
+	 * Searches the cause chain of <code>t</code> for a {@link SQLException} with an error code. Jaybird reports
+	 * the GDS code of the Firebird error as error code.
+	 *
+	 * @param t an exception
+	 * @return the GDS code or 0 if there is none
+	 */
+	public static int getErrorCode(Throwable t)
+	{
+		for(int depth = 0; t != null && depth < 16; t = t.getCause(), depth++)
+		{
+			if(t instanceof SQLException)
+			{
+				for(SQLException e = (SQLException)t; e != null; e = e.getNextException())
+				{
+					if(e.getErrorCode() != 0)
+					{
+						return e.getErrorCode();
+					}
+				}
+			}
+		}
+		return 0;
 	}
 }
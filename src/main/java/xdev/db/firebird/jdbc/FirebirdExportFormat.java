@@ -0,0 +1,270 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+
+/**
+ * File formats of the {@link FirebirdTableExporter}.
+ */
+public enum FirebirdExportFormat
+{
+	/**
+	 * RFC 4180 CSV in UTF-8 with a header line. <code>null</code> is written as empty field, binary values as
+	 * hex digits.
+	 */
+	CSV("csv") //$NON-NLS-1$
+	{
+		@Override
+		RowWriter createWriter(final OutputStream out, final String[] columns) throws IOException
+		{
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+			final RowWriter rowWriter = new RowWriter()
+			{
+				@Override
+				public void write(final Object[] row) throws IOException
+				{
+					for(int i = 0; i < row.length; i++)
+					{
+						if(i > 0)
+						{
+							writer.write(',');
+						}
+						if(row[i] != null)
+						{
+							writeField(writer, row[i] instanceof byte[] ? hex((byte[])row[i]) : row[i]
+								.toString());
+						}
+					}
+					writer.write("\r\n"); //$NON-NLS-1$
+				}
+				
+				@Override
+				public void finish() throws IOException
+				{
+					writer.flush();
+				}
+			};
+			rowWriter.write(columns);
+			return rowWriter;
+		}
+	},
+	
+	/**
+	 * Compact binary format: the magic <code>FBX1</code>, the column count and names, then per row and column
+	 * a type tag followed by the value in {@link DataOutputStream} encoding. Strings, decimals and binary values
+	 * are length prefixed, temporal values are written as epoch milliseconds.
+	 */
+	BINARY("fbx") //$NON-NLS-1$
+	{
+		@Override
+		RowWriter createWriter(final OutputStream out, final String[] columns) throws IOException
+		{
+			final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out,
+				BUFFER_SIZE));
+			data.writeInt(BINARY_MAGIC);
+			data.writeInt(columns.length);
+			for(final String column : columns)
+			{
+				writeBytes(data, column.getBytes(StandardCharsets.UTF_8));
+			}
+			return new RowWriter()
+			{
+				@Override
+				public void write(final Object[] row) throws IOException
+				{
+					for(final Object value : row)
+					{
+						writeValue(data, value);
+					}
+				}
+				
+				@Override
+				public void finish() throws IOException
+				{
+					data.flush();
+				}
+			};
+		}
+	};
+	
+	/**
+	 * Writes the rows of one partition file.
+	 */
+	interface RowWriter
+	{
+		void write(Object[] row) throws IOException;
+		
+		
+		void finish() throws IOException;
+	}
+	
+	// type tags of the binary format
+	static final byte TAG_NULL = 0;
+	static final byte TAG_LONG = 1;
+	static final byte TAG_INT = 2;
+	static final byte TAG_SHORT = 3;
+	static final byte TAG_DOUBLE = 4;
+	static final byte TAG_FLOAT = 5;
+	static final byte TAG_DECIMAL = 6;
+	static final byte TAG_STRING = 7;
+	static final byte TAG_BYTES = 8;
+	static final byte TAG_TIMESTAMP = 9;
+	static final byte TAG_BOOLEAN = 10;
+	
+	static final int BINARY_MAGIC = 0x46425831;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	
+	private final String fileExtension;
+	
+	private FirebirdExportFormat(final String fileExtension)
+	{
+		this.fileExtension = fileExtension;
+	}
+	
+	/**
+	 * @return the extension of the exported files, without dot
+	 */
+	public String getFileExtension()
+	{
+		return this.fileExtension;
+	}
+	
+	/**
+	 * @param out     the stream of the file, closed by the caller
+	 * @param columns the column names
+	 * @return the writer of the rows
+	 * @throws IOException if the header can't be written
+	 */
+	abstract RowWriter createWriter(OutputStream out, String[] columns) throws IOException;
+	
+	private static void writeField(final Writer writer, final String value) throws IOException
+	{
+		boolean quote = false;
+		for(int i = 0; i < value.length() && !quote; i++)
+		{
+			final char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if(!quote)
+		{
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		for(int i = 0; i < value.length(); i++)
+		{
+			final char c = value.charAt(i);
+			if(c == '"')
+			{
+				writer.write('"');
+			}
+			writer.write(c);
+		}
+		writer.write('"');
+	}
+	
+	private static String hex(final byte[] bytes)
+	{
+		final char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++)
+		{
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+	
+	private static void writeValue(final DataOutputStream data, final Object value) throws IOException
+	{
+		if(value == null)
+		{
+			data.writeByte(TAG_NULL);
+		}
+		else if(value instanceof Long)
+		{
+			data.writeByte(TAG_LONG);
+			data.writeLong((Long)value);
+		}
+		else if(value instanceof Integer)
+		{
+			data.writeByte(TAG_INT);
+			data.writeInt((Integer)value);
+		}
+		else if(value instanceof Short)
+		{
+			data.writeByte(TAG_SHORT);
+			data.writeShort((Short)value);
+		}
+		else if(value instanceof Double)
+		{
+			data.writeByte(TAG_DOUBLE);
+			data.writeDouble((Double)value);
+		}
+		else if(value instanceof Float)
+		{
+			data.writeByte(TAG_FLOAT);
+			data.writeFloat((Float)value);
+		}
+		else if(value instanceof BigDecimal)
+		{
+			data.writeByte(TAG_DECIMAL);
+			writeBytes(data, ((BigDecimal)value).toString().getBytes(StandardCharsets.US_ASCII));
+		}
+		else if(value instanceof byte[])
+		{
+			data.writeByte(TAG_BYTES);
+			writeBytes(data, (byte[])value);
+		}
+		else if(value instanceof Date)
+		{
+			data.writeByte(TAG_TIMESTAMP);
+			data.writeLong(((Date)value).getTime());
+		}
+		else if(value instanceof Boolean)
+		{
+			data.writeByte(TAG_BOOLEAN);
+			data.writeBoolean((Boolean)value);
+		}
+		else
+		{
+			data.writeByte(TAG_STRING);
+			writeBytes(data, value.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+	
+	private static void writeBytes(final DataOutputStream data, final byte[] bytes) throws IOException
+	{
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+}
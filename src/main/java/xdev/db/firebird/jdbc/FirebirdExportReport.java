@@ -0,0 +1,93 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Result of {@link FirebirdTableExporter#export(String, Path)}.
+ */
+public class FirebirdExportReport
+{
+	private final String tableName;
+	private final List<Path> files;
+	private final long rowCount;
+	private final boolean consistent;
+	private final long elapsedNanos;
+	
+	FirebirdExportReport(
+		final String tableName, final List<Path> files, final long rowCount, final boolean consistent,
+		final long elapsedNanos)
+	{
+		this.tableName = tableName;
+		this.files = Collections.unmodifiableList(files);
+		this.rowCount = rowCount;
+		this.consistent = consistent;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public String getTableName()
+	{
+		return this.tableName;
+	}
+	
+	/**
+	 * @return the files of the partitions, in key order
+	 */
+	public List<Path> getFiles()
+	{
+		return this.files;
+	}
+	
+	/**
+	 * @return the count of exported rows
+	 */
+	public long getRowCount()
+	{
+		return this.rowCount;
+	}
+	
+	/**
+	 * @return <code>true</code> if all partitions were read from the same snapshot
+	 */
+	public boolean isConsistent()
+	{
+		return this.consistent;
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the export
+	 */
+	public long getElapsedTime(final TimeUnit unit)
+	{
+		return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Exported " + this.rowCount + " rows of " + this.tableName + " to " + this.files.size()
+			+ " files in " + this.getElapsedTime(TimeUnit.MILLISECONDS) + " ms"
+			+ (this.consistent ? "" : " (partitions read from different snapshots)");
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Delimits identifiers only where Firebird requires it: if they are reserved words of the server version or no
+ * regular upper case identifiers, i.e. don't start with an upper case letter or contain other characters than
+ * upper case letters, digits, <code>_</code> and <code>$</code>. Firebird stores undelimited identifiers in upper
+ * case, so any lower case letter has to be delimited to keep the exact name. Regular upper case identifiers are
+ * left as is, which resolves them to the same name and assembles equal statements to equal text.
+ * <p>
+ * Results are memoized per process and version, up to {@value #MAX_CACHED_IDENTIFIERS} identifiers per version.
+ */
+public final class FirebirdIdentifierQuoter
+{
+	/**
+	 * Maximum count of memoized identifiers per version, further ones are checked on every call.
+	 */
+	public static final int MAX_CACHED_IDENTIFIERS = 10000;
+	
+	private static final ConcurrentMap<Integer, FirebirdIdentifierQuoter> INSTANCES = new ConcurrentHashMap<>();
+	
+	private final int majorVersion;
+	private final ConcurrentMap<String, String> cache = new ConcurrentHashMap<>();
+	
+	private FirebirdIdentifierQuoter(final int majorVersion)
+	{
+		this.majorVersion = majorVersion;
+	}
+	
+	/**
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 * @return the shared quoter of the version
+	 */
+	public static FirebirdIdentifierQuoter forVersion(final int majorVersion)
+	{
+		return INSTANCES.computeIfAbsent(majorVersion, FirebirdIdentifierQuoter::new);
+	}
+	
+	/**
+	 * @param identifier the identifier
+	 * @return <code>identifier</code>, delimited by {@link FirebirdDbms#IDENTIFIER_DELIMITER} and with embedded
+	 *         delimiters doubled if necessary
+	 */
+	public String quote(final String identifier)
+	{
+		final String cached = this.cache.get(identifier);
+		if(cached != null)
+		{
+			return cached;
+		}
+		
+		final String quoted = this.requiresQuoting(identifier) ? FirebirdIndexMaintenance.quote(identifier)
+			: identifier;
+		if(this.cache.size() < MAX_CACHED_IDENTIFIERS)
+		{
+			this.cache.putIfAbsent(identifier, quoted);
+		}
+		return quoted;
+	}
+	
+	/**
+	 * @param identifier the identifier
+	 * @return <code>true</code> if <code>identifier</code> must be delimited
+	 */
+	public boolean requiresQuoting(final String identifier)
+	{
+		if(identifier.isEmpty() || !isUpperCaseLetter(identifier.charAt(0)))
+		{
+			return true;
+		}
+		for(int i = 1; i < identifier.length(); i++)
+		{
+			final char c = identifier.charAt(i);
+			if(!isUpperCaseLetter(c) && !(c >= '0' && c <= '9') && c != '_' && c != '$')
+			{
+				return true;
+			}
+		}
+		return FirebirdKeywords.isReserved(identifier, this.majorVersion);
+	}
+	
+	private static boolean isUpperCaseLetter(final char c)
+	{
+		return c >= 'A' && c <= 'Z';
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+/**
+ * Write strategies of the {@link FirebirdTableImporter}.
+ */
+public enum FirebirdImportMode
+{
+	/**
+	 * Inserts the rows with <code>EXECUTE BLOCK</code> statements of many rows each, see
+	 * {@link FirebirdDMLAssembler#assembleInsertBlock(String, String[], String[], int, StringBuilder)}.
+	 */
+	EXECUTE_BLOCK,
+	
+	/**
+	 * Writes each batch into a fixed-width file, which the server reads as external table with one
+	 * <code>INSERT ... SELECT</code>. Fastest, but the file directory must be accessible by the server and
+	 * allowed by <code>ExternalFileAccess</code> in <code>firebird.conf</code>. Binary values aren't supported
+	 * and trailing spaces of strings are trimmed.
+	 */
+	EXTERNAL_TABLE
+}
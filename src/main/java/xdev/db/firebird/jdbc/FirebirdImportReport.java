@@ -0,0 +1,125 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Result of an import of the {@link FirebirdTableImporter}.
+ */
+public class FirebirdImportReport
+{
+	private final String tableName;
+	private final long rowCount;
+	private final boolean canceled;
+	private final List<String> rebuiltIndices;
+	private final List<String> suspendedTriggers;
+	private final List<String> inactiveIndices;
+	private final List<String> inactiveTriggers;
+	private final long elapsedNanos;
+	
+	FirebirdImportReport(
+		final String tableName, final long rowCount, final boolean canceled, final List<String> rebuiltIndices,
+		final List<String> suspendedTriggers, final List<String> inactiveIndices,
+		final List<String> inactiveTriggers, final long elapsedNanos)
+	{
+		this.tableName = tableName;
+		this.rowCount = rowCount;
+		this.canceled = canceled;
+		this.rebuiltIndices = Collections.unmodifiableList(rebuiltIndices);
+		this.suspendedTriggers = Collections.unmodifiableList(suspendedTriggers);
+		this.inactiveIndices = Collections.unmodifiableList(inactiveIndices);
+		this.inactiveTriggers = Collections.unmodifiableList(inactiveTriggers);
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public String getTableName()
+	{
+		return this.tableName;
+	}
+	
+	/**
+	 * @return the count of committed rows
+	 */
+	public long getRowCount()
+	{
+		return this.rowCount;
+	}
+	
+	/**
+	 * @return <code>true</code> if the import was canceled by the progress monitor, the rows of the committed
+	 *         batches remain in the table
+	 */
+	public boolean isCanceled()
+	{
+		return this.canceled;
+	}
+	
+	/**
+	 * @return the indices which were deactivated during the load and rebuilt afterwards
+	 */
+	public List<String> getRebuiltIndices()
+	{
+		return this.rebuiltIndices;
+	}
+	
+	/**
+	 * @return the triggers which were deactivated during the load
+	 */
+	public List<String> getSuspendedTriggers()
+	{
+		return this.suspendedTriggers;
+	}
+	
+	/**
+	 * @return the indices which were deactivated during the load and couldn't be reactivated, they have to be
+	 *         activated manually with <code>ALTER INDEX ... ACTIVE</code>
+	 */
+	public List<String> getInactiveIndices()
+	{
+		return this.inactiveIndices;
+	}
+	
+	/**
+	 * @return the triggers which were deactivated during the load and couldn't be reactivated, they have to be
+	 *         activated manually with <code>ALTER TRIGGER ... ACTIVE</code>
+	 */
+	public List<String> getInactiveTriggers()
+	{
+		return this.inactiveTriggers;
+	}
+	
+	/**
+	 * @param unit the unit of the result
+	 * @return the duration of the import, including the index rebuild
+	 */
+	public long getElapsedTime(final TimeUnit unit)
+	{
+		return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Imported " + this.rowCount + " rows into " + this.tableName + " in "
+			+ this.getElapsedTime(TimeUnit.MILLISECONDS) + " ms" + (this.canceled ? " (canceled)" : "");
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Recomputation of index statistics and rebuild of indices with Firebird DDL.
+ */
+public final class FirebirdIndexMaintenance
+{
+	private static final String SELECT_INDICES = "SELECT TRIM(I.RDB$INDEX_NAME), I.RDB$STATISTICS," //$NON-NLS-1$
+		+ " (SELECT COUNT(*) FROM RDB$RELATION_CONSTRAINTS RC" //$NON-NLS-1$
+		+ " WHERE RC.RDB$INDEX_NAME = I.RDB$INDEX_NAME)" //$NON-NLS-1$
+		+ " FROM RDB$INDICES I WHERE I.RDB$RELATION_NAME = ?" //$NON-NLS-1$
+		+ " AND COALESCE(I.RDB$INDEX_INACTIVE, 0) = 0" //$NON-NLS-1$
+		+ " ORDER BY I.RDB$INDEX_NAME"; //$NON-NLS-1$
+	
+	static final String SELECT_UNIQUE_SELECTIVITY = "SELECT MIN(RDB$STATISTICS) FROM RDB$INDICES" //$NON-NLS-1$
+		+ " WHERE RDB$RELATION_NAME = ? AND RDB$UNIQUE_FLAG = 1 AND RDB$STATISTICS > 0" //$NON-NLS-1$
+		+ " AND COALESCE(RDB$INDEX_INACTIVE, 0) = 0"; //$NON-NLS-1$
+	
+	private FirebirdIndexMaintenance()
+	{
+	}
+	
+	/**
+	 * Recomputes the statistics of all active indices of a table with <code>SET STATISTICS INDEX</code>.
+	 *
+	 * @param connection the connection, in auto commit mode
+	 * @param tableName  the unquoted table name as stored in the system tables
+	 * @return the selectivity of the indices before and after
+	 * @throws SQLException if the statistics can't be recomputed
+	 */
+	public static FirebirdSelectivityReport updateSelectivity(final Connection connection, final String tableName)
+		throws SQLException
+	{
+		final Map<String, Double> before = readSelectivity(connection, tableName, false);
+		try(Statement statement = connection.createStatement())
+		{
+			for(final String index : before.keySet())
+			{
+				statement.execute("SET STATISTICS INDEX " + quote(index)); //$NON-NLS-1$
+			}
+		}
+		return new FirebirdSelectivityReport(tableName, before, readSelectivity(connection, tableName, false));
+	}
+	
+	/**
+	 * Rebuilds all active indices of a table by deactivating and reactivating them, which also recomputes their
+	 * statistics. Indices which enforce constraints can't be deactivated, their statistics are only recomputed.
+	 *
+	 * @param connection the connection, in auto commit mode
+	 * @param tableName  the unquoted table name as stored in the system tables
+	 * @return the selectivity of the indices before and after
+	 * @throws SQLException if an index can't be rebuilt
+	 */
+	public static FirebirdSelectivityReport rebuildIndices(final Connection connection, final String tableName)
+		throws SQLException
+	{
+		final Map<String, Double> before = readSelectivity(connection, tableName, false);
+		final Map<String, Double> rebuildable = readSelectivity(connection, tableName, true);
+		try(Statement statement = connection.createStatement())
+		{
+			for(final String index : before.keySet())
+			{
+				if(rebuildable.containsKey(index))
+				{
+					statement.execute("ALTER INDEX " + quote(index) + " INACTIVE"); //$NON-NLS-1$ //$NON-NLS-2$
+					statement.execute("ALTER INDEX " + quote(index) + " ACTIVE"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				else
+				{
+					statement.execute("SET STATISTICS INDEX " + quote(index)); //$NON-NLS-1$
+				}
+			}
+		}
+		return new FirebirdSelectivityReport(tableName, before, readSelectivity(connection, tableName, false));
+	}
+	
+	/**
+	 * Deactivates all active indices of a table which don't enforce constraints, e.g. before a bulk load.
+	 *
+	 * @param connection the connection, in auto commit mode
+	 * @param tableName  the unquoted table name as stored in the system tables
+	 * @return the names of the deactivated indices
+	 * @throws SQLException if an index can't be deactivated
+	 * @see #activateIndices(Connection, List)
+	 */
+	public static List<String> deactivateIndices(final Connection connection, final String tableName)
+		throws SQLException
+	{
+		final List<String> indices = new ArrayList<>(readSelectivity(connection, tableName, true).keySet());
+		try(Statement statement = connection.createStatement())
+		{
+			for(final String index : indices)
+			{
+				statement.execute("ALTER INDEX " + quote(index) + " INACTIVE"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		return indices;
+	}
+	
+	/**
+	 * Activates indices, which rebuilds them and recomputes their statistics.
+	 *
+	 * @param connection the connection, in auto commit mode
+	 * @param indices    the index names
+	 * @throws SQLException if an index can't be activated
+	 */
+	public static void activateIndices(final Connection connection, final List<String> indices)
+		throws SQLException
+	{
+		try(Statement statement = connection.createStatement())
+		{
+			for(final String index : indices)
+			{
+				statement.execute("ALTER INDEX " + quote(index) + " ACTIVE"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+	
+	/**
+	 * Estimates the row count of a table from the selectivity of a unique index, which is
+	 * <code>1 / row count</code> at the time the statistics were computed.
+	 *
+	 * @param connection the connection
+	 * @param tableName  the unquoted table name as stored in the system tables
+	 * @return the estimated row count or <code>null</code> if the table has no unique index with statistics
+	 * @throws SQLException if the system tables can't be read
+	 */
+	public static Long estimateRowCount(final Connection connection, final String tableName) throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_UNIQUE_SELECTIVITY))
+		{
+			statement.setString(1, tableName);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				if(!resultSet.next())
+				{
+					return null;
+				}
+				final double selectivity = resultSet.getDouble(1);
+				return resultSet.wasNull() ? null : Math.round(1 / selectivity);
+			}
+		}
+	}
+	
+	/**
+	 * @param withoutConstraints if only indices which don't enforce constraints are read
+	 * @return the selectivity per index name
+	 */
+	static Map<String, Double> readSelectivity(
+		final Connection connection, final String tableName,
+		final boolean withoutConstraints) throws SQLException
+	{
+		final Map<String, Double> selectivity = new LinkedHashMap<>();
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_INDICES))
+		{
+			statement.setString(1, tableName);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				while(resultSet.next())
+				{
+					if(!withoutConstraints || resultSet.getInt(3) == 0)
+					{
+						selectivity.put(resultSet.getString(1), resultSet.getDouble(2));
+					}
+				}
+			}
+		}
+		return selectivity;
+	}
+	
+	/**
+	 * Strips the qualifier and delimiters of a table name, Firebird has no schemas.
+	 *
+	 * @param fullQualifiedTableName the table name, optionally qualified and delimited
+	 * @return the table name as stored in the system tables
+	 */
+	static String unqualify(final String fullQualifiedTableName)
+	{
+		final char delimiter = FirebirdDbms.IDENTIFIER_DELIMITER;
+		final String qualified = fullQualifiedTableName.trim();
+		int start = 0;
+		boolean delimited = false;
+		for(int i = 0; i < qualified.length(); i++)
+		{
+			final char c = qualified.charAt(i);
+			if(c == delimiter)
+			{
+				delimited = !delimited;
+			}
+			else if(c == '.' && !delimited)
+			{
+				start = i + 1;
+			}
+		}
+		
+		final String name = qualified.substring(start);
+		if(name.length() > 1 && name.charAt(0) == delimiter && name.charAt(name.length() - 1) == delimiter)
+		{
+			return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+		}
+		return name.toUpperCase(Locale.ROOT);
+	}
+	
+	static String quote(final String identifier)
+	{
+		final char delimiter = FirebirdDbms.IDENTIFIER_DELIMITER;
+		return delimiter + identifier.replace("\"", "\"\"") + delimiter;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+
+/**
+ * Receives the timings of the statements and connections of a {@link FirebirdJDBCDataSource}.
+ * <p>
+ * The callbacks are invoked synchronously on the executing thread, so implementations must be thread safe and
+ * must return quickly. {@link FirebirdMetrics} is the in-memory implementation.
+ *
+ * @see FirebirdJDBCDataSource#setInstrumentation(FirebirdInstrumentation)
+ */
+public interface FirebirdInstrumentation
+{
+	/**
+	 * Records nothing.
+	 */
+	public static final FirebirdInstrumentation NONE = new FirebirdInstrumentation()
+	{
+		@Override
+		public void connectionAcquired(final long nanos)
+		{
+		}
+		
+		
+		@Override
+		public void statementExecuted(final String sql, final long nanos, final long affectedRows)
+		{
+		}
+		
+		
+		@Override
+		public void statementFailed(final String sql, final long nanos, final Throwable error)
+		{
+		}
+		
+		
+		@Override
+		public void rowsFetched(final String sql, final long rows)
+		{
+		}
+	};
+	
+	
+	/**
+	 * @param nanos the time it took to acquire the connection, from the pool or the server
+	 */
+	public void connectionAcquired(long nanos);
+	
+	
+	/**
+	 * @param sql          the statement
+	 * @param nanos        the execution time
+	 * @param affectedRows the count of affected rows or -1 for queries
+	 */
+	public void statementExecuted(String sql, long nanos, long affectedRows);
+	
+	
+	/**
+	 * @param sql   the statement
+	 * @param nanos the time until the statement failed
+	 * @param error the error, see {@link FirebirdExceptionParser#getErrorCode(Throwable)}
+	 */
+	public void statementFailed(String sql, long nanos, Throwable error);
+	
+	
+	/**
+	 * Called by the adapter's cursors once the rows of a query have been read.
+	 *
+	 * @param sql  the query
+	 * @param rows the count of fetched rows
+	 */
+	public void rowsFetched(String sql, long rows);
+}
@@ -17,29 +17,396 @@
  */
 package xdev.db.firebird.jdbc;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.sql.Clob;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import xdev.db.DBException;
 import xdev.db.Result;
+import xdev.db.WriteResult;
 import xdev.db.jdbc.JDBCConnection;
 
+import com.xdev.jadoth.sqlengine.SELECT;
+
 
 public class FirebirdJDBCConnection extends JDBCConnection<FirebirdJDBCDataSource, FirebirdDbms>
 {
+	private static final int CLOB_READ_BUFFER_SIZE = 8192;
+	
+	/**
+	 * <code>SELECT columns FROM table [ORDER BY ...]</code> without expressions in the select list.
+	 */
+	private static final Pattern SINGLE_TABLE_SELECT = Pattern.compile(
+		"\\s*SELECT\\s+(?!(?:DISTINCT|FIRST|SKIP)\\s)[\\w$\".,*\\s]+?\\s+FROM\\s+(\"[^\"]+\"|[A-Z][\\w$]*)"
+			+ "(?:\\s+ORDER\\s+BY\\s+[\\w$\".,\\s]+)?\\s*",
+		Pattern.CASE_INSENSITIVE);
+	
+	/**
+	 * Statements which change the metadata prepared statements depend on, including <code>SET STATISTICS</code>
+	 * which changes their plans.
+	 */
+	private static final Pattern DDL = Pattern.compile(
+		"\\s*(?:CREATE|ALTER|DROP|RECREATE|COMMENT|GRANT|REVOKE|DECLARE|SET\\s+(?:STATISTICS|GENERATOR))\\s",
+		Pattern.CASE_INSENSITIVE);
+	
+	private static final String SELECT_EXISTING_TABLES =
+		"SELECT TRIM(RDB$RELATION_NAME) FROM RDB$RELATIONS WHERE RDB$RELATION_NAME IN "; //$NON-NLS-1$
+	
+	/**
+	 * Firebird limits the members of an <code>IN</code> list to 1500.
+	 */
+	private static final int MAX_IN_LIST = 1500;
+	
+	/**
+	 * Firebird before version 4 limits the statement length to 64 KB, measured in UTF-8 bytes.
+	 */
+	private static final int MAX_DDL_BLOCK_LENGTH = 60000;
+	
+	/**
+	 * UTF-8 length of <code>EXECUTE BLOCK AS BEGIN\n</code> and <code>END</code>.
+	 */
+	private static final int DDL_BLOCK_BYTES = 26;
+	
+	/**
+	 * UTF-8 length of <code>EXECUTE STATEMENT '</code> and <code>';\n</code>.
+	 */
+	private static final int DDL_ENTRY_BYTES = 22;
+	
+	private static final String SELECT_SERVER_TIME = "SELECT CURRENT_TIMESTAMP FROM RDB$DATABASE"; //$NON-NLS-1$
+	
+	/**
+	 * Profile of the current {@link #query(FirebirdTransactionProfile, String, Object...)} or
+	 * {@link #write(FirebirdTransactionProfile, String, boolean, Object...)} call.
+	 */
+	private final ThreadLocal<FirebirdTransactionProfile> statementProfile = new ThreadLocal<>();
+	
+	/**
+	 * Readers of large {@link Clob} parameters handed to the driver, closed after the statement was executed.
+	 */
+	private final ThreadLocal<List<Reader>> streamedClobs = ThreadLocal.withInitial(ArrayList::new);
+	
+	private volatile FirebirdTransactionProfile transactionProfile;
+	
+	private final FirebirdAsyncConnection async = new FirebirdAsyncConnection(this);
+	
 	public FirebirdJDBCConnection(FirebirdJDBCDataSource dataSource)
 	{
 		super(dataSource);
 	}
 	
+	/**
+	 * @return the view of this connection whose calls run asynchronously, one after another, on the data source's
+	 *         {@link FirebirdJDBCDataSource#getAsyncExecutor() async executor}
+	 */
+	public FirebirdAsyncConnection async()
+	{
+		return async;
+	}
+	
+	/**
+	 * @return the transaction profile of this connection, <code>null</code> for the data source's default
+	 */
+	public FirebirdTransactionProfile getTransactionProfile()
+	{
+		return transactionProfile;
+	}
+	
+	/**
+	 * Selects the transaction profile of all following statements of this connection.
+	 *
+	 * @param transactionProfile the profile, <code>null</code> for the data source's default
+	 * @see FirebirdJDBCDataSource#getTransactionProfile(String)
+	 */
+	public void setTransactionProfile(FirebirdTransactionProfile transactionProfile)
+	{
+		this.transactionProfile = transactionProfile;
+	}
+	
+	/**
+	 * Executes a query in a transaction with the parameters of <code>profile</code>, e.g. a long report with
+	 * {@link FirebirdTransactionProfile#REPORTING}.
+	 *
+	 * @param profile the transaction profile of this query
+	 * @param sql     the query
+	 * @param params  the parameters of the query
+	 * @return the result
+	 * @throws DBException if the query fails
+	 */
+	public Result query(FirebirdTransactionProfile profile, String sql, Object... params) throws DBException
+	{
+		FirebirdTransactionProfile previous = statementProfile.get();
+		statementProfile.set(profile);
+		try
+		{
+			return query(sql, params);
+		}
+		finally
+		{
+			restoreStatementProfile(previous);
+		}
+	}
+	
+	/**
+	 * Executes a statement in a transaction with the parameters of <code>profile</code>.
+	 *
+	 * @param profile             the transaction profile of this statement
+	 * @param sql                 the statement
+	 * @param returnGeneratedKeys <code>true</code> to return the generated keys
+	 * @param params              the parameters of the statement
+	 * @return the result
+	 * @throws DBException if the statement fails
+	 */
+	public WriteResult write(FirebirdTransactionProfile profile, String sql, boolean returnGeneratedKeys,
+		Object... params) throws DBException
+	{
+		FirebirdTransactionProfile previous = statementProfile.get();
+		statementProfile.set(profile);
+		try
+		{
+			return write(sql, returnGeneratedKeys, params);
+		}
+		finally
+		{
+			restoreStatementProfile(previous);
+		}
+	}
+	
+	private void restoreStatementProfile(FirebirdTransactionProfile previous)
+	{
+		if(previous == null)
+		{
+			statementProfile.remove();
+		}
+		else
+		{
+			statementProfile.set(previous);
+		}
+	}
+	
+	/**
+	 * Borrows the connection from the {@link FirebirdConnectionPool} of the data source, if pooling is enabled,
+	 * and applies the transaction profile of the statement, this connection or the data source.
+	 */
+	@Override
+	protected Connection getConnection() throws DBException
+	{
+		FirebirdConnectionPool pool = getDataSource().getConnectionPool();
+		try
+		{
+			long start = System.nanoTime();
+			Connection connection = pool != null ? pool.borrow() : super.getConnection();
+			getDataSource().getInstrumentation().connectionAcquired(System.nanoTime() - start);
+			
+			FirebirdTransactionProfile profile = statementProfile.get();
+			if(profile == null)
+			{
+				profile = transactionProfile;
+			}
+			if(profile == null)
+			{
+				profile = getDataSource().getDefaultTransactionProfile();
+			}
+			return getDataSource().applyTransactionProfile(getDataSource().detectServerVersion(connection),
+				profile);
+		}
+		catch(SQLException e)
+		{
+			throw new DBException(getDataSource(), e);
+		}
+	}
+	
+	@Override
+	public Result query(String sql, Object... params) throws DBException
+	{
+		FirebirdInstrumentation instrumentation = getDataSource().getInstrumentation();
+		long start = System.nanoTime();
+		try
+		{
+			Result result = super.query(sql, params);
+			instrumentation.statementExecuted(sql, System.nanoTime() - start, -1);
+			return result;
+		}
+		catch(DBException | RuntimeException e)
+		{
+			instrumentation.statementFailed(sql, System.nanoTime() - start, e);
+			throw e;
+		}
+		finally
+		{
+			closeStreamedClobs();
+		}
+	}
+	
+	@Override
+	public WriteResult write(String sql, boolean returnGeneratedKeys, Object... params) throws DBException
+	{
+		FirebirdInstrumentation instrumentation = getDataSource().getInstrumentation();
+		long start = System.nanoTime();
+		try
+		{
+			WriteResult result = super.write(sql, returnGeneratedKeys, params);
+			if(DDL.matcher(sql).lookingAt())
+			{
+				getDataSource().ddlExecuted();
+			}
+			instrumentation.statementExecuted(sql, System.nanoTime() - start, result.getAffectedRows());
+			return result;
+		}
+		catch(DBException | RuntimeException e)
+		{
+			instrumentation.statementFailed(sql, System.nanoTime() - start, e);
+			throw e;
+		}
+		finally
+		{
+			closeStreamedClobs();
+		}
+	}
+	
+	/**
+	 * Assembles and executes a SqlEngine select with its row limit bound as parameters, so all pages of a query
+	 * share one SQL text and one prepared statement. The text is served from the assembled SQL cache of the
+	 * {@link FirebirdDMLAssembler} if enabled.
+	 *
+	 * @param select the select
+	 * @param params the parameters of <code>select</code>, the row limit parameters are added, see
+	 *               {@link FirebirdDMLAssembler#isRowLimitLeading(SELECT)}
+	 * @return the result
+	 * @throws DBException if the query fails
+	 * @see FirebirdDMLAssembler#setAssembledSqlCacheSize(int)
+	 */
+	public Result querySelect(SELECT select, Object... params) throws DBException
+	{
+		FirebirdDMLAssembler assembler = getDataSource().getDbmsAdaptor().getDMLAssembler();
+		String sql = assembler.assembleSelect(select, FirebirdDMLAssembler.ROW_LIMIT_PARAMETERS);
+		Object[] rowLimit = assembler.rowLimitParameters(select);
+		if(rowLimit.length == 0)
+		{
+			return query(sql, params);
+		}
+		Object[] allParams = new Object[params.length + rowLimit.length];
+		boolean leading = assembler.isRowLimitLeading(select);
+		System.arraycopy(params, 0, allParams, leading ? rowLimit.length : 0, params.length);
+		System.arraycopy(rowLimit, 0, allParams, leading ? 0 : params.length, rowLimit.length);
+		return query(sql, allParams);
+	}
+	
+	/**
+	 * Queries one page with keyset ("seek") pagination: instead of skipping the rows of the previous pages, the
+	 * rows after the last row of the previous page are selected, so every page costs the same as the first one.
+	 * <p>
+	 * <code>select</code> is wrapped in a derived table, so the sort columns must be columns of its result. They
+	 * must be non-nullable and unique in combination.
+	 *
+	 * @param select      the select, without row limit
+	 * @param sortColumns the (delimited if necessary) columns to sort and seek by
+	 * @param descending  the sort direction per column, <code>null</code> for ascending
+	 * @param lastValues  the values of the sort columns of the last row of the previous page, <code>null</code> for
+	 *                    the first page
+	 * @param pageSize    the maximum count of rows
+	 * @param params      the parameters of <code>select</code>
+	 * @return the rows of the page
+	 * @throws DBException if the query fails
+	 */
+	public Result queryKeysetPage(
+		String select, String[] sortColumns, boolean[] descending, Object[] lastValues,
+		int pageSize, Object... params) throws DBException
+	{
+		StringBuilder sb = new StringBuilder(select.length() + 128);
+		sb.append("SELECT * FROM (").append(select).append(") KEYSET_PAGE");
+		
+		List<Object> allParams = new ArrayList<>(Arrays.asList(params));
+		if(lastValues != null)
+		{
+			sb.append(" WHERE ");
+			getDataSource().getDbmsAdaptor().getDMLAssembler().assembleKeysetPredicate(sortColumns, descending, sb);
+			allParams.addAll(Arrays.asList(FirebirdDMLAssembler.keysetParameters(lastValues)));
+		}
+		
+		sb.append(" ORDER BY ");
+		for(int i = 0; i < sortColumns.length; i++)
+		{
+			if(i > 0)
+			{
+				sb.append(", ");
+			}
+			sb.append(sortColumns[i]);
+			if(descending != null && descending[i])
+			{
+				sb.append(" DESC");
+			}
+		}
+		sb.append(" ROWS ?");
+		allParams.add(pageSize);
+		
+		return query(sb.toString(), allParams.toArray());
+	}
+	
+	/**
+	 * Counts the rows of <code>select</code> with the {@link FirebirdJDBCDataSource#getRowCountMode() row count
+	 * mode} of the data source.
+	 */
 	@Override
 	public int getQueryRowCount(String select) throws DBException
+	{
+		return getQueryRowCount(select, getDataSource().getRowCountMode());
+	}
+	
+	/**
+	 * Counts the rows of <code>select</code>.
+	 *
+	 * @param select the select to count the rows of
+	 * @param mode   the counting strategy
+	 * @return the exact or estimated row count, depending on <code>mode</code>
+	 * @throws DBException if the count fails
+	 */
+	public int getQueryRowCount(String select, FirebirdRowCountMode mode) throws DBException
+	{
+		switch(mode)
+		{
+			case ESTIMATED:
+				Integer estimate = estimateRowCount(select);
+				if(estimate != null)
+				{
+					return estimate;
+				}
+				return countRows(select);
+			
+			case CACHED:
+				FirebirdRowCountCache cache = getDataSource().getRowCountCache();
+				Integer cached = cache.get(select);
+				if(cached != null)
+				{
+					return cached;
+				}
+				int rowCount = countRows(select);
+				cache.put(select, rowCount);
+				return rowCount;
+			
+			default:
+				return countRows(select);
+		}
+	}
+	
+	private int countRows(String select) throws DBException
 	{
 		StringBuilder sb = new StringBuilder();
 		sb.append("SELECT COUNT(*) FROM (");
@@ -59,6 +426,45 @@ public class FirebirdJDBCConnection extends JDBCConnection<FirebirdJDBCDataSourc
 		}
 	}
 	
+	/**
+	 * The selectivity of a unique index is <code>1 / row count</code> of its table at the time the statistics were
+	 * computed.
+	 *
+	 * @return the estimated row count or <code>null</code> if <code>select</code> is no plain single table select or
+	 * the table has no unique index with statistics
+	 */
+	private Integer estimateRowCount(String select) throws DBException
+	{
+		Matcher matcher = SINGLE_TABLE_SELECT.matcher(select);
+		if(!matcher.matches())
+		{
+			return null;
+		}
+		
+		String table = matcher.group(1);
+		table = table.charAt(0) == FirebirdDbms.IDENTIFIER_DELIMITER ? table.substring(1, table.length() - 1)
+			: table.toUpperCase(Locale.ROOT);
+		
+		Result result = query(FirebirdIndexMaintenance.SELECT_UNIQUE_SELECTIVITY, table);
+		try
+		{
+			if(!result.next())
+			{
+				return null;
+			}
+			Object selectivity = result.getObject(0);
+			if(!(selectivity instanceof Number) || ((Number)selectivity).doubleValue() <= 0)
+			{
+				return null;
+			}
+			return (int)Math.min(Math.round(1 / ((Number)selectivity).doubleValue()), Integer.MAX_VALUE);
+		}
+		finally
+		{
+			result.close();
+		}
+	}
+	
 	@Override
 	protected void prepareParams(Connection connection, Object[] params) throws DBException
 	{
@@ -81,118 +487,611 @@ public class FirebirdJDBCConnection extends JDBCConnection<FirebirdJDBCDataSourc
 			{
 				try
 				{
-					Reader characterStream = ((Clob)param).getCharacterStream();
-					String paramString = "";
-					for(int j; (j = characterStream.read()) > 0; )
-					{
-						paramString = paramString + (char)j;
-					}
-					
-					params[i] = paramString;
+					params[i] = clobToParam((Clob)param);
 				}
 				catch(Exception e)
 				{
-					throw new DBException(getDataSource(), "Parameter + " + i
+					throw new DBException(getDataSource(), "Parameter " + i
 						+ " from Type java.sql.Clob cannot parsed to String");
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Converts a {@link Clob} parameter into a value the driver can bind.
+	 * <p>
+	 * Values up to {@link FirebirdJDBCDataSource#getClobInlineThreshold()} characters are materialized as
+	 * {@link String}. Larger values are handed over as {@link Reader}, which Jaybird streams into the
+	 * <code>BLOB SUB_TYPE TEXT</code> column without building the whole value on the heap. These readers are
+	 * closed by {@link #closeStreamedClobs()} once the statement was executed.
+	 */
+	private Object clobToParam(Clob clob) throws SQLException, IOException
+	{
+		long length = clob.length();
+		if(length > getDataSource().getClobInlineThreshold())
+		{
+			Reader reader = clob.getCharacterStream();
+			streamedClobs.get().add(reader);
+			return reader;
+		}
+		
+		StringBuilder sb = new StringBuilder((int)length);
+		char[] buffer = new char[(int)Math.min(Math.max(length, 1), CLOB_READ_BUFFER_SIZE)];
+		try(Reader reader = clob.getCharacterStream())
+		{
+			for(int read; (read = reader.read(buffer)) != -1; )
+			{
+				sb.append(buffer, 0, read);
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Closes the readers of the large {@link Clob} parameters of the statements executed by this thread.
+	 */
+	void closeStreamedClobs()
+	{
+		List<Reader> readers = streamedClobs.get();
+		for(Reader reader : readers)
+		{
+			try
+			{
+				reader.close();
+			}
+			catch(IOException e)
+			{
+				// the value has been sent already
+			}
+		}
+		readers.clear();
+	}
+	
+	/**
+	 * Executes <code>sql</code> once per parameter set, sent to the server in JDBC batches of
+	 * <code>batchSize</code> rows.
+	 * <p>
+	 * If <code>commitInterval</code> is positive, the writes run in a transaction which is committed whenever at
+	 * least <code>commitInterval</code> rows have been written since the last commit, at the end of a batch. If
+	 * writing fails, the rows since the last commit are rolled back.
+	 *
+	 * @param sql            the insert, update or delete statement
+	 * @param paramSets      the parameters for each execution
+	 * @param batchSize      the count of rows per batch
+	 * @param commitInterval the count of rows after which is committed, <code>0</code> to use the transaction mode
+	 *                       of the connection
+	 * @return the total count of affected rows, as far as reported by the driver
+	 * @throws DBException if writing fails
+	 */
+	public int writeBatch(String sql, List<Object[]> paramSets, int batchSize, int commitInterval)
+		throws DBException
+	{
+		if(batchSize <= 0 || commitInterval < 0)
+		{
+			throw new IllegalArgumentException("batchSize must be positive and commitInterval not negative");
+		}
+		
+		Connection connection = getConnection();
+		try
+		{
+			FirebirdInstrumentation instrumentation = getDataSource().getInstrumentation();
+			long start = System.nanoTime();
+			boolean autoCommit = connection.getAutoCommit();
+			if(commitInterval > 0)
+			{
+				connection.setAutoCommit(false);
+			}
+			try
+			{
+				FirebirdStatementCache cache = getDataSource().getStatementCache(connection);
+				PreparedStatement statement = cache.prepare(sql);
+				try
+				{
+					int affected = 0;
+					int pending = 0;
+					int uncommitted = 0;
+					for(Object[] params : paramSets)
+					{
+						bind(connection, statement, params.clone());
+						statement.addBatch();
+						if(++pending == batchSize)
+						{
+							affected += sum(statement.executeBatch());
+							uncommitted += pending;
+							pending = 0;
+							if(commitInterval > 0 && uncommitted >= commitInterval)
+							{
+								connection.commit();
+								uncommitted = 0;
+							}
+						}
+					}
+					if(pending > 0)
+					{
+						affected += sum(statement.executeBatch());
+					}
+					if(commitInterval > 0)
+					{
+						connection.commit();
+					}
+					instrumentation.statementExecuted(sql, System.nanoTime() - start, affected);
+					return affected;
+				}
+				finally
+				{
+					closeStreamedClobs();
+					statement.clearBatch();
+					cache.release(statement, sql);
+				}
+			}
+			catch(SQLException | DBException e)
+			{
+				instrumentation.statementFailed(sql, System.nanoTime() - start, e);
+				if(commitInterval > 0)
+				{
+					connection.rollback();
+				}
+				throw e;
+			}
+			finally
+			{
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+		catch(SQLException e)
+		{
+			throw new DBException(getDataSource(), e);
+		}
+		finally
+		{
+			close(connection);
+		}
+	}
+	
+	/**
+	 * Inserts rows with <code>EXECUTE BLOCK</code> statements of up to <code>rowsPerBlock</code> rows each, see
+	 * {@link FirebirdDMLAssembler#assembleInsertBlock(String, String[], String[], int, StringBuilder)}.
+	 * <p>
+	 * Unlike {@link #writeBatch(String, List, int, int)}, which is sent row by row by Jaybird before Firebird 4,
+	 * this packs many rows into one server call.
+	 *
+	 * @param table        the (delimited if necessary) table name
+	 * @param columns      the (delimited if necessary) column names
+	 * @param columnTypes  the Firebird data types of the columns
+	 * @param rows         the values of the rows, in the order of <code>columns</code>
+	 * @param rowsPerBlock the maximum count of rows per <code>EXECUTE BLOCK</code>
+	 * @return the count of inserted rows
+	 * @throws DBException if inserting fails or a row doesn't have one value per column
+	 */
+	public int writeInsertBlocks(
+		String table, String[] columns, String[] columnTypes, List<Object[]> rows,
+		int rowsPerBlock) throws DBException
+	{
+		if(rowsPerBlock <= 0)
+		{
+			throw new IllegalArgumentException("rowsPerBlock must be positive");
+		}
+		for(int i = 0; i < rows.size(); i++)
+		{
+			if(rows.get(i).length != columns.length)
+			{
+				throw new DBException(getDataSource(), "Row " + i + " has " + rows.get(i).length
+					+ " values, expected " + columns.length);
+			}
+		}
+		
+		FirebirdInstrumentation instrumentation = getDataSource().getInstrumentation();
+		FirebirdDMLAssembler assembler = getDataSource().getDbmsAdaptor().getDMLAssembler();
+		Connection connection = getConnection();
+		try
+		{
+			FirebirdStatementCache cache = getDataSource().getStatementCache(connection);
+			for(int start = 0; start < rows.size(); start += rowsPerBlock)
+			{
+				List<Object[]> block = rows.subList(start, Math.min(start + rowsPerBlock, rows.size()));
+				String sql = assembler.assembleInsertBlock(table, columns, columnTypes, block.size(),
+					new StringBuilder()).toString();
+				
+				Object[] params = new Object[block.size() * columns.length];
+				for(int row = 0; row < block.size(); row++)
+				{
+					System.arraycopy(block.get(row), 0, params, row * columns.length, columns.length);
+				}
+				
+				long blockStart = System.nanoTime();
+				PreparedStatement statement = cache.prepare(sql);
+				try
+				{
+					bind(connection, statement, params);
+					statement.execute();
+					instrumentation.statementExecuted(sql, System.nanoTime() - blockStart, block.size());
+				}
+				catch(SQLException | DBException | RuntimeException e)
+				{
+					instrumentation.statementFailed(sql, System.nanoTime() - blockStart, e);
+					throw e;
+				}
+				finally
+				{
+					closeStreamedClobs();
+					cache.release(statement, sql);
+				}
+			}
+			return rows.size();
+		}
+		catch(SQLException e)
+		{
+			throw new DBException(getDataSource(), e);
+		}
+		finally
+		{
+			close(connection);
+		}
+	}
+	
+	/**
+	 * Opens a cursor with a fetch size adapted to the row width of the query.
+	 *
+	 * @see #openCursor(int, String, Object...)
+	 */
+	public FirebirdCursor openCursor(String sql, Object... params) throws DBException
+	{
+		return openCursor(0, sql, params);
+	}
+	
+	/**
+	 * Opens a cursor which streams the rows of a query instead of materializing them. The cursor runs in its own
+	 * transaction on its own connection, both are released when the cursor is closed.
+	 *
+	 * @param fetchSize the count of rows per fetch, 0 to derive it from the row width and the
+	 *                  {@link FirebirdJDBCDataSource#getFetchBufferSize() fetch buffer size}
+	 * @param sql       the query
+	 * @param params    the parameters of the query
+	 * @return the cursor, positioned before the first row
+	 * @throws DBException if the query fails
+	 */
+	public FirebirdCursor openCursor(int fetchSize, String sql, Object... params) throws DBException
+	{
+		if(fetchSize < 0)
+		{
+			throw new IllegalArgumentException("fetchSize must not be negative");
+		}
+		
+		FirebirdInstrumentation instrumentation = getDataSource().getInstrumentation();
+		Connection connection = getConnection();
+		long start = System.nanoTime();
+		try
+		{
+			boolean autoCommit = connection.getAutoCommit();
+			PreparedStatement statement = null;
+			try
+			{
+				// without auto commit the server keeps the cursor open between fetches
+				connection.setAutoCommit(false);
+				statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+				bind(connection, statement, params);
+				if(fetchSize == 0)
+				{
+					fetchSize = FirebirdCursor.estimateFetchSize(statement.getMetaData(),
+						getDataSource().getFetchBufferSize());
+				}
+				FirebirdCursor cursor = new FirebirdCursor(sql, connection, autoCommit, statement, fetchSize,
+					instrumentation);
+				closeStreamedClobs();
+				instrumentation.statementExecuted(sql, System.nanoTime() - start, -1);
+				
+				if(log.isDebugEnabled())
+				{
+					log.debug("Cursor with fetch size " + fetchSize + ": " + sql); //$NON-NLS-1$
+				}
+				return cursor;
+			}
+			catch(SQLException | DBException | RuntimeException e)
+			{
+				instrumentation.statementFailed(sql, System.nanoTime() - start, e);
+				closeStreamedClobs();
+				if(statement != null)
+				{
+					statement.close();
+				}
+				connection.rollback();
+				connection.setAutoCommit(autoCommit);
+				throw e;
+			}
+		}
+		catch(SQLException e)
+		{
+			close(connection);
+			throw new DBException(getDataSource(), e);
+		}
+		catch(DBException | RuntimeException e)
+		{
+			close(connection);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Streams the rows of a query, see {@link #openCursor(String, Object...)}. The stream must be closed if it
+	 * isn't consumed completely.
+	 *
+	 * @param sql    the query
+	 * @param params the parameters of the query
+	 * @return the lazily fetched rows
+	 * @throws DBException if the query fails
+	 */
+	public Stream<Object[]> stream(String sql, Object... params) throws DBException
+	{
+		return openCursor(sql, params).stream();
+	}
+	
+	private void bind(Connection connection, PreparedStatement statement, Object[] params)
+		throws DBException, SQLException
+	{
+		prepareParams(connection, params);
+		for(int i = 0; i < params.length; i++)
+		{
+			statement.setObject(i + 1, params[i]);
+		}
+	}
+	
+	private static int sum(int[] updateCounts)
+	{
+		int sum = 0;
+		for(int count : updateCounts)
+		{
+			if(count > 0)
+			{
+				sum += count;
+			}
+		}
+		return sum;
+	}
+	
 	@Override
 	public void createTable(
 		String tableName, String primaryKey, Map<String, String> columnMap,
 		boolean isAutoIncrement, Map<String, String> foreignKeys) throws Exception
 	{
-		Connection connection = super.getConnection();
-		Statement statement = connection.createStatement();
+		if(!columnMap.containsKey(primaryKey))
+		{
+			columnMap.put(primaryKey, "INTEGER"); //$NON-NLS-1$
+		}
+		createTables(Collections.singletonList(new FirebirdTableDefinition(tableName, primaryKey, columnMap)));
+	}
+	
+	/**
+	 * Creates all tables which don't exist yet.
+	 * <p>
+	 * The existence of all tables is checked with one parameterized query against <code>RDB$RELATIONS</code>, the
+	 * missing tables are created by <code>EXECUTE BLOCK</code>s of <code>EXECUTE STATEMENT</code>s in one
+	 * transaction. A statement which doesn't fit into a block on its own is executed directly.
+	 *
+	 * @param tables the tables to create
+	 * @return the created tables and the timings of the phases
+	 * @throws DBException if the tables can't be created, no table is created then
+	 */
+	public FirebirdCreateTablesReport createTables(List<FirebirdTableDefinition> tables) throws DBException
+	{
+		Connection connection = getConnection();
 		try
 		{
-			if(!checkIfTableExists(connection.createStatement(), tableName))
+			long start = System.nanoTime();
+			Set<String> existingNames = selectExistingTables(connection, tables);
+			List<String> created = new ArrayList<>();
+			List<String> existing = new ArrayList<>();
+			List<String> blocks = new ArrayList<>();
+			
+			long checked = System.nanoTime();
+			StringBuilder block = new StringBuilder();
+			StringBuilder ddl = new StringBuilder();
+			int blockBytes = 0;
+			for(FirebirdTableDefinition table : tables)
 			{
-				
-				if(!columnMap.containsKey(primaryKey))
+				if(existingNames.contains(FirebirdIndexMaintenance.unqualify(table.getTableName())))
 				{
-					columnMap.put(primaryKey, "INTEGER"); //$NON-NLS-1$
+					existing.add(table.getTableName());
+					continue;
 				}
-				StringBuffer createStatement = null;
 				
-				createStatement = new StringBuffer("CREATE TABLE " + tableName + "(" //$NON-NLS-1$ //$NON-NLS-2$
-					+ primaryKey + " " + columnMap.get(primaryKey) + " NOT NULL,"); //$NON-NLS-1$ //$NON-NLS-2$
+				ddl.setLength(0);
+				table.assembleCreateTable(ddl);
+				if(log.isDebugEnabled())
+				{
+					log.debug("SQL Statement to create a table: " + ddl); //$NON-NLS-1$
+				}
 				
-				for(String keySet : columnMap.keySet())
+				int ddlBytes = DDL_ENTRY_BYTES;
+				for(int i = 0; i < ddl.length(); i++)
+				{
+					char c = ddl.charAt(i);
+					ddlBytes += c == '\'' ? 2 : utf8Length(c);
+				}
+				if(blockBytes > 0 && blockBytes + ddlBytes > MAX_DDL_BLOCK_LENGTH)
 				{
-					if(!keySet.equals(primaryKey))
+					blocks.add(block.append("END").toString()); //$NON-NLS-1$
+					block.setLength(0);
+					blockBytes = 0;
+				}
+				if(DDL_BLOCK_BYTES + ddlBytes > MAX_DDL_BLOCK_LENGTH)
+				{
+					// too long for a block, executed on its own
+					blocks.add(ddl.toString());
+					created.add(table.getTableName());
+					continue;
+				}
+				if(blockBytes == 0)
+				{
+					block.append("EXECUTE BLOCK AS BEGIN\n"); //$NON-NLS-1$
+					blockBytes = DDL_BLOCK_BYTES;
+				}
+				block.append("EXECUTE STATEMENT '"); //$NON-NLS-1$
+				for(int i = 0; i < ddl.length(); i++)
+				{
+					char c = ddl.charAt(i);
+					block.append(c == '\'' ? "''" : String.valueOf(c));
+				}
+				block.append("';\n"); //$NON-NLS-1$
+				blockBytes += ddlBytes;
+				created.add(table.getTableName());
+			}
+			if(blockBytes > 0)
+			{
+				blocks.add(block.append("END").toString()); //$NON-NLS-1$
+			}
+			
+			long assembled = System.nanoTime();
+			long executed = assembled;
+			long committed = assembled;
+			if(!blocks.isEmpty())
+			{
+				boolean autoCommit = connection.getAutoCommit();
+				connection.setAutoCommit(false);
+				try(Statement statement = connection.createStatement())
+				{
+					for(String sql : blocks)
 					{
-						createStatement.append(keySet + " " + columnMap.get(keySet) + ","); //$NON-NLS-1$ //$NON-NLS-2$
+						statement.execute(sql);
 					}
+					executed = System.nanoTime();
+					connection.commit();
+					committed = System.nanoTime();
 				}
-				
-				createStatement.append(" PRIMARY KEY (" + primaryKey + "))"); //$NON-NLS-1$ //$NON-NLS-2$
-				
-				if(log.isDebugEnabled())
+				catch(SQLException e)
 				{
-					log.debug("SQL Statement to create a table: " + createStatement); //$NON-NLS-1$
+					connection.rollback();
+					throw e;
 				}
-				statement.execute(createStatement.toString());
+				finally
+				{
+					connection.setAutoCommit(autoCommit);
+				}
+				getDataSource().ddlExecuted();
 			}
+			
+			return new FirebirdCreateTablesReport(created, existing, checked - start, assembled - checked,
+				executed - assembled, committed - executed);
 		}
-		catch(Exception e)
+		catch(SQLException e)
 		{
-			throw e;
+			throw new DBException(getDataSource(), e);
 		}
 		finally
 		{
-			statement.close();
-			connection.close();
+			close(connection);
 		}
 	}
 	
-	private boolean checkIfTableExists(Statement statement, String tableName) throws Exception
+	/**
+	 * @return the count of bytes of <code>c</code> in UTF-8, 2 for each half of a surrogate pair
+	 */
+	private static int utf8Length(char c)
 	{
-		
-		String sql =
-			"SELECT * FROM rdb$relations where rdb$relation_name = '" + tableName + "'"; //$NON-NLS-1$ //$NON-NLS-2$
-		
-		if(log.isDebugEnabled())
-		{
-			log.debug(sql);
-		}
-		
-		ResultSet resultSet = null;
-		try
+		return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+	}
+	
+	/**
+	 * @return the names of the existing tables, as stored in the system tables
+	 */
+	private Set<String> selectExistingTables(Connection connection, List<FirebirdTableDefinition> tables)
+		throws SQLException
+	{
+		Set<String> existing = new HashSet<>();
+		FirebirdStatementCache cache = getDataSource().getStatementCache(connection);
+		for(int start = 0; start < tables.size(); start += MAX_IN_LIST)
 		{
-			statement.execute(sql);
-			resultSet = statement.getResultSet();
+			List<FirebirdTableDefinition> chunk = tables.subList(start, Math.min(start + MAX_IN_LIST, tables.size()));
+			
+			StringBuilder sb = new StringBuilder(SELECT_EXISTING_TABLES).append('(');
+			for(int i = 0; i < chunk.size(); i++)
+			{
+				sb.append(i == 0 ? "?" : ", ?");
+			}
+			String sql = sb.append(')').toString();
+			
+			if(log.isDebugEnabled())
+			{
+				log.debug(sql);
+			}
+			
+			PreparedStatement statement = cache.prepare(sql);
+			try
+			{
+				for(int i = 0; i < chunk.size(); i++)
+				{
+					statement.setString(i + 1, FirebirdIndexMaintenance.unqualify(chunk.get(i).getTableName()));
+				}
+				try(ResultSet resultSet = statement.executeQuery())
+				{
+					while(resultSet.next())
+					{
+						existing.add(resultSet.getString(1));
+					}
+				}
+			}
+			finally
+			{
+				cache.release(statement, sql);
+			}
 		}
-		catch(Exception e)
+		return existing;
+	}
+	
+	/**
+	 * Returns the current time of the server, queried or estimated depending on the
+	 * {@link FirebirdJDBCDataSource#getServerTimeMode() server time mode} of the data source.
+	 */
+	@Override
+	public Date getServerTime() throws DBException, ParseException
+	{
+		if(getDataSource().getServerTimeMode() == FirebirdServerTimeMode.SYNCHRONIZED)
 		{
-			if(resultSet != null)
+			try
 			{
-				resultSet.close();
+				return new Date(getDataSource().getServerClock().currentTimeMillis());
+			}
+			catch(SQLException e)
+			{
+				throw new DBException(getDataSource(), e);
 			}
-			statement.close();
-			throw e;
 		}
 		
-		if(resultSet != null)
+		Connection connection = getConnection();
+		try
 		{
-			while(resultSet.next())
+			FirebirdStatementCache cache = getDataSource().getStatementCache(connection);
+			PreparedStatement statement = cache.prepare(SELECT_SERVER_TIME);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				resultSet.next();
+				return new Date(resultSet.getTimestamp(1).getTime());
+			}
+			finally
 			{
-				resultSet.close();
-				statement.close();
-				return true;
+				cache.release(statement, SELECT_SERVER_TIME);
 			}
-			resultSet.close();
 		}
-		statement.close();
-		return false;
+		catch(SQLException e)
+		{
+			throw new DBException(getDataSource(), e);
+		}
+		finally
+		{
+			close(connection);
+		}
 	}
 	
-	@Override
-	public Date getServerTime() throws DBException, ParseException
+	private void close(Connection connection) throws DBException
 	{
-		String selectTime = "SELECT current_timestamp from rdb$database"; //$NON-NLS-1$
-		return super.getServerTime(selectTime);
+		try
+		{
+			connection.close();
+		}
+		catch(SQLException e)
+		{
+			throw new DBException(getDataSource(), e);
+		}
 	}
 }
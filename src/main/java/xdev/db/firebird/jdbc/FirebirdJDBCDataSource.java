@@ -17,15 +17,712 @@
  */
 package xdev.db.firebird.jdbc;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
 import xdev.db.DBException;
 import xdev.db.jdbc.JDBCDataSource;
 
 
 public class FirebirdJDBCDataSource extends JDBCDataSource<FirebirdJDBCDataSource, FirebirdDbms>
 {
+	/**
+	 * Default for {@link #getClobInlineThreshold()}: 1M characters.
+	 */
+	public static final int DEFAULT_CLOB_INLINE_THRESHOLD = 1024 * 1024;
+	
+	/**
+	 * Default for {@link #getRowCountCacheTimeToLive()}: 30 seconds.
+	 */
+	public static final long DEFAULT_ROW_COUNT_CACHE_TTL = TimeUnit.SECONDS.toMillis(30);
+	
+	/**
+	 * Default for {@link #getFetchBufferSize()}: 256 KB.
+	 */
+	public static final int DEFAULT_FETCH_BUFFER_SIZE = 256 * 1024;
+	
+	/**
+	 * Default for {@link #getStatementCacheSize()}.
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 256;
+	
+	/**
+	 * Default for {@link #getStatementCacheWeight()}: 1M characters of SQL text.
+	 */
+	public static final long DEFAULT_STATEMENT_CACHE_WEIGHT = 1024 * 1024;
+	
+	/**
+	 * Enables the built-in {@link FirebirdConnectionPool}.
+	 */
+	public static final Parameter<Boolean> POOLED = new Parameter<>("pooled", false);
+	
+	/**
+	 * Count of idle connections the pool keeps open.
+	 */
+	public static final Parameter<Integer> POOL_MIN_IDLE = new Parameter<>("poolMinIdle", 0);
+	
+	/**
+	 * Maximum count of idle connections in the pool.
+	 */
+	public static final Parameter<Integer> POOL_MAX_IDLE = new Parameter<>("poolMaxIdle", 10);
+	
+	/**
+	 * Maximum count of connections of the pool, idle and borrowed.
+	 */
+	public static final Parameter<Integer> POOL_MAX_SIZE = new Parameter<>("poolMaxSize", 20);
+	
+	/**
+	 * Time in milliseconds after which a pooled connection is closed, <code>0</code> for no limit.
+	 */
+	public static final Parameter<Long> POOL_MAX_LIFETIME = new Parameter<>("poolMaxLifetime",
+		TimeUnit.MINUTES.toMillis(30));
+	
+	/**
+	 * Time in milliseconds after which a borrowed connection is reported as leak, <code>0</code> disables leak
+	 * detection.
+	 */
+	public static final Parameter<Long> POOL_LEAK_DETECTION_THRESHOLD = new Parameter<>(
+		"poolLeakDetectionThreshold", 0L);
+	
+	/**
+	 * Maximum time in milliseconds to wait for a pooled connection.
+	 */
+	public static final Parameter<Long> POOL_BORROW_TIMEOUT = new Parameter<>("poolBorrowTimeout",
+		TimeUnit.SECONDS.toMillis(30));
+	
+	/**
+	 * Name of the {@link FirebirdTransactionProfile} of all connections which don't select another one, empty for
+	 * the driver default.
+	 */
+	public static final Parameter<String> TRANSACTION_PROFILE = new Parameter<>("transactionProfile", "");
+	
+	/**
+	 * Additional {@link FirebirdTransactionProfile}s as <code>name=definition</code> pairs separated by
+	 * semicolons, e.g. <code>batch=concurrency lock_timeout 30; audit=read only concurrency</code>.
+	 */
+	public static final Parameter<String> TRANSACTION_PROFILES = new Parameter<>("transactionProfiles", "");
+	
+	/**
+	 * Maximum count of calls of the {@link FirebirdAsyncExecutor} which execute at the same time.
+	 */
+	public static final Parameter<Integer> ASYNC_MAX_IN_FLIGHT = new Parameter<>("asyncMaxInFlight", 20);
+	
+	/**
+	 * {@link FirebirdConnectionTuning} appended to the JDBC URL: a preset name and/or Jaybird
+	 * <code>property=value</code> pairs, e.g. <code>lan_bulk</code> or
+	 * <code>wan_compressed, blobBufferSize=65535</code>. Empty for the driver defaults.
+	 */
+	public static final Parameter<String> CONNECTION_TUNING = new Parameter<>("connectionTuning", "");
+	
+	/**
+	 * {@link FirebirdConnectionMode} by name, e.g. <code>local</code>, <code>embedded</code> or <code>auto</code>.
+	 * Empty for {@link FirebirdConnectionMode#PURE_JAVA}.
+	 */
+	public static final Parameter<String> CONNECTION_MODE = new Parameter<>("connectionMode", "");
+	
+	private volatile int clobInlineThreshold = DEFAULT_CLOB_INLINE_THRESHOLD;
+	private volatile int fetchBufferSize = DEFAULT_FETCH_BUFFER_SIZE;
+	private volatile FirebirdServerTimeMode serverTimeMode = FirebirdServerTimeMode.EXACT;
+	private final FirebirdServerClock serverClock = new FirebirdServerClock(this);
+	private volatile FirebirdRowCountMode rowCountMode = FirebirdRowCountMode.EXACT;
+	private volatile long rowCountCacheTimeToLive = DEFAULT_ROW_COUNT_CACHE_TTL;
+	private final FirebirdRowCountCache rowCountCache =
+		new FirebirdRowCountCache(DEFAULT_ROW_COUNT_CACHE_TTL, TimeUnit.MILLISECONDS);
+	private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private volatile long statementCacheWeight = DEFAULT_STATEMENT_CACHE_WEIGHT;
+	private final Map<Connection, FirebirdStatementCache> statementCaches = new ConcurrentHashMap<>();
+	private final FirebirdStatementCache.Statistics statementCacheStatistics =
+		new FirebirdStatementCache.Statistics();
+	private volatile FirebirdConnectionPool connectionPool;
+	/**
+	 * Guards the lazy initialization of the connection pool and the async executor. A lock instead of
+	 * <code>synchronized</code> doesn't pin virtual threads to their carrier.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile FirebirdAsyncExecutor asyncExecutor;
+	private final FirebirdProcedureCache procedureCache = new FirebirdProcedureCache();
+	private volatile FirebirdSchemaSnapshot schemaSnapshot;
+	private volatile FirebirdInstrumentation instrumentation = FirebirdInstrumentation.NONE;
+	private final FirebirdRetryExecutor retryExecutor = new FirebirdRetryExecutor(this);
+	private final Map<String, FirebirdTransactionProfile> transactionProfiles = new ConcurrentHashMap<>();
+	private volatile String parsedTransactionProfiles = "";
+	
 	public FirebirdJDBCDataSource()
 	{
 		super(new FirebirdDbms());
+		getDbmsAdaptor().setDataSource(this);
+		registerTransactionProfile(FirebirdTransactionProfile.OLTP);
+		registerTransactionProfile(FirebirdTransactionProfile.REPORTING);
+	}
+	
+	/**
+	 * Returns the maximum length of a {@link java.sql.Clob} parameter which is bound as inline string. Longer
+	 * values are streamed to the server as <code>BLOB SUB_TYPE TEXT</code>.
+	 *
+	 * @return the threshold in characters
+	 */
+	public int getClobInlineThreshold()
+	{
+		return clobInlineThreshold;
+	}
+	
+	/**
+	 * @param clobInlineThreshold the maximum length in characters of a {@link java.sql.Clob} parameter which is
+	 *                            bound as inline string
+	 * @see #getClobInlineThreshold()
+	 */
+	public void setClobInlineThreshold(int clobInlineThreshold)
+	{
+		if(clobInlineThreshold < 0)
+		{
+			throw new IllegalArgumentException("clobInlineThreshold must not be negative");
+		}
+		this.clobInlineThreshold = clobInlineThreshold;
+	}
+	
+	/**
+	 * @return the strategy of {@link FirebirdJDBCConnection#getServerTime()}, {@link FirebirdServerTimeMode#EXACT}
+	 *         by default
+	 */
+	public FirebirdServerTimeMode getServerTimeMode()
+	{
+		return serverTimeMode;
+	}
+	
+	/**
+	 * @param serverTimeMode the strategy of {@link FirebirdJDBCConnection#getServerTime()}
+	 */
+	public void setServerTimeMode(FirebirdServerTimeMode serverTimeMode)
+	{
+		if(serverTimeMode == null)
+		{
+			throw new IllegalArgumentException("serverTimeMode must not be null");
+		}
+		this.serverTimeMode = serverTimeMode;
+	}
+	
+	/**
+	 * @return the clock of {@link FirebirdServerTimeMode#SYNCHRONIZED}, to configure the resync interval and drift
+	 *         alarm
+	 */
+	public FirebirdServerClock getServerClock()
+	{
+		return serverClock;
+	}
+	
+	/**
+	 * Returns the strategy which is used by {@link FirebirdJDBCConnection#getQueryRowCount(String)}.
+	 *
+	 * @return the row count mode, {@link FirebirdRowCountMode#EXACT} by default
+	 */
+	public FirebirdRowCountMode getRowCountMode()
+	{
+		return rowCountMode;
+	}
+	
+	/**
+	 * @param rowCountMode the strategy which is used by {@link FirebirdJDBCConnection#getQueryRowCount(String)}
+	 */
+	public void setRowCountMode(FirebirdRowCountMode rowCountMode)
+	{
+		if(rowCountMode == null)
+		{
+			throw new IllegalArgumentException("rowCountMode must not be null");
+		}
+		this.rowCountMode = rowCountMode;
+	}
+	
+	/**
+	 * @return the time to live of cached row counts in milliseconds
+	 * @see FirebirdRowCountMode#CACHED
+	 */
+	public long getRowCountCacheTimeToLive()
+	{
+		return rowCountCacheTimeToLive;
+	}
+	
+	/**
+	 * @param rowCountCacheTimeToLive the time to live of cached row counts in milliseconds
+	 * @see FirebirdRowCountMode#CACHED
+	 */
+	public void setRowCountCacheTimeToLive(long rowCountCacheTimeToLive)
+	{
+		rowCountCache.setTimeToLive(rowCountCacheTimeToLive, TimeUnit.MILLISECONDS);
+		this.rowCountCacheTimeToLive = rowCountCacheTimeToLive;
+	}
+	
+	/**
+	 * @return the cache of {@link FirebirdRowCountMode#CACHED} row counts
+	 */
+	public FirebirdRowCountCache getRowCountCache()
+	{
+		return rowCountCache;
+	}
+	
+	/**
+	 * @return the receiver of the statement and connection timings, {@link FirebirdInstrumentation#NONE} by
+	 *         default
+	 */
+	public FirebirdInstrumentation getInstrumentation()
+	{
+		return instrumentation;
+	}
+	
+	/**
+	 * @param instrumentation the receiver of the statement and connection timings, e.g. a
+	 *                        {@link FirebirdMetrics}
+	 */
+	public void setInstrumentation(FirebirdInstrumentation instrumentation)
+	{
+		if(instrumentation == null)
+		{
+			throw new IllegalArgumentException("instrumentation must not be null");
+		}
+		this.instrumentation = instrumentation;
+	}
+	
+	/**
+	 * Registers a profile, which replaces a profile with the same name.
+	 *
+	 * @param profile the profile
+	 */
+	public void registerTransactionProfile(FirebirdTransactionProfile profile)
+	{
+		transactionProfiles.put(profile.getName(), profile);
+	}
+	
+	/**
+	 * Returns a registered profile, including {@link FirebirdTransactionProfile#OLTP "oltp"},
+	 * {@link FirebirdTransactionProfile#REPORTING "reporting"} and the profiles of {@link #TRANSACTION_PROFILES}.
+	 *
+	 * @param name the name of the profile
+	 * @return the profile
+	 * @throws IllegalArgumentException if there is no profile with this name
+	 */
+	public FirebirdTransactionProfile getTransactionProfile(String name)
+	{
+		parseTransactionProfiles();
+		FirebirdTransactionProfile profile = transactionProfiles.get(name);
+		if(profile == null)
+		{
+			throw new IllegalArgumentException("Unknown transaction profile: " + name);
+		}
+		return profile;
+	}
+	
+	/**
+	 * @return the profile named by {@link #TRANSACTION_PROFILE} or <code>null</code> for the driver default
+	 */
+	public FirebirdTransactionProfile getDefaultTransactionProfile()
+	{
+		String name = getParameterValue(TRANSACTION_PROFILE);
+		return name == null || name.isEmpty() ? null : getTransactionProfile(name);
+	}
+	
+	private void parseTransactionProfiles()
+	{
+		String definitions = getParameterValue(TRANSACTION_PROFILES);
+		if(definitions == null || definitions.equals(parsedTransactionProfiles))
+		{
+			return;
+		}
+		for(String definition : definitions.split(";"))
+		{
+			int separator = definition.indexOf('=');
+			if(separator > 0)
+			{
+				String name = definition.substring(0, separator).trim();
+				registerTransactionProfile(FirebirdTransactionProfile.parse(name,
+					definition.substring(separator + 1)));
+			}
+		}
+		parsedTransactionProfiles = definitions;
+	}
+	
+	/**
+	 * Applies <code>profile</code> to a freshly acquired connection and closes the connection if that fails.
+	 *
+	 * @param connection the connection
+	 * @param profile    the profile or <code>null</code> to keep the driver default
+	 * @return <code>connection</code>
+	 * @throws SQLException if the profile can't be applied
+	 */
+	Connection applyTransactionProfile(Connection connection, FirebirdTransactionProfile profile)
+		throws SQLException
+	{
+		if(profile != null)
+		{
+			try
+			{
+				profile.apply(connection);
+			}
+			catch(SQLException e)
+			{
+				try
+				{
+					connection.close();
+				}
+				catch(SQLException closeFailure)
+				{
+					e.addSuppressed(closeFailure);
+				}
+				throw e;
+			}
+		}
+		return connection;
+	}
+	
+	/**
+	 * @return the executor of {@link #executeWithRetry(FirebirdTransactionalUnit)}, to configure the attempts and
+	 *         backoff
+	 */
+	public FirebirdRetryExecutor getRetryExecutor()
+	{
+		return retryExecutor;
+	}
+	
+	/**
+	 * Executes <code>unit</code> in a transaction, which is retried on lock conflicts, deadlocks, update conflicts
+	 * and connection losses.
+	 *
+	 * @param unit the idempotent unit of work
+	 * @return the result of the unit
+	 * @throws DBException if the unit can't be completed
+	 * @see FirebirdRetryExecutor
+	 */
+	public <T> T executeWithRetry(FirebirdTransactionalUnit<T> unit) throws DBException
+	{
+		return retryExecutor.execute(unit);
+	}
+	
+	/**
+	 * Returns the target size of one fetch of a {@link FirebirdCursor} with adaptive fetch size. The fetch size is
+	 * this size divided by the estimated row width.
+	 *
+	 * @return the size in bytes
+	 */
+	public int getFetchBufferSize()
+	{
+		return fetchBufferSize;
+	}
+	
+	/**
+	 * @param fetchBufferSize the target size of one fetch of a {@link FirebirdCursor} in bytes
+	 * @see #getFetchBufferSize()
+	 */
+	public void setFetchBufferSize(int fetchBufferSize)
+	{
+		if(fetchBufferSize <= 0)
+		{
+			throw new IllegalArgumentException("fetchBufferSize must be positive");
+		}
+		this.fetchBufferSize = fetchBufferSize;
+	}
+	
+	/**
+	 * @return the maximum count of prepared statements cached per pooled physical connection
+	 */
+	public int getStatementCacheSize()
+	{
+		return statementCacheSize;
+	}
+	
+	/**
+	 * @param statementCacheSize the maximum count of prepared statements cached per pooled physical connection,
+	 *                           <code>0</code> disables the cache
+	 */
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		if(statementCacheSize < 0)
+		{
+			throw new IllegalArgumentException("statementCacheSize must not be negative");
+		}
+		this.statementCacheSize = statementCacheSize;
+		invalidateStatementCaches();
+	}
+	
+	/**
+	 * @return the maximum summed length of the SQL texts cached per pooled physical connection
+	 */
+	public long getStatementCacheWeight()
+	{
+		return statementCacheWeight;
+	}
+	
+	/**
+	 * @param statementCacheWeight the maximum summed length of the SQL texts cached per pooled physical connection
+	 */
+	public void setStatementCacheWeight(long statementCacheWeight)
+	{
+		if(statementCacheWeight < 0)
+		{
+			throw new IllegalArgumentException("statementCacheWeight must not be negative");
+		}
+		this.statementCacheWeight = statementCacheWeight;
+		invalidateStatementCaches();
+	}
+	
+	/**
+	 * @return the hit, miss and eviction counters of the statement caches of this data source
+	 */
+	public FirebirdStatementCache.Statistics getStatementCacheStatistics()
+	{
+		return statementCacheStatistics;
+	}
+	
+	/**
+	 * Returns the statement cache of a connection.
+	 * <p>
+	 * Only pooled connections live long enough to reuse statements, their caches are kept until the pool closes
+	 * the physical connection. Other connections get a cache which closes every statement on release.
+	 *
+	 * @param connection the connection
+	 * @return the statement cache of <code>connection</code>
+	 */
+	FirebirdStatementCache getStatementCache(Connection connection)
+	{
+		Connection physical = FirebirdConnectionPool.physical(connection);
+		if(physical == connection)
+		{
+			return new FirebirdStatementCache(connection, 0, 0, statementCacheStatistics);
+		}
+		return getPooledStatementCache(physical);
+	}
+	
+	/**
+	 * @param physical a physical connection of the {@link FirebirdConnectionPool}
+	 * @return the statement cache of <code>physical</code>
+	 */
+	FirebirdStatementCache getPooledStatementCache(Connection physical)
+	{
+		return statementCaches.computeIfAbsent(physical, c -> new FirebirdStatementCache(c,
+			statementCacheSize, statementCacheWeight, statementCacheStatistics));
+	}
+	
+	/**
+	 * Drops the statement cache of a pooled physical connection which is about to be closed.
+	 *
+	 * @param connection the physical connection
+	 */
+	void removeStatementCache(Connection connection)
+	{
+		FirebirdStatementCache cache = statementCaches.remove(connection);
+		if(cache != null)
+		{
+			cache.invalidate();
+		}
+	}
+	
+	/**
+	 * Closes all cached statements. Must be called after DDL, as cached statements may refer to changed or dropped
+	 * objects.
+	 */
+	public void invalidateStatementCaches()
+	{
+		for(Iterator<FirebirdStatementCache> it = statementCaches.values().iterator(); it.hasNext(); )
+		{
+			it.next().invalidate();
+			it.remove();
+		}
+	}
+	
+	/**
+	 * Returns the connection pool of this data source, if pooling is enabled by the {@link #POOLED} parameter.
+	 *
+	 * @return the connection pool or <code>null</code> if pooling is disabled
+	 */
+	public FirebirdConnectionPool getConnectionPool()
+	{
+		FirebirdConnectionPool pool = connectionPool;
+		if(pool == null && Boolean.TRUE.equals(getParameterValue(POOLED)))
+		{
+			lock.lock();
+			try
+			{
+				pool = connectionPool;
+				if(pool == null)
+				{
+					pool = new FirebirdConnectionPool(this, getParameterValue(POOL_MIN_IDLE),
+						getParameterValue(POOL_MAX_IDLE), getParameterValue(POOL_MAX_SIZE),
+						getParameterValue(POOL_MAX_LIFETIME), getParameterValue(POOL_LEAK_DETECTION_THRESHOLD),
+						getParameterValue(POOL_BORROW_TIMEOUT));
+					connectionPool = pool;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		return pool;
+	}
+	
+	/**
+	 * Closes the connection pool, if there is one. The next connection request creates a new pool with the current
+	 * parameters.
+	 */
+	public void closeConnectionPool()
+	{
+		FirebirdConnectionPool pool;
+		lock.lock();
+		try
+		{
+			pool = connectionPool;
+			connectionPool = null;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		if(pool != null)
+		{
+			pool.close();
+		}
+	}
+	
+	/**
+	 * Returns the executor of the asynchronous calls of {@link FirebirdAsyncConnection}s, which is created on
+	 * first use with the {@link #ASYNC_MAX_IN_FLIGHT} limit.
+	 *
+	 * @return the executor
+	 */
+	public FirebirdAsyncExecutor getAsyncExecutor()
+	{
+		FirebirdAsyncExecutor executor = asyncExecutor;
+		if(executor == null)
+		{
+			lock.lock();
+			try
+			{
+				executor = asyncExecutor;
+				if(executor == null)
+				{
+					executor = new FirebirdAsyncExecutor(getParameterValue(ASYNC_MAX_IN_FLIGHT));
+					asyncExecutor = executor;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * Shuts the async executor down after the submitted calls. The next asynchronous call creates a new one.
+	 */
+	public void closeAsyncExecutor()
+	{
+		FirebirdAsyncExecutor executor;
+		lock.lock();
+		try
+		{
+			executor = asyncExecutor;
+			asyncExecutor = null;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		if(executor != null)
+		{
+			executor.close();
+		}
+	}
+	
+	/**
+	 * Returns a connection from the pool or, if pooling is disabled, a new physical connection. The connection
+	 * must be closed by the caller.
+	 *
+	 * @return the connection
+	 * @throws SQLException if no connection could be obtained
+	 */
+	Connection borrowConnection() throws SQLException
+	{
+		FirebirdConnectionPool pool = getConnectionPool();
+		long start = System.nanoTime();
+		Connection connection = pool != null ? pool.borrow() : openPhysicalConnection();
+		instrumentation.connectionAcquired(System.nanoTime() - start);
+		return applyTransactionProfile(detectServerVersion(connection),
+			getDefaultTransactionProfile());
+	}
+	
+	/**
+	 * Records the server version of the first connection in the {@link FirebirdDbms}.
+	 *
+	 * @param connection a connection
+	 * @return <code>connection</code>
+	 * @throws SQLException if the version can't be read
+	 */
+	Connection detectServerVersion(Connection connection) throws SQLException
+	{
+		FirebirdDbms dbms = getDbmsAdaptor();
+		if(dbms.getServerMajorVersion() == 0)
+		{
+			dbms.setServerMajorVersion(connection.getMetaData().getDatabaseMajorVersion());
+		}
+		return connection;
+	}
+	
+	Connection openPhysicalConnection() throws SQLException
+	{
+		return getConnectionProvider().getConnection();
+	}
+	
+	/**
+	 * @return the cache of the stored procedures of this data source
+	 */
+	public FirebirdProcedureCache getProcedureCache()
+	{
+		return procedureCache;
+	}
+	
+	/**
+	 * Returns the columns and indices of all user tables. The snapshot is read once and memoized until DDL is
+	 * executed through this data source or {@link #invalidateSchemaSnapshot()} is called.
+	 *
+	 * @return the schema snapshot
+	 * @throws DBException if the system tables can't be read
+	 */
+	public FirebirdSchemaSnapshot getSchemaSnapshot() throws DBException
+	{
+		FirebirdSchemaSnapshot snapshot = schemaSnapshot;
+		if(snapshot == null)
+		{
+			try(Connection connection = borrowConnection())
+			{
+				snapshot = FirebirdSchemaSnapshot.load(connection, getDbmsAdaptor().getRetrospectionAccessor());
+			}
+			catch(SQLException e)
+			{
+				throw new DBException(this, e);
+			}
+			schemaSnapshot = snapshot;
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Discards the memoized {@link #getSchemaSnapshot() schema snapshot}.
+	 */
+	public void invalidateSchemaSnapshot()
+	{
+		schemaSnapshot = null;
+	}
+	
+	/**
+	 * Discards everything which depends on the database schema after DDL has been executed.
+	 */
+	void ddlExecuted()
+	{
+		invalidateStatementCaches();
+		invalidateSchemaSnapshot();
 	}
 	
 	@Override
@@ -34,14 +731,31 @@ public class FirebirdJDBCDataSource extends JDBCDataSource<FirebirdJDBCDataSourc
 		return new Parameter[]{
 			HOST.clone(), PORT.clone(3050), USERNAME.clone("sysdba"),
 			PASSWORD.clone(), CATALOG.clone(), URL_EXTENSION.clone(),
-			IS_SERVER_DATASOURCE.clone(), SERVER_URL.clone(), AUTH_KEY.clone()};
+			IS_SERVER_DATASOURCE.clone(), SERVER_URL.clone(), AUTH_KEY.clone(),
+			POOLED.clone(), POOL_MIN_IDLE.clone(), POOL_MAX_IDLE.clone(), POOL_MAX_SIZE.clone(),
+			POOL_MAX_LIFETIME.clone(), POOL_LEAK_DETECTION_THRESHOLD.clone(), POOL_BORROW_TIMEOUT.clone(),
+			TRANSACTION_PROFILE.clone(), TRANSACTION_PROFILES.clone(), ASYNC_MAX_IN_FLIGHT.clone(),
+			CONNECTION_TUNING.clone(), CONNECTION_MODE.clone()};
 	}
 	
 	@Override
 	protected FirebirdConnectionInformation getConnectionInformation()
 	{
-		return new FirebirdConnectionInformation(getHost(), getPort(), getUserName(), getPassword()
-			.getPlainText(), getCatalog(), getUrlExtension(), getDbmsAdaptor());
+		FirebirdConnectionInformation information = new FirebirdConnectionInformation(getHost(), getPort(),
+			getUserName(), getPassword().getPlainText(), getCatalog(), getUrlExtension(), getDbmsAdaptor());
+		information.setTuning(getConnectionTuning());
+		information.setMode(FirebirdConnectionMode.parse(getParameterValue(CONNECTION_MODE)));
+		return information;
+	}
+	
+	/**
+	 * @return the tuning of {@link #CONNECTION_TUNING}
+	 * @throws IllegalArgumentException if the parameter is invalid
+	 */
+	public FirebirdConnectionTuning getConnectionTuning()
+	{
+		String definition = getParameterValue(CONNECTION_TUNING);
+		return definition == null ? FirebirdConnectionTuning.DEFAULT : FirebirdConnectionTuning.parse(definition);
 	}
 	
 	@Override
@@ -56,9 +770,36 @@ public class FirebirdJDBCDataSource extends JDBCDataSource<FirebirdJDBCDataSourc
 		return new FirebirdJDBCMetaData(this);
 	}
 	
+	/**
+	 * Not supported through xapi's export, use {@link #createTableExporter()}.
+	 */
 	@Override
 	public boolean canExport()
 	{
 		return false;
 	}
+	
+	/**
+	 * @return a new exporter of tables of this data source into CSV or binary files
+	 */
+	public FirebirdTableExporter createTableExporter()
+	{
+		return new FirebirdTableExporter(this);
+	}
+	
+	/**
+	 * @return a new bulk loader of tables of this data source
+	 */
+	public FirebirdTableImporter createTableImporter()
+	{
+		return new FirebirdTableImporter(this);
+	}
+	
+	/**
+	 * @return a new change data capture of tables of this data source
+	 */
+	public FirebirdChangeCapture createChangeCapture()
+	{
+		return new FirebirdChangeCapture(this);
+	}
 }
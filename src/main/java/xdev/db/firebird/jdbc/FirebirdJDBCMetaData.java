@@ -26,8 +26,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.xdev.jadoth.sqlengine.interfaces.ConnectionProvider;
-
 import xdev.db.ColumnMetaData;
 import xdev.db.DBException;
 import xdev.db.DataType;
@@ -55,12 +53,19 @@ public class FirebirdJDBCMetaData extends JDBCMetaData
 	private static final String DATA_TYPE = "DATA_TYPE";
 	private static final String REMARKS = "REMARKS";
 	
+	private final FirebirdJDBCDataSource firebirdDataSource;
+	
 	public FirebirdJDBCMetaData(FirebirdJDBCDataSource dataSource) throws DBException
 	{
 		super(dataSource);
+		firebirdDataSource = dataSource;
 	}
 	
 	/**
+	 * Reads the stored procedures through the {@link FirebirdProcedureCache} of the data source. Servers before
+	 * Firebird 3, whose system tables lack <code>RDB$PACKAGE_NAME</code>, are read through the generic
+	 * {@link DatabaseMetaData}.
+	 *
 	 * @since 4.0 if Procedure_Type value=2, ReturnType is set to void. It is not as designed!
 	 */
 	@Override
@@ -68,28 +73,17 @@ public class FirebirdJDBCMetaData extends JDBCMetaData
 	{
 		monitor.beginTask("", ProgressMonitor.UNKNOWN);
 		
-		List<StoredProcedure> list = new ArrayList<>();
-		
 		try
 		{
-			ConnectionProvider connectionProvider = dataSource.getConnectionProvider();
-			Connection connection = connectionProvider.getConnection();
-			
+			Connection connection = firebirdDataSource.borrowConnection();
 			try
 			{
-				DatabaseMetaData meta = connection.getMetaData();
-				
-				String catalog = getCatalog(dataSource);
-				String schema = getSchema(dataSource);
-				
-				// Stored Procedures
-				ResultSet procedures = meta.getProcedures(catalog, schema, null);
-				ResultSet procedureColumns = meta.getProcedureColumns(catalog, schema, null, null);
-				
-				Map<String, List<JDBCColumnsMetaData>> procedureColumnsMap = columnsResultSetToMap(procedureColumns);
-				addStoredProcedures(list, procedures, procedureColumnsMap);
-				procedures.close();
-				procedureColumns.close();
+				firebirdDataSource.detectServerVersion(connection);
+				if(firebirdDataSource.getDbmsAdaptor().getServerMajorVersion() < 3)
+				{
+					return getStoredProcedures(connection);
+				}
+				return firebirdDataSource.getProcedureCache().refresh(connection);
 			}
 			finally
 			{
@@ -100,13 +94,37 @@ public class FirebirdJDBCMetaData extends JDBCMetaData
 		{
 			throw new DBException(dataSource, e);
 		}
+		finally
+		{
+			monitor.done();
+		}
+	}
+	
+	private StoredProcedure[] getStoredProcedures(Connection connection) throws SQLException
+	{
+		List<StoredProcedure> list = new ArrayList<>();
+		
+		DatabaseMetaData meta = connection.getMetaData();
 		
-		monitor.done();
+		String catalog = getCatalog(dataSource);
+		String schema = getSchema(dataSource);
+		
+		// Stored Procedures
+		try(ResultSet procedures = meta.getProcedures(catalog, schema, null);
+			ResultSet procedureColumns = meta.getProcedureColumns(catalog, schema, null, null))
+		{
+			Map<String, List<JDBCColumnsMetaData>> procedureColumnsMap = columnsResultSetToMap(procedureColumns);
+			addStoredProcedures(list, procedures, procedureColumnsMap);
+		}
 		
 		return list.toArray(new StoredProcedure[list.size()]);
 	}
 	
-	private Map<String, List<JDBCColumnsMetaData>> columnsResultSetToMap(ResultSet resultSet)
+	/**
+	 * Groups the rows of {@link DatabaseMetaData#getProcedureColumns(String, String, String, String)} by procedure
+	 * name, without the system procedures, and closes the result set.
+	 */
+	Map<String, List<JDBCColumnsMetaData>> columnsResultSetToMap(ResultSet resultSet)
 		throws SQLException
 	{
 		Map<String, List<JDBCColumnsMetaData>> resultMap = new HashMap<String, List<JDBCColumnsMetaData>>();
@@ -127,23 +145,8 @@ public class FirebirdJDBCMetaData extends JDBCMetaData
 			
 			DataType dataType = DataType.get(resultSet.getInt(DATA_TYPE));
 			
-			if(resultMap.containsKey(name))
-			{
-				List<JDBCColumnsMetaData> metaDataList = resultMap.get(name);
-				JDBCColumnsMetaData metaData = new JDBCColumnsMetaData(dataType, columnType,
-					columnName);
-				
-				metaDataList.add(metaData);
-			}
-			else
-			{
-				List<JDBCColumnsMetaData> metaDataList = new ArrayList<JDBCColumnsMetaData>();
-				JDBCColumnsMetaData metaData = new JDBCColumnsMetaData(dataType, columnType,
-					columnName);
-				metaDataList.add(metaData);
-				
-				resultMap.put(name, metaDataList);
-			}
+			resultMap.computeIfAbsent(name, k -> new ArrayList<JDBCColumnsMetaData>())
+				.add(new JDBCColumnsMetaData(dataType, columnType, columnName));
 		}
 		resultSet.close();
 		return resultMap;
@@ -0,0 +1,161 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Reserved and non-reserved keywords of Firebird 3, 4 and 5.
+ * <p>
+ * Reserved words can only be used as identifiers if delimited, non-reserved keywords can be used as is. The sets of
+ * a version include those of the previous versions. Unknown versions (<code>0</code>) and versions newer than the
+ * newest known get the newest sets, older versions those of Firebird 3.
+ */
+public final class FirebirdKeywords
+{
+	/**
+	 * Oldest version with own keyword sets.
+	 */
+	public static final int MIN_VERSION = 3;
+	
+	/**
+	 * Newest version with own keyword sets.
+	 */
+	public static final int MAX_VERSION = 5;
+	
+	private static final String RESERVED_3 = "ADD ADMIN ALL ALTER AND ANY AS AT AVG BEGIN BETWEEN " //$NON-NLS-1$
+		+ "BIGINT BIT_LENGTH BLOB BOOLEAN BOTH BY CASE CAST CHAR CHAR_LENGTH CHARACTER " //$NON-NLS-1$
+		+ "CHARACTER_LENGTH CHECK CLOSE COLLATE COLUMN COMMIT CONNECT CONSTRAINT CORR COUNT " //$NON-NLS-1$
+		+ "COVAR_POP COVAR_SAMP CREATE CROSS CURRENT CURRENT_CONNECTION CURRENT_DATE CURRENT_ROLE " //$NON-NLS-1$
+		+ "CURRENT_TIME CURRENT_TIMESTAMP CURRENT_TRANSACTION CURRENT_USER CURSOR DATE DAY DEC " //$NON-NLS-1$
+		+ "DECIMAL DECLARE DEFAULT DELETE DELETING DETERMINISTIC DISCONNECT DISTINCT DOUBLE DROP " //$NON-NLS-1$
+		+ "ELSE END ESCAPE EXECUTE EXISTS EXTERNAL EXTRACT FALSE FETCH FILTER FLOAT FOR FOREIGN FROM " //$NON-NLS-1$
+		+ "FULL FUNCTION GDSCODE GLOBAL GRANT GROUP HAVING HOUR IN INDEX INNER INSENSITIVE INSERT " //$NON-NLS-1$
+		+ "INSERTING INT INTEGER INTO IS JOIN LEADING LEFT LIKE LONG LOWER MAX MERGE MIN MINUTE " //$NON-NLS-1$
+		+ "MONTH NATIONAL NATURAL NCHAR NO NOT NULL NUMERIC OCTET_LENGTH OF OFFSET ON ONLY OPEN OR " //$NON-NLS-1$
+		+ "ORDER OUTER OVER PARAMETER PLAN POSITION POST_EVENT PRECISION PRIMARY PROCEDURE " //$NON-NLS-1$
+		+ "RDB$DB_KEY RDB$RECORD_VERSION REAL RECORD_VERSION RECREATE RECURSIVE REFERENCES REGR_AVGX " //$NON-NLS-1$
+		+ "REGR_AVGY REGR_COUNT REGR_INTERCEPT REGR_R2 REGR_SLOPE REGR_SXX REGR_SXY REGR_SYY RELEASE " //$NON-NLS-1$
+		+ "RETURN RETURNING_VALUES RETURNS REVOKE RIGHT ROLLBACK ROW ROW_COUNT ROWS SAVEPOINT SCROLL " //$NON-NLS-1$
+		+ "SECOND SELECT SENSITIVE SET SIMILAR SMALLINT SOME SQLCODE SQLSTATE START STDDEV_POP " //$NON-NLS-1$
+		+ "STDDEV_SAMP SUM TABLE THEN TIME TIMESTAMP TO TRAILING TRIGGER TRIM TRUE UNION UNIQUE " //$NON-NLS-1$
+		+ "UNKNOWN UPDATE UPDATING UPPER USER USING VALUE VALUES VAR_POP VAR_SAMP VARCHAR VARIABLE " //$NON-NLS-1$
+		+ "VARYING VIEW WHEN WHERE WHILE WITH YEAR"; //$NON-NLS-1$
+	
+	private static final String RESERVED_4 = "BINARY DECFLOAT INT128 LATERAL LOCAL LOCALTIME " //$NON-NLS-1$
+		+ "LOCALTIMESTAMP PUBLICATION RESETTING TIMEZONE_HOUR TIMEZONE_MINUTE UNBOUNDED VARBINARY " //$NON-NLS-1$
+		+ "WINDOW WITHOUT"; //$NON-NLS-1$
+	
+	private static final String RESERVED_5 = ""; //$NON-NLS-1$
+	
+	private static final String NON_RESERVED_3 = "ABS ACCENT ACOS ACOSH ACTION ACTIVE AFTER ALWAYS " //$NON-NLS-1$
+		+ "ASC ASCENDING ASCII_CHAR ASCII_VAL ASIN ASINH ATAN ATAN2 ATANH AUTO AUTONOMOUS BACKUP " //$NON-NLS-1$
+		+ "BEFORE BIN_AND BIN_NOT BIN_OR BIN_SHL BIN_SHR BIN_XOR BLOCK BODY BREAK BURST CALLER " //$NON-NLS-1$
+		+ "CASCADE CEIL CEILING CHAR_TO_UUID COALESCE COLLATION COMMENT COMMITTED COMMON COMPUTED " //$NON-NLS-1$
+		+ "CONDITIONAL CONTAINING CONTINUE COS COSH COT CSTRING CUME_DIST DATA DATABASE DATEADD " //$NON-NLS-1$
+		+ "DATEDIFF DDL DECODE DECRYPT DENSE_RANK DESC DESCENDING DESCRIPTOR DIFFERENCE DO DOMAIN " //$NON-NLS-1$
+		+ "ENCRYPT ENGINE ENTRY_POINT EXCEPTION EXIT EXP FIRST FIRST_VALUE FIRSTNAME FREE_IT GEN_ID " //$NON-NLS-1$
+		+ "GEN_UUID GENERATED GENERATOR GRANTED HASH IDENTITY IGNORE IIF IN_PLACE INACTIVE INCREMENT " //$NON-NLS-1$
+		+ "INPUT_TYPE ISOLATION KEY LAG LAST LAST_VALUE LASTNAME LEAD LEAVE LENGTH LEVEL LIMBO " //$NON-NLS-1$
+		+ "LINGER LIST LN LOCK LOG LOG10 LPAD MANUAL MAPPING MATCHED MATCHING MAXVALUE MIDDLENAME " //$NON-NLS-1$
+		+ "MILLISECOND MINVALUE MOD MODULE_NAME NAME NAMES NEXT NTH_VALUE NTILE NULLIF NULLS OLDEST " //$NON-NLS-1$
+		+ "OPTION OS_NAME OUTPUT_TYPE OVERFLOW OVERLAY PACKAGE PAD PAGE PAGE_SIZE PAGES PARTITION " //$NON-NLS-1$
+		+ "PASSWORD PERCENT_RANK PI PLACING PLUGIN POWER PRESERVE PRIOR PRIVILEGES PROTECTED RAND " //$NON-NLS-1$
+		+ "RANK READ REPLACE REQUESTS RESERV RESERVING RESTART RESTRICT RETAIN RETURNING REVERSE " //$NON-NLS-1$
+		+ "ROLE ROUND ROW_NUMBER RPAD SCALAR_ARRAY SCHEMA SEGMENT SEQUENCE SERVERWIDE SHADOW SHARED " //$NON-NLS-1$
+		+ "SIGN SIN SINGULAR SINH SIZE SKIP SNAPSHOT SORT SOURCE SPACE SQRT STABILITY STARTING " //$NON-NLS-1$
+		+ "STARTS STATEMENT STATISTICS SUB_TYPE SUBSTRING SUSPEND TAN TANH TEMPORARY TRANSACTION " //$NON-NLS-1$
+		+ "TRUNC TWO_PHASE TYPE UNCOMMITTED UNDO USAGE UUID_TO_CHAR WAIT WEEK WEEKDAY WORK WRITE " //$NON-NLS-1$
+		+ "YEARDAY"; //$NON-NLS-1$
+	
+	private static final String NON_RESERVED_4 = "BASE64_DECODE BASE64_ENCODE BIND CLEAR " //$NON-NLS-1$
+		+ "COMPARE_DECFLOAT CONNECTIONS CONSISTENCY COUNTER CRYPT_HASH CTR_BIG_ENDIAN CTR_LENGTH " //$NON-NLS-1$
+		+ "CTR_LITTLE_ENDIAN DEFINER DISABLE ENABLE EXCESS EXCLUDE EXTENDED FIRST_DAY FOLLOWING " //$NON-NLS-1$
+		+ "HEX_DECODE HEX_ENCODE IDLE INCLUDE INVOKER IV LAST_DAY LEGACY LIFETIME LPARAM MAKE_DBKEY " //$NON-NLS-1$
+		+ "MESSAGE MODE NATIVE NORMALIZE_DECFLOAT NUMBER OTHERS OVERRIDING PRECEDING QUANTIZE RANGE " //$NON-NLS-1$
+		+ "RESET RSA_DECRYPT RSA_ENCRYPT RSA_PRIVATE RSA_PUBLIC RSA_SIGN_HASH RSA_VERIFY_HASH " //$NON-NLS-1$
+		+ "SALT_LENGTH SECURITY SESSION SIGNATURE SQL SYSTEM TIES TIMEZONE_NAME TOTALORDER TRAPS " //$NON-NLS-1$
+		+ "ZONE"; //$NON-NLS-1$
+	
+	private static final String NON_RESERVED_5 = "BLOB_APPEND LOCKED TARGET UNICODE_CHAR UNICODE_VAL"; //$NON-NLS-1$
+	
+	private static final Set<String>[] RESERVED = cumulate(RESERVED_3, RESERVED_4, RESERVED_5);
+	private static final Set<String>[] NON_RESERVED = cumulate(NON_RESERVED_3, NON_RESERVED_4, NON_RESERVED_5);
+	
+	private FirebirdKeywords()
+	{
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Set<String>[] cumulate(final String... versions)
+	{
+		final Set<String>[] sets = new Set[versions.length];
+		final Set<String> words = new TreeSet<>();
+		for(int i = 0; i < versions.length; i++)
+		{
+			if(!versions[i].isEmpty())
+			{
+				words.addAll(Arrays.asList(versions[i].split(" "))); //$NON-NLS-1$
+			}
+			sets[i] = Collections.unmodifiableSet(new TreeSet<>(words));
+		}
+		return sets;
+	}
+	
+	private static int index(final int majorVersion)
+	{
+		if(majorVersion == 0 || majorVersion > MAX_VERSION)
+		{
+			return MAX_VERSION - MIN_VERSION;
+		}
+		return Math.max(majorVersion, MIN_VERSION) - MIN_VERSION;
+	}
+	
+	/**
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 * @return the upper case reserved words of the version
+	 */
+	public static Set<String> getReservedWords(final int majorVersion)
+	{
+		return RESERVED[index(majorVersion)];
+	}
+	
+	/**
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 * @return the upper case non-reserved keywords of the version
+	 */
+	public static Set<String> getNonReservedWords(final int majorVersion)
+	{
+		return NON_RESERVED[index(majorVersion)];
+	}
+	
+	/**
+	 * @param identifier   the identifier, case insensitive
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 * @return <code>true</code> if <code>identifier</code> is reserved in the version
+	 */
+	public static boolean isReserved(final String identifier, final int majorVersion)
+	{
+		return getReservedWords(majorVersion).contains(identifier.toUpperCase(Locale.ROOT));
+	}
+}
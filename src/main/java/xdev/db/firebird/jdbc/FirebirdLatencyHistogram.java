@@ -0,0 +1,149 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * The buckets are logarithmic with 8 linear sub-buckets per power of two, so every recorded value is off by at
+ * most 12.5 percent. Recording is one array increment and two adder updates, without allocation.
+ */
+public class FirebirdLatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+	
+	/**
+	 * @param nanos the duration, negative values are recorded as 0
+	 */
+	public void record(final long nanos)
+	{
+		final long value = Math.max(nanos, 0);
+		this.counts.incrementAndGet(index(value));
+		this.count.increment();
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+	
+	/**
+	 * @return the count of recorded values
+	 */
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+	
+	/**
+	 * @return the mean in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getMean()
+	{
+		final long n = this.count.sum();
+		return n == 0 ? 0 : this.sum.sum() / n;
+	}
+	
+	/**
+	 * @return the maximum in nanoseconds
+	 */
+	public long getMax()
+	{
+		return this.max.get();
+	}
+	
+	/**
+	 * The value is read without stopping concurrent recording, so it is approximate while values are recorded.
+	 *
+	 * @param percentile the percentile, 0 to 100
+	 * @return the upper bound of the bucket of the percentile in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getPercentile(final double percentile)
+	{
+		if(percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			total += this.counts.get(i);
+		}
+		if(total == 0)
+		{
+			return 0;
+		}
+		
+		final long rank = Math.max(1, (long)Math.ceil(total * percentile / 100));
+		long cumulative = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			cumulative += this.counts.get(i);
+			if(cumulative >= rank)
+			{
+				return Math.min(upperBound(i), this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+	
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			this.counts.set(i, 0);
+		}
+		this.count.reset();
+		this.sum.reset();
+		this.max.reset();
+	}
+	
+	private static int index(final long value)
+	{
+		if(value < SUB_BUCKETS)
+		{
+			return (int)value;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+	
+	private static long upperBound(final int index)
+	{
+		if(index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		final long subBucket = SUB_BUCKETS + index % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
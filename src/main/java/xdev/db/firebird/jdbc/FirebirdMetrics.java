@@ -0,0 +1,250 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * In-memory {@link FirebirdInstrumentation}: latency histograms per statement shape, row counters, connection
+ * acquisition timings and error counts per Firebird GDS code.
+ * <p>
+ * Statements are keyed by their text, which is the shape of the statement as long as the values are passed as
+ * parameters. At most {@value #MAX_SHAPES} shapes are tracked, further statements are recorded as
+ * {@value #OTHER_SHAPE}.
+ * <p>
+ * Recording doesn't lock or allocate once a shape is known: {@link #snapshot()} and the JMX attributes read the
+ * counters while they are updated.
+ */
+public class FirebirdMetrics implements FirebirdInstrumentation, FirebirdMetricsMXBean
+{
+	public static final int MAX_SHAPES = 512;
+	
+	public static final String OTHER_SHAPE = "<other>"; //$NON-NLS-1$
+	
+	private final Map<String, FirebirdLatencyHistogram> statements = new ConcurrentHashMap<>();
+	private final FirebirdLatencyHistogram otherStatements = new FirebirdLatencyHistogram();
+	private final FirebirdLatencyHistogram connectionAcquire = new FirebirdLatencyHistogram();
+	private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+	private final LongAdder affectedRows = new LongAdder();
+	private final LongAdder rowsFetched = new LongAdder();
+	
+	@Override
+	public void connectionAcquired(final long nanos)
+	{
+		this.connectionAcquire.record(nanos);
+	}
+	
+	@Override
+	public void statementExecuted(final String sql, final long nanos, final long affectedRows)
+	{
+		this.histogram(sql).record(nanos);
+		if(affectedRows > 0)
+		{
+			this.affectedRows.add(affectedRows);
+		}
+	}
+	
+	@Override
+	public void statementFailed(final String sql, final long nanos, final Throwable error)
+	{
+		this.histogram(sql).record(nanos);
+		this.errors.computeIfAbsent(FirebirdExceptionParser.getErrorCode(error), code -> new LongAdder())
+			.increment();
+	}
+	
+	@Override
+	public void rowsFetched(final String sql, final long rows)
+	{
+		this.rowsFetched.add(rows);
+	}
+	
+	private FirebirdLatencyHistogram histogram(final String sql)
+	{
+		final FirebirdLatencyHistogram histogram = this.statements.get(sql);
+		if(histogram != null)
+		{
+			return histogram;
+		}
+		if(this.statements.size() >= MAX_SHAPES)
+		{
+			return this.otherStatements;
+		}
+		return this.statements.computeIfAbsent(sql, key -> new FirebirdLatencyHistogram());
+	}
+	
+	/**
+	 * @return a copy of the current values
+	 */
+	public FirebirdMetricsSnapshot snapshot()
+	{
+		final Map<String, FirebirdMetricsSnapshot.Latency> statements = new LinkedHashMap<>();
+		this.statements.forEach((sql, histogram) -> statements.put(sql, new FirebirdMetricsSnapshot.Latency(
+			histogram)));
+		if(this.otherStatements.getCount() > 0)
+		{
+			statements.put(OTHER_SHAPE, new FirebirdMetricsSnapshot.Latency(this.otherStatements));
+		}
+		
+		return new FirebirdMetricsSnapshot(statements, new FirebirdMetricsSnapshot.Latency(
+			this.connectionAcquire), this.getErrorCounts(), this.affectedRows.sum(), this.rowsFetched.sum());
+	}
+	
+	/**
+	 * Registers these metrics at the platform MBean server as
+	 * <code>xdev.db.firebird:type=Metrics,name=&lt;name&gt;</code>.
+	 *
+	 * @param name the name of the data source
+	 * @return the name of the MBean
+	 * @throws JMException if the MBean can't be registered, e.g. because the name is in use
+	 */
+	public ObjectName registerMBean(final String name) throws JMException
+	{
+		final ObjectName objectName = createObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+	
+	/**
+	 * @param name the name passed to {@link #registerMBean(String)}
+	 * @throws JMException if the MBean can't be unregistered
+	 */
+	public void unregisterMBean(final String name) throws JMException
+	{
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName objectName = createObjectName(name);
+		if(server.isRegistered(objectName))
+		{
+			server.unregisterMBean(objectName);
+		}
+	}
+	
+	private static ObjectName createObjectName(final String name) throws JMException
+	{
+		return new ObjectName("xdev.db.firebird:type=Metrics,name=" + ObjectName.quote(name)); //$NON-NLS-1$
+	}
+	
+	@Override
+	public long getStatementCount()
+	{
+		long count = this.otherStatements.getCount();
+		for(final FirebirdLatencyHistogram histogram : this.statements.values())
+		{
+			count += histogram.getCount();
+		}
+		return count;
+	}
+	
+	@Override
+	public long getErrorCount()
+	{
+		long count = 0;
+		for(final LongAdder adder : this.errors.values())
+		{
+			count += adder.sum();
+		}
+		return count;
+	}
+	
+	@Override
+	public long getAffectedRows()
+	{
+		return this.affectedRows.sum();
+	}
+	
+	@Override
+	public long getRowsFetched()
+	{
+		return this.rowsFetched.sum();
+	}
+	
+	@Override
+	public long getConnectionAcquireCount()
+	{
+		return this.connectionAcquire.getCount();
+	}
+	
+	@Override
+	public long getConnectionAcquireMeanMicros()
+	{
+		return TimeUnit.NANOSECONDS.toMicros(this.connectionAcquire.getMean());
+	}
+	
+	@Override
+	public long getConnectionAcquireP99Micros()
+	{
+		return TimeUnit.NANOSECONDS.toMicros(this.connectionAcquire.getPercentile(99));
+	}
+	
+	@Override
+	public Map<String, Long> getStatementCounts()
+	{
+		final Map<String, Long> counts = new TreeMap<>();
+		this.statements.forEach((sql, histogram) -> counts.put(sql, histogram.getCount()));
+		if(this.otherStatements.getCount() > 0)
+		{
+			counts.put(OTHER_SHAPE, this.otherStatements.getCount());
+		}
+		return counts;
+	}
+	
+	@Override
+	public Map<String, Long> getStatementP99Micros()
+	{
+		final Map<String, Long> percentiles = new TreeMap<>();
+		this.statements.forEach((sql, histogram) -> percentiles.put(sql, TimeUnit.NANOSECONDS.toMicros(histogram
+			.getPercentile(99))));
+		if(this.otherStatements.getCount() > 0)
+		{
+			percentiles.put(OTHER_SHAPE, TimeUnit.NANOSECONDS.toMicros(this.otherStatements.getPercentile(99)));
+		}
+		return percentiles;
+	}
+	
+	@Override
+	public Map<Integer, Long> getErrorCounts()
+	{
+		final Map<Integer, Long> errors = new TreeMap<>();
+		this.errors.forEach((code, count) -> errors.put(code, count.sum()));
+		return errors;
+	}
+	
+	/**
+	 * Clears all values and forgets the statement shapes.
+	 */
+	@Override
+	public void reset()
+	{
+		this.statements.clear();
+		this.otherStatements.reset();
+		this.connectionAcquire.reset();
+		this.errors.clear();
+		this.affectedRows.reset();
+		this.rowsFetched.reset();
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Map;
+
+
+/**
+ * JMX view of {@link FirebirdMetrics}. Durations are in microseconds.
+ */
+public interface FirebirdMetricsMXBean
+{
+	public long getStatementCount();
+	
+	
+	public long getErrorCount();
+	
+	
+	public long getAffectedRows();
+	
+	
+	public long getRowsFetched();
+	
+	
+	public long getConnectionAcquireCount();
+	
+	
+	public long getConnectionAcquireMeanMicros();
+	
+	
+	public long getConnectionAcquireP99Micros();
+	
+	
+	/**
+	 * @return the count of executions per statement shape
+	 */
+	public Map<String, Long> getStatementCounts();
+	
+	
+	/**
+	 * @return the 99th percentile of the execution time per statement shape
+	 */
+	public Map<String, Long> getStatementP99Micros();
+	
+	
+	/**
+	 * @return the count of errors per Firebird GDS code, 0 for errors without code
+	 */
+	public Map<Integer, Long> getErrorCounts();
+	
+	
+	public void reset();
+}
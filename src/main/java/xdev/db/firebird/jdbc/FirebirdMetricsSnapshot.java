@@ -0,0 +1,136 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Immutable copy of the values of {@link FirebirdMetrics} at one point in time. Durations are in nanoseconds.
+ */
+public class FirebirdMetricsSnapshot
+{
+	/**
+	 * Latency summary of one statement shape or of the connection acquisition.
+	 */
+	public static class Latency
+	{
+		private final long count;
+		private final long mean;
+		private final long p50;
+		private final long p99;
+		private final long max;
+		
+		Latency(final FirebirdLatencyHistogram histogram)
+		{
+			this.count = histogram.getCount();
+			this.mean = histogram.getMean();
+			this.p50 = histogram.getPercentile(50);
+			this.p99 = histogram.getPercentile(99);
+			this.max = histogram.getMax();
+		}
+		
+		public long getCount()
+		{
+			return this.count;
+		}
+		
+		public long getMean()
+		{
+			return this.mean;
+		}
+		
+		public long getP50()
+		{
+			return this.p50;
+		}
+		
+		public long getP99()
+		{
+			return this.p99;
+		}
+		
+		public long getMax()
+		{
+			return this.max;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "count=" + this.count + ", mean=" + this.mean + "ns, p50=" + this.p50 + "ns, p99=" + this.p99
+				+ "ns, max=" + this.max + "ns";
+		}
+	}
+	
+	private final Map<String, Latency> statements;
+	private final Latency connectionAcquire;
+	private final Map<Integer, Long> errors;
+	private final long affectedRows;
+	private final long rowsFetched;
+	
+	FirebirdMetricsSnapshot(
+		final Map<String, Latency> statements, final Latency connectionAcquire, final Map<Integer, Long> errors,
+		final long affectedRows, final long rowsFetched)
+	{
+		this.statements = Collections.unmodifiableMap(statements);
+		this.connectionAcquire = connectionAcquire;
+		this.errors = Collections.unmodifiableMap(errors);
+		this.affectedRows = affectedRows;
+		this.rowsFetched = rowsFetched;
+	}
+	
+	/**
+	 * @return the latencies per statement shape
+	 */
+	public Map<String, Latency> getStatements()
+	{
+		return this.statements;
+	}
+	
+	public Latency getConnectionAcquire()
+	{
+		return this.connectionAcquire;
+	}
+	
+	/**
+	 * @return the count of errors per Firebird GDS code, 0 for errors without code
+	 */
+	public Map<Integer, Long> getErrors()
+	{
+		return this.errors;
+	}
+	
+	public long getAffectedRows()
+	{
+		return this.affectedRows;
+	}
+	
+	public long getRowsFetched()
+	{
+		return this.rowsFetched;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "statements=" + this.statements + ", connectionAcquire=[" + this.connectionAcquire + "], errors="
+			+ this.errors + ", affectedRows=" + this.affectedRows + ", rowsFetched=" + this.rowsFetched;
+	}
+}
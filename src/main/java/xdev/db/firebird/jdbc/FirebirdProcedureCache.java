@@ -0,0 +1,304 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import xdev.db.DataType;
+import xdev.db.StoredProcedure;
+import xdev.db.StoredProcedure.Param;
+import xdev.db.StoredProcedure.ParamType;
+import xdev.db.StoredProcedure.ReturnTypeFlavor;
+
+
+/**
+ * Cache of the stored procedures of a database, read directly from <code>RDB$PROCEDURES</code> and
+ * <code>RDB$PROCEDURE_PARAMETERS</code>.
+ * <p>
+ * Each {@link #refresh(Connection)} reads a fingerprint per procedure (id, parameter counts and a hash over the
+ * parameter names and domains, aggregated in parameter order) and only reloads the procedures whose fingerprint
+ * changed. Changes of the description alone are not detected until {@link #invalidate()}.
+ */
+public class FirebirdProcedureCache
+{
+	/**
+	 * Firebird limits the members of an <code>IN</code> list to 1500.
+	 */
+	private static final int MAX_IN_LIST = 1500;
+	
+	private static final int PARAMETER_TYPE_INPUT = 0;
+	
+	private static final int OCTETS_CHARACTER_SET_ID = 1;
+	
+	private static final String USER_PROCEDURES = " WHERE COALESCE(P.RDB$SYSTEM_FLAG, 0) = 0" //$NON-NLS-1$
+		+ " AND P.RDB$PACKAGE_NAME IS NULL"; //$NON-NLS-1$
+	
+	private static final String SELECT_FINGERPRINTS = "SELECT TRIM(P.RDB$PROCEDURE_NAME)," //$NON-NLS-1$
+		+ " P.RDB$PROCEDURE_ID, P.RDB$PROCEDURE_INPUTS, P.RDB$PROCEDURE_OUTPUTS," //$NON-NLS-1$
+		+ " (SELECT HASH(LIST(PP.PARAMETER)) FROM (SELECT" //$NON-NLS-1$
+		+ " TRIM(PP.RDB$PARAMETER_NAME) || ':' || TRIM(PP.RDB$FIELD_SOURCE) AS PARAMETER" //$NON-NLS-1$
+		+ " FROM RDB$PROCEDURE_PARAMETERS PP WHERE PP.RDB$PROCEDURE_NAME = P.RDB$PROCEDURE_NAME" //$NON-NLS-1$
+		+ " AND PP.RDB$PACKAGE_NAME IS NULL" //$NON-NLS-1$
+		+ " ORDER BY PP.RDB$PARAMETER_TYPE, PP.RDB$PARAMETER_NUMBER) PP)" //$NON-NLS-1$
+		+ " FROM RDB$PROCEDURES P" + USER_PROCEDURES; //$NON-NLS-1$
+	
+	private static final String SELECT_PROCEDURES = "SELECT TRIM(P.RDB$PROCEDURE_NAME)," //$NON-NLS-1$
+		+ " P.RDB$DESCRIPTION," //$NON-NLS-1$
+		+ " TRIM(PP.RDB$PARAMETER_NAME), PP.RDB$PARAMETER_TYPE, F.RDB$FIELD_TYPE," //$NON-NLS-1$
+		+ " F.RDB$FIELD_SUB_TYPE, F.RDB$FIELD_SCALE, F.RDB$CHARACTER_SET_ID" //$NON-NLS-1$
+		+ " FROM RDB$PROCEDURES P" //$NON-NLS-1$
+		+ " LEFT JOIN RDB$PROCEDURE_PARAMETERS PP ON PP.RDB$PROCEDURE_NAME = P.RDB$PROCEDURE_NAME" //$NON-NLS-1$
+		+ " AND PP.RDB$PACKAGE_NAME IS NULL" //$NON-NLS-1$
+		+ " LEFT JOIN RDB$FIELDS F ON F.RDB$FIELD_NAME = PP.RDB$FIELD_SOURCE" //$NON-NLS-1$
+		+ USER_PROCEDURES;
+	
+	private static final String ORDER_PROCEDURES = " ORDER BY P.RDB$PROCEDURE_NAME," //$NON-NLS-1$
+		+ " PP.RDB$PARAMETER_TYPE, PP.RDB$PARAMETER_NUMBER"; //$NON-NLS-1$
+	
+	private final Map<String, Entry> procedures = new TreeMap<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/**
+	 * Brings the cache up to date and returns all stored procedures.
+	 *
+	 * @param connection the connection to read the system tables with
+	 * @return the stored procedures, ordered by name
+	 * @throws SQLException if the system tables can't be read, as on servers before Firebird 3
+	 */
+	public StoredProcedure[] refresh(final Connection connection) throws SQLException
+	{
+		this.lock.lock();
+		try
+		{
+			final Map<String, String> fingerprints = readFingerprints(connection);
+			
+			this.procedures.keySet().retainAll(fingerprints.keySet());
+			
+			final List<String> changed = new ArrayList<>();
+			for(final Map.Entry<String, String> fingerprint : fingerprints.entrySet())
+			{
+				final Entry entry = this.procedures.get(fingerprint.getKey());
+				if(entry == null || !entry.fingerprint.equals(fingerprint.getValue()))
+				{
+					changed.add(fingerprint.getKey());
+				}
+			}
+			
+			if(changed.isEmpty())
+			{
+				// up to date
+			}
+			else if(changed.size() == fingerprints.size())
+			{
+				this.load(connection, SELECT_PROCEDURES + ORDER_PROCEDURES, changed.subList(0, 0), fingerprints);
+			}
+			else
+			{
+				for(int start = 0; start < changed.size(); start += MAX_IN_LIST)
+				{
+					final List<String> names = changed.subList(start, Math.min(start + MAX_IN_LIST, changed.size()));
+					this.load(connection, SELECT_PROCEDURES + " AND P.RDB$PROCEDURE_NAME IN (" //$NON-NLS-1$
+						+ placeholders(names.size()) + ")" + ORDER_PROCEDURES, names, fingerprints);
+				}
+			}
+			
+			final StoredProcedure[] result = new StoredProcedure[this.procedures.size()];
+			int i = 0;
+			for(final Entry entry : this.procedures.values())
+			{
+				result[i++] = entry.procedure;
+			}
+			return result;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Discards all cached procedures.
+	 */
+	public void invalidate()
+	{
+		this.lock.lock();
+		try
+		{
+			this.procedures.clear();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private static Map<String, String> readFingerprints(final Connection connection) throws SQLException
+	{
+		final Map<String, String> fingerprints = new HashMap<>();
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_FINGERPRINTS);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			while(resultSet.next())
+			{
+				fingerprints.put(resultSet.getString(1), resultSet.getInt(2) + ":" + resultSet.getInt(3) + ":"
+					+ resultSet.getInt(4) + ":" + resultSet.getLong(5));
+			}
+		}
+		return fingerprints;
+	}
+	
+	/**
+	 * Reads procedures with their parameters in one pass, the rows are ordered by procedure.
+	 */
+	private void load(
+		final Connection connection, final String sql, final List<String> names,
+		final Map<String, String> fingerprints) throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(sql))
+		{
+			for(int i = 0; i < names.size(); i++)
+			{
+				statement.setString(i + 1, names.get(i));
+			}
+			
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				String name = null;
+				String description = null;
+				final List<Param> params = new ArrayList<>();
+				while(resultSet.next())
+				{
+					final String rowName = resultSet.getString(1);
+					if(!rowName.equals(name))
+					{
+						this.put(name, description, params, fingerprints);
+						name = rowName;
+						description = resultSet.getString(2);
+						params.clear();
+					}
+					
+					final String paramName = resultSet.getString(3);
+					if(paramName != null)
+					{
+						final ParamType paramType = resultSet.getInt(4) == PARAMETER_TYPE_INPUT ? ParamType.IN
+							: ParamType.OUT;
+						params.add(new Param(paramType, paramName, DataType.get(toSqlType(resultSet.getInt(5),
+							resultSet.getInt(6), resultSet.getInt(7), resultSet.getInt(8)))));
+					}
+				}
+				this.put(name, description, params, fingerprints);
+			}
+		}
+	}
+	
+	private void put(
+		final String name, final String description, final List<Param> params,
+		final Map<String, String> fingerprints)
+	{
+		if(name == null)
+		{
+			return;
+		}
+		
+		// XXX Jaybird reports selectable and executable procedures as without result, thus they have always been
+		// VOID with IN and OUT params. Kept for compatibility.
+		final StoredProcedure procedure = new StoredProcedure(ReturnTypeFlavor.VOID, null, name, description,
+			params.toArray(new Param[params.size()]));
+		this.procedures.put(name, new Entry(Objects.toString(fingerprints.get(name)), procedure));
+	}
+	
+	private static String placeholders(final int count)
+	{
+		final StringBuilder sb = new StringBuilder(count * 3);
+		for(int i = 0; i < count; i++)
+		{
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Maps <code>RDB$FIELDS.RDB$FIELD_TYPE</code> to {@link Types} like Jaybird's
+	 * {@link java.sql.DatabaseMetaData#getProcedureColumns(String, String, String, String)}.
+	 */
+	static int toSqlType(final int fieldType, final int subType, final int scale, final int characterSetId)
+	{
+		switch(fieldType)
+		{
+			case 7: // SMALLINT
+			case 8: // INTEGER
+			case 16: // BIGINT
+			case 26: // INT128
+				if(scale < 0 || subType > 0)
+				{
+					return subType == 2 ? Types.DECIMAL : Types.NUMERIC;
+				}
+				return fieldType == 7 ? Types.SMALLINT : fieldType == 8 ? Types.INTEGER : Types.BIGINT;
+			case 10: // FLOAT
+				return Types.FLOAT;
+			case 27: // DOUBLE PRECISION
+				return Types.DOUBLE;
+			case 24: // DECFLOAT(16)
+			case 25: // DECFLOAT(34)
+				return Types.DECIMAL;
+			case 12: // DATE
+				return Types.DATE;
+			case 13: // TIME
+				return Types.TIME;
+			case 28: // TIME WITH TIME ZONE
+				return Types.TIME_WITH_TIMEZONE;
+			case 35: // TIMESTAMP
+				return Types.TIMESTAMP;
+			case 29: // TIMESTAMP WITH TIME ZONE
+				return Types.TIMESTAMP_WITH_TIMEZONE;
+			case 14: // CHAR
+				return characterSetId == OCTETS_CHARACTER_SET_ID ? Types.BINARY : Types.CHAR;
+			case 37: // VARCHAR
+				return characterSetId == OCTETS_CHARACTER_SET_ID ? Types.VARBINARY : Types.VARCHAR;
+			case 261: // BLOB
+				return subType == 1 ? Types.LONGVARCHAR : subType == 0 ? Types.LONGVARBINARY : Types.BLOB;
+			case 23: // BOOLEAN
+				return Types.BOOLEAN;
+			default:
+				return Types.OTHER;
+		}
+	}
+	
+	private static final class Entry
+	{
+		final String fingerprint;
+		final StoredProcedure procedure;
+		
+		Entry(final String fingerprint, final StoredProcedure procedure)
+		{
+			this.fingerprint = fingerprint;
+			this.procedure = procedure;
+		}
+	}
+}
@@ -17,6 +17,11 @@
  */
 package xdev.db.firebird.jdbc;
 
+import java.util.List;
+
+import xdev.db.DBException;
+
+import com.xdev.jadoth.sqlengine.SQL.INDEXTYPE;
 import com.xdev.jadoth.sqlengine.dbms.standard.StandardRetrospectionAccessor;
 import com.xdev.jadoth.sqlengine.exceptions.SQLEngineException;
 import com.xdev.jadoth.sqlengine.internal.tables.SqlIndex;
@@ -25,6 +30,60 @@ import com.xdev.jadoth.sqlengine.internal.tables.SqlTableIdentity;
 
 public class FirebirdRetrospectionAccessor extends StandardRetrospectionAccessor<FirebirdDbms>
 {
+	private static final String SELECT_COLUMNS = "SELECT TRIM(RF.RDB$RELATION_NAME) AS TABLE_NAME," //$NON-NLS-1$
+		+ " TRIM(RF.RDB$FIELD_NAME) AS COLUMN_NAME," //$NON-NLS-1$
+		+ " RF.RDB$FIELD_POSITION + 1 AS ORDINAL_POSITION," //$NON-NLS-1$
+		+ " COALESCE(RF.RDB$DEFAULT_SOURCE, F.RDB$DEFAULT_SOURCE) AS COLUMN_DEFAULT," //$NON-NLS-1$
+		+ " CASE WHEN COALESCE(RF.RDB$NULL_FLAG, F.RDB$NULL_FLAG, 0) = 0" //$NON-NLS-1$
+		+ " THEN 'YES' ELSE 'NO' END AS IS_NULLABLE," //$NON-NLS-1$
+		+ " CASE" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE IN (7, 8, 16, 26) AND F.RDB$FIELD_SUB_TYPE = 2 THEN 'DECIMAL'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE IN (7, 8, 16, 26)" //$NON-NLS-1$
+		+ " AND (F.RDB$FIELD_SUB_TYPE = 1 OR F.RDB$FIELD_SCALE < 0) THEN 'NUMERIC'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 7 THEN 'SMALLINT'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 8 THEN 'INTEGER'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 16 THEN 'BIGINT'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 26 THEN 'INT128'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 10 THEN 'FLOAT'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 27 THEN 'DOUBLE PRECISION'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE IN (24, 25) THEN 'DECFLOAT'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 12 THEN 'DATE'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 13 THEN 'TIME'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 28 THEN 'TIME WITH TIME ZONE'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 35 THEN 'TIMESTAMP'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 29 THEN 'TIMESTAMP WITH TIME ZONE'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 14 THEN 'CHAR'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 37 THEN 'VARCHAR'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 23 THEN 'BOOLEAN'" //$NON-NLS-1$
+		+ " WHEN F.RDB$FIELD_TYPE = 261 THEN 'BLOB'" //$NON-NLS-1$
+		+ " END AS DATA_TYPE," //$NON-NLS-1$
+		+ " F.RDB$FIELD_SUB_TYPE AS DATA_SUB_TYPE," //$NON-NLS-1$
+		+ " F.RDB$CHARACTER_LENGTH AS CHARACTER_MAXIMUM_LENGTH," //$NON-NLS-1$
+		+ " F.RDB$FIELD_PRECISION AS NUMERIC_PRECISION," //$NON-NLS-1$
+		+ " -F.RDB$FIELD_SCALE AS NUMERIC_SCALE" //$NON-NLS-1$
+		+ " FROM RDB$RELATION_FIELDS RF" //$NON-NLS-1$
+		+ " JOIN RDB$FIELDS F ON F.RDB$FIELD_NAME = RF.RDB$FIELD_SOURCE" //$NON-NLS-1$
+		+ " JOIN RDB$RELATIONS R ON R.RDB$RELATION_NAME = RF.RDB$RELATION_NAME" //$NON-NLS-1$
+		+ " WHERE COALESCE(R.RDB$SYSTEM_FLAG, 0) = 0"; //$NON-NLS-1$
+	
+	private static final String ORDER_COLUMNS = " ORDER BY RF.RDB$RELATION_NAME, RF.RDB$FIELD_POSITION"; //$NON-NLS-1$
+	
+	private static final String SELECT_INDICES = "SELECT TRIM(I.RDB$RELATION_NAME) AS TABLE_NAME," //$NON-NLS-1$
+		+ " TRIM(I.RDB$INDEX_NAME) AS INDEX_NAME," //$NON-NLS-1$
+		+ " COALESCE(I.RDB$UNIQUE_FLAG, 0) AS IS_UNIQUE," //$NON-NLS-1$
+		+ " CASE WHEN RC.RDB$CONSTRAINT_TYPE = 'PRIMARY KEY' THEN 1 ELSE 0 END AS IS_PRIMARY_KEY," //$NON-NLS-1$
+		+ " COALESCE(I.RDB$INDEX_TYPE, 0) AS IS_DESCENDING," //$NON-NLS-1$
+		+ " COALESCE(I.RDB$INDEX_INACTIVE, 0) AS IS_INACTIVE," //$NON-NLS-1$
+		+ " I.RDB$STATISTICS AS SELECTIVITY," //$NON-NLS-1$
+		+ " TRIM(S.RDB$FIELD_NAME) AS COLUMN_NAME," //$NON-NLS-1$
+		+ " S.RDB$FIELD_POSITION + 1 AS ORDINAL_POSITION" //$NON-NLS-1$
+		+ " FROM RDB$INDICES I" //$NON-NLS-1$
+		+ " JOIN RDB$INDEX_SEGMENTS S ON S.RDB$INDEX_NAME = I.RDB$INDEX_NAME" //$NON-NLS-1$
+		+ " LEFT JOIN RDB$RELATION_CONSTRAINTS RC ON RC.RDB$INDEX_NAME = I.RDB$INDEX_NAME" //$NON-NLS-1$
+		+ " WHERE COALESCE(I.RDB$SYSTEM_FLAG, 0) = 0"; //$NON-NLS-1$
+	
+	private static final String ORDER_INDICES =
+		" ORDER BY I.RDB$RELATION_NAME, I.RDB$INDEX_NAME, S.RDB$FIELD_POSITION"; //$NON-NLS-1$
 	
 	public FirebirdRetrospectionAccessor(final FirebirdDbms dbmsadaptor)
 	{
@@ -37,7 +96,30 @@ public class FirebirdRetrospectionAccessor extends StandardRetrospectionAccessor
 	@Override
 	public String createSelect_INFORMATION_SCHEMA_COLUMNS(final SqlTableIdentity table)
 	{
-		throw new RuntimeException("Retrospection not implemented yet!");
+		return appendTableCondition(new StringBuilder(SELECT_COLUMNS), "RF", tableName(table)) //$NON-NLS-1$
+			.append(ORDER_COLUMNS).toString();
+	}
+	
+	/**
+	 * Creates the select of {@link #createSelect_INFORMATION_SCHEMA_COLUMNS(SqlTableIdentity)} with the table name
+	 * as parameter, to be bound to {@link #tableName(SqlTableIdentity)}.
+	 *
+	 * @return the parameterized select
+	 */
+	public String createSelect_TABLE_COLUMNS()
+	{
+		return SELECT_COLUMNS + " AND RF.RDB$RELATION_NAME = ?" + ORDER_COLUMNS; //$NON-NLS-1$
+	}
+	
+	/**
+	 * Creates a select of the columns of all user tables, ordered by table and position, with the same result
+	 * columns as {@link #createSelect_INFORMATION_SCHEMA_COLUMNS(SqlTableIdentity)}.
+	 *
+	 * @return the select
+	 */
+	public String createSelect_ALL_COLUMNS()
+	{
+		return SELECT_COLUMNS + ORDER_COLUMNS;
 	}
 	
 	/**
@@ -46,16 +128,104 @@ public class FirebirdRetrospectionAccessor extends StandardRetrospectionAccessor
 	@Override
 	public String createSelect_INFORMATION_SCHEMA_INDICES(final SqlTableIdentity table)
 	{
-		throw new RuntimeException("Retrospection not implemented yet!");
+		return appendTableCondition(new StringBuilder(SELECT_INDICES), "I", tableName(table)) //$NON-NLS-1$
+			.append(ORDER_INDICES).toString();
 	}
 	
 	/**
-	 * @throws SQLEngineException
+	 * Creates the select of {@link #createSelect_INFORMATION_SCHEMA_INDICES(SqlTableIdentity)} with the table name
+	 * as parameter, to be bound to {@link #tableName(SqlTableIdentity)}.
+	 *
+	 * @return the parameterized select
+	 */
+	public String createSelect_TABLE_INDICES()
+	{
+		return SELECT_INDICES + " AND I.RDB$RELATION_NAME = ?" + ORDER_INDICES; //$NON-NLS-1$
+	}
+	
+	/**
+	 * Creates a select of the index segments of all user tables, ordered by table, index and position, with the same
+	 * result columns as {@link #createSelect_INFORMATION_SCHEMA_INDICES(SqlTableIdentity)}. Expression indices have
+	 * no segments and are not contained.
+	 *
+	 * @return the select
+	 */
+	public String createSelect_ALL_INDICES()
+	{
+		return SELECT_INDICES + ORDER_INDICES;
+	}
+	
+	/**
+	 * Returns the name of the table as stored in RDB$RELATION_NAME: the schema is stripped, delimited names are
+	 * unquoted and all other names are upper-cased like Firebird does.
+	 *
+	 * @param table the table
+	 * @return the name to compare with RDB$RELATION_NAME
+	 */
+	public static String tableName(final SqlTableIdentity table)
+	{
+		return FirebirdIndexMaintenance.unqualify(table.sql().name);
+	}
+	
+	/*
+	 * SqlEngine executes the INFORMATION_SCHEMA selects without parameters, so they get the name as escaped literal,
+	 * own callers use the parameterized selects.
+	 */
+	private static StringBuilder appendTableCondition(
+		final StringBuilder sb, final String alias,
+		final String tableName)
+	{
+		sb.append(" AND ").append(alias).append(".RDB$RELATION_NAME = '"); //$NON-NLS-1$ //$NON-NLS-2$
+		for(int i = 0; i < tableName.length(); i++)
+		{
+			final char c = tableName.charAt(i);
+			if(c == '\'')
+			{
+				sb.append('\'');
+			}
+			sb.append(c);
+		}
+		return sb.append('\'');
+	}
+	
+	/**
+	 * Loads the indices of a table from the {@link FirebirdJDBCDataSource#getSchemaSnapshot() schema snapshot} of
+	 * the data source, which reads the indices of all tables with one {@link #createSelect_ALL_INDICES()}. Primary
+	 * keys are unique indices. Expression indices have no segments and are not contained.
+	 *
+	 * @throws SQLEngineException if the adaptor isn't bound to a data source or the system tables can't be read
 	 * @see com.xdev.jadoth.sqlengine.dbms.DbmsRetrospectionAccessor#loadIndices(SqlTableIdentity)
 	 */
 	@Override
 	public SqlIndex[] loadIndices(final SqlTableIdentity table) throws SQLEngineException
 	{
-		throw new RuntimeException("Retrospection not implemented yet!");
+		final FirebirdJDBCDataSource dataSource = this.getDbmsAdaptor().getDataSource();
+		if(dataSource == null)
+		{
+			throw new SQLEngineException("Index retrospection requires a FirebirdJDBCDataSource");
+		}
+		
+		final List<FirebirdSchemaSnapshot.Index> indices;
+		try
+		{
+			indices = dataSource.getSchemaSnapshot().getIndices(tableName(table));
+		}
+		catch(final DBException e)
+		{
+			throw new SQLEngineException(e);
+		}
+		
+		final SqlIndex[] sqlIndices = new SqlIndex[indices.size()];
+		for(int i = 0; i < sqlIndices.length; i++)
+		{
+			final FirebirdSchemaSnapshot.Index index = indices.get(i);
+			sqlIndices[i] = new SqlIndex(index.getName(), table, indexType(index), index.getColumns().toArray());
+		}
+		return sqlIndices;
+	}
+	
+	static INDEXTYPE indexType(final FirebirdSchemaSnapshot.Index index)
+	{
+		return index.isUnique() || index.isPrimaryKey() ? INDEXTYPE.UNIQUE : INDEXTYPE.NORMAL;
 	}
 }
@@ -0,0 +1,228 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import xdev.db.DBException;
+
+
+/**
+ * Executes {@link FirebirdTransactionalUnit}s in a transaction and retries them when they fail with a transient
+ * error (see {@link FirebirdErrorCategory#isTransient()}).
+ * <p>
+ * Between attempts the executor sleeps for an exponentially growing, fully jittered backoff, so concurrent
+ * transactions which conflicted don't collide again in lockstep. After a connection error the next attempt runs on
+ * a new connection, the broken one is discarded by the pool.
+ */
+public class FirebirdRetryExecutor
+{
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 10;
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000;
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	private volatile long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+	private volatile long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+	
+	public FirebirdRetryExecutor(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Executes <code>unit</code> and commits its transaction.
+	 *
+	 * @param unit the unit of work
+	 * @return the result of the successful attempt
+	 * @throws DBException if the unit failed with a fatal error, all attempts failed or the thread was
+	 *                     interrupted while waiting for the next attempt
+	 */
+	public <T> T execute(final FirebirdTransactionalUnit<T> unit) throws DBException
+	{
+		return this.execute(null, unit);
+	}
+	
+	/**
+	 * Executes <code>unit</code> in a transaction with the parameters of <code>profile</code> and commits it.
+	 *
+	 * @param profile the transaction profile, <code>null</code> for the data source's default
+	 * @param unit    the unit of work
+	 * @return the result of the successful attempt
+	 * @throws DBException if the unit failed with a fatal error, all attempts failed or the thread was
+	 *                     interrupted while waiting for the next attempt
+	 */
+	public <T> T execute(final FirebirdTransactionProfile profile, final FirebirdTransactionalUnit<T> unit)
+		throws DBException
+	{
+		for(int attempt = 1;; attempt++)
+		{
+			try
+			{
+				return this.executeOnce(profile, unit);
+			}
+			catch(final SQLException e)
+			{
+				final FirebirdErrorCategory category = FirebirdExceptionParser.classify(e);
+				if(!category.isTransient())
+				{
+					throw new DBException(this.dataSource, new FirebirdSQLEngineException(e));
+				}
+				if(attempt >= this.maxAttempts)
+				{
+					this.exhausted.increment();
+					throw new DBException(this.dataSource, new FirebirdSQLEngineException(e));
+				}
+				this.retries.increment();
+				this.backoff(attempt, e);
+			}
+		}
+	}
+	
+	private <T> T executeOnce(final FirebirdTransactionProfile profile, final FirebirdTransactionalUnit<T> unit)
+		throws SQLException
+	{
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			if(profile != null)
+			{
+				profile.apply(connection);
+			}
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try
+			{
+				final T result = unit.execute(connection);
+				connection.commit();
+				return result;
+			}
+			catch(final SQLException | RuntimeException e)
+			{
+				try
+				{
+					connection.rollback();
+				}
+				catch(final SQLException rollbackFailure)
+				{
+					e.addSuppressed(rollbackFailure);
+				}
+				throw e;
+			}
+			finally
+			{
+				try
+				{
+					connection.setAutoCommit(autoCommit);
+				}
+				catch(final SQLException e)
+				{
+					// the connection is broken, the pool discards it
+				}
+			}
+		}
+	}
+	
+	private void backoff(final int attempt, final SQLException cause) throws DBException
+	{
+		final long ceiling = Math.min(this.maxBackoffMillis,
+			this.initialBackoffMillis << Math.min(attempt - 1, 30));
+		try
+		{
+			TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new DBException(this.dataSource, cause);
+		}
+	}
+	
+	/**
+	 * @return the maximum count of attempts per unit, including the first one
+	 */
+	public int getMaxAttempts()
+	{
+		return this.maxAttempts;
+	}
+	
+	public void setMaxAttempts(final int maxAttempts)
+	{
+		if(maxAttempts < 1)
+		{
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+	
+	/**
+	 * @return the upper bound of the backoff after the first attempt in milliseconds, doubled per attempt
+	 */
+	public long getInitialBackoffMillis()
+	{
+		return this.initialBackoffMillis;
+	}
+	
+	public void setInitialBackoffMillis(final long initialBackoffMillis)
+	{
+		if(initialBackoffMillis < 0)
+		{
+			throw new IllegalArgumentException("initialBackoffMillis must not be negative");
+		}
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+	
+	/**
+	 * @return the upper bound of the backoff in milliseconds
+	 */
+	public long getMaxBackoffMillis()
+	{
+		return this.maxBackoffMillis;
+	}
+	
+	public void setMaxBackoffMillis(final long maxBackoffMillis)
+	{
+		if(maxBackoffMillis < 0)
+		{
+			throw new IllegalArgumentException("maxBackoffMillis must not be negative");
+		}
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+	
+	/**
+	 * @return the count of retried attempts
+	 */
+	public long getRetryCount()
+	{
+		return this.retries.sum();
+	}
+	
+	/**
+	 * @return the count of units which failed with a transient error in every attempt
+	 */
+	public long getExhaustedCount()
+	{
+		return this.exhausted.sum();
+	}
+}
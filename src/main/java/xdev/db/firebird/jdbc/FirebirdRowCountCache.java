@@ -0,0 +1,167 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cache for exact row counts of selects, keyed by the normalized select text.
+ * <p>
+ * Entries expire after a fixed time to live. Writes through the adapter don't invalidate entries, so the cached
+ * counts may lag behind the database for at most the TTL.
+ */
+public class FirebirdRowCountCache
+{
+	private static final int MAX_ENTRIES = 1024;
+	
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile long ttlNanos;
+	
+	/**
+	 * @param ttl  the time to live of the cached counts
+	 * @param unit the unit of <code>ttl</code>
+	 */
+	public FirebirdRowCountCache(final long ttl, final TimeUnit unit)
+	{
+		this.setTimeToLive(ttl, unit);
+	}
+	
+	/**
+	 * @param ttl  the time to live of the cached counts
+	 * @param unit the unit of <code>ttl</code>
+	 */
+	public void setTimeToLive(final long ttl, final TimeUnit unit)
+	{
+		if(ttl < 0)
+		{
+			throw new IllegalArgumentException("ttl must not be negative");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+	}
+	
+	/**
+	 * @param select the select
+	 * @return the cached row count or <code>null</code> if there is no valid entry
+	 */
+	public Integer get(final String select)
+	{
+		final String key = normalize(select);
+		final Entry entry = this.entries.get(key);
+		if(entry == null)
+		{
+			return null;
+		}
+		if(entry.isExpired(System.nanoTime()))
+		{
+			this.entries.remove(key, entry);
+			return null;
+		}
+		return entry.rowCount;
+	}
+	
+	/**
+	 * @param select   the select
+	 * @param rowCount the exact row count of <code>select</code>
+	 */
+	public void put(final String select, final int rowCount)
+	{
+		final long now = System.nanoTime();
+		if(this.entries.size() >= MAX_ENTRIES)
+		{
+			this.purge(now);
+		}
+		this.entries.put(normalize(select), new Entry(rowCount, now + this.ttlNanos));
+	}
+	
+	/**
+	 * Removes all cached counts.
+	 */
+	public void clear()
+	{
+		this.entries.clear();
+	}
+	
+	private void purge(final long now)
+	{
+		for(final Iterator<Entry> it = this.entries.values().iterator(); it.hasNext(); )
+		{
+			if(it.next().isExpired(now))
+			{
+				it.remove();
+			}
+		}
+		if(this.entries.size() >= MAX_ENTRIES)
+		{
+			this.entries.clear();
+		}
+	}
+	
+	/**
+	 * Collapses whitespace outside of string literals, so that selects which only differ in formatting share one
+	 * entry.
+	 */
+	static String normalize(final String select)
+	{
+		final StringBuilder sb = new StringBuilder(select.length());
+		boolean whitespace = false;
+		boolean literal = false;
+		for(int i = 0; i < select.length(); i++)
+		{
+			final char c = select.charAt(i);
+			if(c == '\'')
+			{
+				literal = !literal;
+			}
+			if(!literal && Character.isWhitespace(c))
+			{
+				whitespace = sb.length() > 0;
+			}
+			else
+			{
+				if(whitespace)
+				{
+					sb.append(' ');
+					whitespace = false;
+				}
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+	
+	private static final class Entry
+	{
+		final int rowCount;
+		final long expiresAt;
+		
+		Entry(final int rowCount, final long expiresAt)
+		{
+			this.rowCount = rowCount;
+			this.expiresAt = expiresAt;
+		}
+		
+		boolean isExpired(final long now)
+		{
+			return now - this.expiresAt >= 0;
+		}
+	}
+}
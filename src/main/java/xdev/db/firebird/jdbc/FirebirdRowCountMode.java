@@ -0,0 +1,43 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+/**
+ * Strategies of {@link FirebirdJDBCConnection#getQueryRowCount(String, FirebirdRowCountMode)}.
+ */
+public enum FirebirdRowCountMode
+{
+	/**
+	 * Counts the rows with <code>SELECT COUNT(*) FROM (...)</code>. Always exact, but requires a full scan on
+	 * Firebird.
+	 */
+	EXACT,
+	
+	/**
+	 * Estimates the row count of plain single table selects from the selectivity of a unique index in
+	 * <code>RDB$INDICES.RDB$STATISTICS</code>. The estimate is only as current as the index statistics. Selects
+	 * which can't be estimated this way are counted {@link #EXACT}ly.
+	 */
+	ESTIMATED,
+	
+	/**
+	 * Counts the rows {@link #EXACT}ly and caches the result per normalized select text until the row count
+	 * cache TTL of the data source expires.
+	 */
+	CACHED
+}
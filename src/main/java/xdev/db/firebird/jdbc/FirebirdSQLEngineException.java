@@ -0,0 +1,57 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.SQLException;
+
+import com.xdev.jadoth.sqlengine.exceptions.SQLEngineException;
+
+
+/**
+ * {@link SQLEngineException} with the Firebird GDS code and {@link FirebirdErrorCategory} of the cause.
+ */
+public class FirebirdSQLEngineException extends SQLEngineException
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final int errorCode;
+	private final FirebirdErrorCategory category;
+	
+	/**
+	 * @param cause the exception reported by the driver
+	 */
+	public FirebirdSQLEngineException(final SQLException cause)
+	{
+		super(cause);
+		this.errorCode = FirebirdExceptionParser.getErrorCode(cause);
+		this.category = FirebirdExceptionParser.classify(cause);
+	}
+	
+	/**
+	 * @return the GDS code of the error or 0 if there is none
+	 */
+	public int getErrorCode()
+	{
+		return this.errorCode;
+	}
+	
+	public FirebirdErrorCategory getCategory()
+	{
+		return this.category;
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Columns and indices of all user tables of a database, read with one query each from the Firebird system
+ * tables instead of one metadata query per table.
+ * <p>
+ * A snapshot is immutable, {@link FirebirdJDBCDataSource#getSchemaSnapshot()} memoizes it until DDL is executed
+ * through the data source.
+ */
+public class FirebirdSchemaSnapshot
+{
+	private final Map<String, List<Column>> columns;
+	private final Map<String, List<Index>> indices;
+	
+	private FirebirdSchemaSnapshot(final Map<String, List<Column>> columns, final Map<String, List<Index>> indices)
+	{
+		this.columns = columns;
+		this.indices = indices;
+	}
+	
+	/**
+	 * Reads the snapshot.
+	 *
+	 * @param connection the connection to read the system tables with
+	 * @param accessor   the accessor to create the selects with
+	 * @return the snapshot
+	 * @throws SQLException if the system tables can't be read
+	 */
+	public static FirebirdSchemaSnapshot load(
+		final Connection connection,
+		final FirebirdRetrospectionAccessor accessor) throws SQLException
+	{
+		final Map<String, List<Column>> columns = new LinkedHashMap<>();
+		final Map<String, List<Index>> indices = new LinkedHashMap<>();
+		
+		try(Statement statement = connection.createStatement())
+		{
+			try(ResultSet resultSet = statement.executeQuery(accessor.createSelect_ALL_COLUMNS()))
+			{
+				while(resultSet.next())
+				{
+					final Integer length = (Integer)resultSet.getObject("CHARACTER_MAXIMUM_LENGTH");
+					final Integer precision = (Integer)resultSet.getObject("NUMERIC_PRECISION");
+					columns.computeIfAbsent(resultSet.getString("TABLE_NAME"), k -> new ArrayList<>())
+						.add(new Column(resultSet.getString("COLUMN_NAME"), resultSet.getString("DATA_TYPE"),
+							resultSet.getInt("DATA_SUB_TYPE"), length, precision, resultSet.getInt("NUMERIC_SCALE"),
+							"YES".equals(resultSet.getString("IS_NULLABLE")),
+							resultSet.getString("COLUMN_DEFAULT")));
+				}
+			}
+			
+			try(ResultSet resultSet = statement.executeQuery(accessor.createSelect_ALL_INDICES()))
+			{
+				Index index = null;
+				while(resultSet.next())
+				{
+					final String table = resultSet.getString("TABLE_NAME");
+					final String name = resultSet.getString("INDEX_NAME");
+					if(index == null || !index.name.equals(name))
+					{
+						index = new Index(name, resultSet.getInt("IS_UNIQUE") == 1,
+							resultSet.getInt("IS_PRIMARY_KEY") == 1, resultSet.getInt("IS_DESCENDING") == 1,
+							resultSet.getInt("IS_INACTIVE") == 1, resultSet.getDouble("SELECTIVITY"));
+						indices.computeIfAbsent(table, k -> new ArrayList<>()).add(index);
+					}
+					index.columns.add(resultSet.getString("COLUMN_NAME"));
+				}
+			}
+		}
+		
+		return new FirebirdSchemaSnapshot(columns, indices);
+	}
+	
+	/**
+	 * @return the names of all user tables and views
+	 */
+	public Set<String> getTableNames()
+	{
+		return Collections.unmodifiableSet(this.columns.keySet());
+	}
+	
+	/**
+	 * @param tableName the unquoted table name as stored in the system tables
+	 * @return the columns of the table ordered by position, empty if the table doesn't exist
+	 */
+	public List<Column> getColumns(final String tableName)
+	{
+		return Collections.unmodifiableList(this.columns.getOrDefault(tableName, Collections.emptyList()));
+	}
+	
+	/**
+	 * @param tableName the unquoted table name as stored in the system tables
+	 * @return the indices of the table, empty if the table has none or doesn't exist
+	 */
+	public List<Index> getIndices(final String tableName)
+	{
+		return Collections.unmodifiableList(this.indices.getOrDefault(tableName, Collections.emptyList()));
+	}
+	
+	/**
+	 * A table column.
+	 */
+	public static final class Column
+	{
+		private final String name;
+		private final String dataType;
+		private final int subType;
+		private final Integer length;
+		private final Integer precision;
+		private final int scale;
+		private final boolean nullable;
+		private final String defaultSource;
+		
+		Column(
+			final String name, final String dataType, final int subType, final Integer length,
+			final Integer precision, final int scale, final boolean nullable, final String defaultSource)
+		{
+			this.name = name;
+			this.dataType = dataType;
+			this.subType = subType;
+			this.length = length;
+			this.precision = precision;
+			this.scale = scale;
+			this.nullable = nullable;
+			this.defaultSource = defaultSource;
+		}
+		
+		/**
+		 * @return the column name
+		 */
+		public String getName()
+		{
+			return this.name;
+		}
+		
+		/**
+		 * @return the SQL data type name, e.g. <code>VARCHAR</code> or <code>NUMERIC</code>
+		 */
+		public String getDataType()
+		{
+			return this.dataType;
+		}
+		
+		/**
+		 * @return the Firebird sub type, e.g. <code>1</code> for <code>BLOB SUB_TYPE TEXT</code>
+		 */
+		public int getSubType()
+		{
+			return this.subType;
+		}
+		
+		/**
+		 * @return the length in characters of character types, <code>null</code> otherwise
+		 */
+		public Integer getLength()
+		{
+			return this.length;
+		}
+		
+		/**
+		 * @return the precision of numeric types, <code>null</code> otherwise
+		 */
+		public Integer getPrecision()
+		{
+			return this.precision;
+		}
+		
+		/**
+		 * @return the scale of numeric types
+		 */
+		public int getScale()
+		{
+			return this.scale;
+		}
+		
+		/**
+		 * @return if the column is nullable
+		 */
+		public boolean isNullable()
+		{
+			return this.nullable;
+		}
+		
+		/**
+		 * @return the default clause as written in the DDL, e.g. <code>DEFAULT 0</code>, or <code>null</code>
+		 */
+		public String getDefaultSource()
+		{
+			return this.defaultSource;
+		}
+	}
+	
+	/**
+	 * A table index.
+	 */
+	public static final class Index
+	{
+		private final String name;
+		private final boolean unique;
+		private final boolean primaryKey;
+		private final boolean descending;
+		private final boolean inactive;
+		private final double selectivity;
+		final List<String> columns = new ArrayList<>();
+		
+		Index(
+			final String name, final boolean unique, final boolean primaryKey, final boolean descending,
+			final boolean inactive, final double selectivity)
+		{
+			this.name = name;
+			this.unique = unique;
+			this.primaryKey = primaryKey;
+			this.descending = descending;
+			this.inactive = inactive;
+			this.selectivity = selectivity;
+		}
+		
+		/**
+		 * @return the index name
+		 */
+		public String getName()
+		{
+			return this.name;
+		}
+		
+		/**
+		 * @return if the index is unique
+		 */
+		public boolean isUnique()
+		{
+			return this.unique;
+		}
+		
+		/**
+		 * @return if the index backs the primary key
+		 */
+		public boolean isPrimaryKey()
+		{
+			return this.primaryKey;
+		}
+		
+		/**
+		 * @return if the index is descending
+		 */
+		public boolean isDescending()
+		{
+			return this.descending;
+		}
+		
+		/**
+		 * @return if the index is inactive
+		 */
+		public boolean isInactive()
+		{
+			return this.inactive;
+		}
+		
+		/**
+		 * @return the selectivity as of the last statistics computation
+		 */
+		public double getSelectivity()
+		{
+			return this.selectivity;
+		}
+		
+		/**
+		 * @return the indexed columns in index order
+		 */
+		public List<String> getColumns()
+		{
+			return Collections.unmodifiableList(this.columns);
+		}
+	}
+}
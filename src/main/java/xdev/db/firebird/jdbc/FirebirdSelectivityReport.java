@@ -0,0 +1,77 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Selectivity of the indices of a table before and after their statistics were recomputed, to check plan
+ * stability. The selectivity of an index is <code>1 / count of distinct keys</code>, lower is more selective.
+ */
+public class FirebirdSelectivityReport
+{
+	private final String tableName;
+	private final Map<String, Double> before;
+	private final Map<String, Double> after;
+	
+	/**
+	 * @param tableName the table
+	 * @param before    the selectivity per index name before the recomputation
+	 * @param after     the selectivity per index name after the recomputation
+	 */
+	public FirebirdSelectivityReport(
+		final String tableName, final Map<String, Double> before,
+		final Map<String, Double> after)
+	{
+		this.tableName = tableName;
+		this.before = Collections.unmodifiableMap(before);
+		this.after = Collections.unmodifiableMap(after);
+	}
+	
+	/**
+	 * @return the table
+	 */
+	public String getTableName()
+	{
+		return this.tableName;
+	}
+	
+	/**
+	 * @return the selectivity per index name before the recomputation
+	 */
+	public Map<String, Double> getBefore()
+	{
+		return this.before;
+	}
+	
+	/**
+	 * @return the selectivity per index name after the recomputation
+	 */
+	public Map<String, Double> getAfter()
+	{
+		return this.after;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Selectivity of " + this.tableName + ": before=" + this.before + ", after=" + this.after;
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Estimate of the server clock from the local monotonic clock and a periodically measured offset.
+ * <p>
+ * A synchronization queries <code>CURRENT_TIMESTAMP</code> {@value #SAMPLES} times and keeps the sample with the
+ * shortest round trip, assuming the server read its clock halfway through it. Between synchronizations the server
+ * time is the synchronized server time plus the elapsed {@link System#nanoTime()}, which doesn't jump when the
+ * local wall clock is adjusted.
+ * <p>
+ * At each resynchronization the estimate is compared with the measured server time. If the difference exceeds the
+ * drift threshold, the drift listener is notified, e.g. because the server clock was adjusted or runs at a
+ * different rate.
+ * <p>
+ * A failed resynchronization keeps the previous estimate and is retried by the next call. Once the last successful
+ * synchronization is older than the maximum staleness, the estimate isn't used anymore: each call then reads the
+ * server time like {@link FirebirdServerTimeMode#EXACT} and fails if the server can't be reached.
+ */
+public class FirebirdServerClock
+{
+	/**
+	 * Samples per synchronization.
+	 */
+	public static final int SAMPLES = 3;
+	
+	/**
+	 * Default of {@link #getResyncIntervalMillis()}: 1 minute.
+	 */
+	public static final long DEFAULT_RESYNC_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	
+	/**
+	 * Default of {@link #getDriftThresholdMillis()}.
+	 */
+	public static final long DEFAULT_DRIFT_THRESHOLD_MILLIS = 1000;
+	
+	/**
+	 * Default of {@link #getMaxStalenessMillis()}: 5 minutes.
+	 */
+	public static final long DEFAULT_MAX_STALENESS_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	
+	private static final String SELECT_SERVER_TIME = "SELECT CURRENT_TIMESTAMP FROM RDB$DATABASE"; //$NON-NLS-1$
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private final ReentrantLock syncLock = new ReentrantLock();
+	private final LongAdder driftAlarms = new LongAdder();
+	private final LongAdder syncFailures = new LongAdder();
+	private volatile Sync sync;
+	private volatile long lastSyncMillis;
+	private volatile SQLException lastError;
+	private volatile long resyncIntervalMillis = DEFAULT_RESYNC_INTERVAL_MILLIS;
+	private volatile long driftThresholdMillis = DEFAULT_DRIFT_THRESHOLD_MILLIS;
+	private volatile long maxStalenessMillis = DEFAULT_MAX_STALENESS_MILLIS;
+	private volatile LongConsumer driftListener;
+	
+	/**
+	 * Result of one synchronization.
+	 */
+	private static final class Sync
+	{
+		final long serverMillis;
+		final long localNanos;
+		final long roundTripNanos;
+		
+		Sync(final long serverMillis, final long localNanos, final long roundTripNanos)
+		{
+			this.serverMillis = serverMillis;
+			this.localNanos = localNanos;
+			this.roundTripNanos = roundTripNanos;
+		}
+		
+		long estimate(final long nanos)
+		{
+			return this.serverMillis + TimeUnit.NANOSECONDS.toMillis(nanos - this.localNanos);
+		}
+	}
+	
+	public FirebirdServerClock(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Returns the estimated server time. Synchronizes first if there was no synchronization yet or the resync
+	 * interval elapsed; while another thread synchronizes, the previous estimate is returned.
+	 *
+	 * @return the server time in milliseconds since the epoch
+	 * @throws SQLException if the first synchronization fails, or a synchronization fails after the maximum
+	 *                      staleness elapsed
+	 */
+	public long currentTimeMillis() throws SQLException
+	{
+		final long now = System.nanoTime();
+		final Sync current = this.sync;
+		if(current == null || now - current.localNanos >= TimeUnit.MILLISECONDS.toNanos(this.maxStalenessMillis))
+		{
+			// no usable estimate, the caller waits for the server time
+			this.syncLock.lock();
+			try
+			{
+				if(this.sync == current)
+				{
+					this.synchronize();
+				}
+			}
+			finally
+			{
+				this.syncLock.unlock();
+			}
+			return this.sync.estimate(System.nanoTime());
+		}
+		
+		if(now - current.localNanos >= TimeUnit.MILLISECONDS.toNanos(this.resyncIntervalMillis)
+			&& this.syncLock.tryLock())
+		{
+			try
+			{
+				if(this.sync == current)
+				{
+					this.synchronize();
+				}
+			}
+			catch(final SQLException e)
+			{
+				// recorded as last error, the previous offset is kept and the next call retries
+			}
+			finally
+			{
+				this.syncLock.unlock();
+			}
+		}
+		return this.sync.estimate(System.nanoTime());
+	}
+	
+	/**
+	 * Measures the offset to the server clock now.
+	 *
+	 * @throws SQLException if the server time can't be read
+	 */
+	public void synchronize() throws SQLException
+	{
+		Sync best = null;
+		try(Connection connection = this.dataSource.borrowConnection();
+			PreparedStatement statement = connection.prepareStatement(SELECT_SERVER_TIME))
+		{
+			for(int i = 0; i < SAMPLES; i++)
+			{
+				final long start = System.nanoTime();
+				try(ResultSet resultSet = statement.executeQuery())
+				{
+					resultSet.next();
+					final long serverMillis = resultSet.getTimestamp(1).getTime();
+					final long end = System.nanoTime();
+					if(best == null || end - start < best.roundTripNanos)
+					{
+						best = new Sync(serverMillis, start + (end - start) / 2, end - start);
+					}
+				}
+			}
+		}
+		catch(final SQLException e)
+		{
+			this.syncFailures.increment();
+			this.lastError = e;
+			throw e;
+		}
+		
+		final Sync previous = this.sync;
+		this.sync = best;
+		this.lastSyncMillis = System.currentTimeMillis();
+		if(previous != null)
+		{
+			final long drift = best.serverMillis - previous.estimate(best.localNanos);
+			if(Math.abs(drift) > this.driftThresholdMillis)
+			{
+				this.driftAlarms.increment();
+				final LongConsumer listener = this.driftListener;
+				if(listener != null)
+				{
+					listener.accept(drift);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the round trip time of the last synchronization in microseconds, which bounds the error of the
+	 *         offset, or -1 if there was no synchronization yet
+	 */
+	public long getRoundTripMicros()
+	{
+		final Sync current = this.sync;
+		return current == null ? -1 : TimeUnit.NANOSECONDS.toMicros(current.roundTripNanos);
+	}
+	
+	/**
+	 * @return the offset of the server clock to the local wall clock in milliseconds at the last synchronization,
+	 *         positive if the server is ahead
+	 */
+	public long getOffsetMillis()
+	{
+		final Sync current = this.sync;
+		return current == null ? 0 : current.estimate(System.nanoTime()) - System.currentTimeMillis();
+	}
+	
+	/**
+	 * @return the count of resynchronizations which measured a drift above the threshold
+	 */
+	public long getDriftAlarmCount()
+	{
+		return this.driftAlarms.sum();
+	}
+	
+	/**
+	 * @return the count of failed synchronizations
+	 */
+	public long getSyncFailureCount()
+	{
+		return this.syncFailures.sum();
+	}
+	
+	/**
+	 * @return the failure of the last failed synchronization or <code>null</code>
+	 */
+	public SQLException getLastError()
+	{
+		return this.lastError;
+	}
+	
+	/**
+	 * @return the local wall clock time of the last successful synchronization in milliseconds since the epoch, 0 if
+	 *         there was none yet
+	 */
+	public long getLastSyncMillis()
+	{
+		return this.lastSyncMillis;
+	}
+	
+	public long getResyncIntervalMillis()
+	{
+		return this.resyncIntervalMillis;
+	}
+	
+	public void setResyncIntervalMillis(final long resyncIntervalMillis)
+	{
+		if(resyncIntervalMillis <= 0)
+		{
+			throw new IllegalArgumentException("resyncIntervalMillis must be positive");
+		}
+		this.resyncIntervalMillis = resyncIntervalMillis;
+	}
+	
+	/**
+	 * @return the difference between estimated and measured server time which raises a drift alarm
+	 */
+	public long getDriftThresholdMillis()
+	{
+		return this.driftThresholdMillis;
+	}
+	
+	public void setDriftThresholdMillis(final long driftThresholdMillis)
+	{
+		if(driftThresholdMillis < 0)
+		{
+			throw new IllegalArgumentException("driftThresholdMillis must not be negative");
+		}
+		this.driftThresholdMillis = driftThresholdMillis;
+	}
+	
+	/**
+	 * @return the age of the last successful synchronization after which the server time is read instead of
+	 *         estimated
+	 */
+	public long getMaxStalenessMillis()
+	{
+		return this.maxStalenessMillis;
+	}
+	
+	public void setMaxStalenessMillis(final long maxStalenessMillis)
+	{
+		if(maxStalenessMillis <= 0)
+		{
+			throw new IllegalArgumentException("maxStalenessMillis must be positive");
+		}
+		this.maxStalenessMillis = maxStalenessMillis;
+	}
+	
+	/**
+	 * @param driftListener notified with the drift in milliseconds, measured minus estimated server time, on the
+	 *                      thread which resynchronized
+	 */
+	public void setDriftListener(final LongConsumer driftListener)
+	{
+		this.driftListener = driftListener;
+	}
+}
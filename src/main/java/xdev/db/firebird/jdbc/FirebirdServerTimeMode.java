@@ -0,0 +1,36 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+/**
+ * Strategies of {@link FirebirdJDBCConnection#getServerTime()}.
+ */
+public enum FirebirdServerTimeMode
+{
+	/**
+	 * Queries <code>CURRENT_TIMESTAMP</code> on every call.
+	 */
+	EXACT,
+	
+	/**
+	 * Derives the server time from {@link System#nanoTime()} and the offset measured by the
+	 * {@link FirebirdServerClock}, which is resynchronized periodically. Costs no round trip between
+	 * synchronizations.
+	 */
+	SYNCHRONIZED
+}
@@ -0,0 +1,232 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * LRU cache of {@link PreparedStatement}s of one physical {@link Connection}, keyed by SQL text.
+ * <p>
+ * Each prepare is a server round trip plus a BLR compile on Firebird, so statements which are executed repeatedly
+ * are kept open and reused. The cache is bounded by the number of statements and by their weight, the summed
+ * length of the SQL texts. Statements obtained by {@link #prepare(String)} are checked out of the cache and must be
+ * handed back by {@link #release(PreparedStatement, String)} instead of being closed.
+ */
+public class FirebirdStatementCache
+{
+	private final Connection connection;
+	private final int maxSize;
+	private final long maxWeight;
+	private final Statistics statistics;
+	private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+	private boolean invalidated;
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/**
+	 * @param connection the physical connection to prepare the statements on
+	 * @param maxSize    the maximum count of cached statements, <code>0</code> disables caching
+	 * @param maxWeight  the maximum summed length of the SQL texts of the cached statements
+	 * @param statistics the counters to record hits, misses and evictions in
+	 */
+	public FirebirdStatementCache(
+		final Connection connection, final int maxSize, final long maxWeight,
+		final Statistics statistics)
+	{
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.maxWeight = maxWeight;
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * @return the connection the statements are prepared on
+	 */
+	public Connection getConnection()
+	{
+		return this.connection;
+	}
+	
+	/**
+	 * Returns the cached statement for <code>sql</code> or prepares a new one.
+	 *
+	 * @param sql the SQL text
+	 * @return the prepared statement, to be handed back by {@link #release(PreparedStatement, String)}
+	 * @throws SQLException if the statement can't be prepared
+	 */
+	public PreparedStatement prepare(final String sql) throws SQLException
+	{
+		this.lock.lock();
+		try
+		{
+			final PreparedStatement cached = this.statements.remove(sql);
+			if(cached != null)
+			{
+				this.weight -= sql.length();
+				this.statistics.hits.increment();
+				return cached;
+			}
+			
+			this.statistics.misses.increment();
+			return this.connection.prepareStatement(sql);
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Hands a statement obtained by {@link #prepare(String)} back to the cache. Statements which exceed the bounds of
+	 * the cache, or which were checked out when the cache was {@link #invalidate() invalidated}, are closed.
+	 *
+	 * @param statement the statement
+	 * @param sql       the SQL text the statement was prepared for
+	 * @throws SQLException if the statement can't be reset or closed
+	 */
+	public void release(final PreparedStatement statement, final String sql) throws SQLException
+	{
+		this.lock.lock();
+		try
+		{
+			if(this.invalidated || this.maxSize <= 0 || sql.length() > this.maxWeight || statement.isClosed())
+			{
+				statement.close();
+				return;
+			}
+			
+			statement.clearParameters();
+			final PreparedStatement replaced = this.statements.put(sql, statement);
+			if(replaced != null)
+			{
+				// the same SQL was prepared twice concurrently
+				replaced.close();
+			}
+			else
+			{
+				this.weight += sql.length();
+			}
+			this.evict();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void evict() throws SQLException
+	{
+		for(final Iterator<Map.Entry<String, PreparedStatement>> it = this.statements.entrySet().iterator();
+			it.hasNext() && (this.statements.size() > this.maxSize || this.weight > this.maxWeight); )
+		{
+			final Map.Entry<String, PreparedStatement> eldest = it.next();
+			it.remove();
+			this.weight -= eldest.getKey().length();
+			this.statistics.evictions.increment();
+			eldest.getValue().close();
+		}
+	}
+	
+	/**
+	 * Closes all cached statements, e.g. after DDL changed the objects they refer to. Statements which are checked out
+	 * are closed when they are released.
+	 */
+	public void invalidate()
+	{
+		this.lock.lock();
+		try
+		{
+			for(final PreparedStatement statement : this.statements.values())
+			{
+				try
+				{
+					statement.close();
+				}
+				catch(final SQLException e)
+				{
+					// the statement is discarded anyway
+				}
+			}
+			this.statements.clear();
+			this.weight = 0;
+			this.invalidated = true;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the count of currently cached statements
+	 */
+	public int size()
+	{
+		this.lock.lock();
+		try
+		{
+			return this.statements.size();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Hit, miss and eviction counters, shared by the caches of all connections of a data source.
+	 */
+	public static class Statistics
+	{
+		final LongAdder hits = new LongAdder();
+		final LongAdder misses = new LongAdder();
+		final LongAdder evictions = new LongAdder();
+		
+		/**
+		 * @return the count of prepares served from a cache
+		 */
+		public long getHitCount()
+		{
+			return this.hits.sum();
+		}
+		
+		/**
+		 * @return the count of prepares which went to the server
+		 */
+		public long getMissCount()
+		{
+			return this.misses.sum();
+		}
+		
+		/**
+		 * @return the count of statements closed because a cache exceeded its bounds
+		 */
+		public long getEvictionCount()
+		{
+			return this.evictions.sum();
+		}
+	}
+}
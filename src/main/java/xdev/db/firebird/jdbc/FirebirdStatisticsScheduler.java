@@ -0,0 +1,245 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Recomputes the index statistics of watched tables in the background when their row count drifted too far.
+ * <p>
+ * Before the first recomputation by this scheduler, the row count the statistics were computed for is derived from
+ * the selectivity of a unique index (<code>1 / selectivity</code>). Afterwards, the row count at the last
+ * recomputation by this scheduler is used.
+ * <p>
+ * On Firebird 3 and newer, the drift is the difference of the inserted and deleted records since the baseline, read
+ * from the database level record counts in <code>MON$TABLE_STATS</code>, so a check doesn't touch the data. Only a
+ * table without unique index is counted once with <code>SELECT COUNT(*)</code> to get its first baseline. Older
+ * servers have no per table record counts, there each check counts the rows, so the check interval should be chosen
+ * with the table sizes in mind.
+ */
+public class FirebirdStatisticsScheduler
+{
+	/**
+	 * The first Firebird version with the per table record counts of <code>MON$TABLE_STATS</code>, introduced in
+	 * Firebird 3.
+	 */
+	public static final int TABLE_STATS_MIN_VERSION = 3;
+	
+	private static final String SELECT_RECORD_CHANGES = "SELECT R.MON$RECORD_INSERTS," //$NON-NLS-1$
+		+ " R.MON$RECORD_DELETES FROM MON$TABLE_STATS T" //$NON-NLS-1$
+		+ " JOIN MON$RECORD_STATS R ON R.MON$STAT_ID = T.MON$RECORD_STAT_ID" //$NON-NLS-1$
+		+ " WHERE T.MON$STAT_GROUP = 0 AND T.MON$TABLE_NAME = ?"; //$NON-NLS-1$
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private final double driftThreshold;
+	private final Map<String, Baseline> baselines = new ConcurrentHashMap<>();
+	private final Map<String, FirebirdSelectivityReport> lastReports = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService executor;
+	private volatile Consumer<FirebirdSelectivityReport> listener;
+	private volatile Exception lastError;
+	
+	/**
+	 * Creates and starts a scheduler.
+	 *
+	 * @param dataSource          the data source
+	 * @param checkIntervalMillis the interval of the drift checks
+	 * @param driftThreshold      the relative row count change which triggers a recomputation, e.g.
+	 *                            <code>0.2</code> for 20%
+	 */
+	public FirebirdStatisticsScheduler(
+		final FirebirdJDBCDataSource dataSource, final long checkIntervalMillis,
+		final double driftThreshold)
+	{
+		if(driftThreshold <= 0)
+		{
+			throw new IllegalArgumentException("driftThreshold must be positive");
+		}
+		
+		this.dataSource = dataSource;
+		this.driftThreshold = driftThreshold;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "Firebird statistics scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.scheduleWithFixedDelay(this::checkAll, checkIntervalMillis, checkIntervalMillis,
+			TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param tableName the unquoted table name as stored in the system tables
+	 */
+	public void watch(final String tableName)
+	{
+		this.baselines.putIfAbsent(tableName, new Baseline());
+	}
+	
+	/**
+	 * @param tableName the unquoted table name as stored in the system tables
+	 */
+	public void unwatch(final String tableName)
+	{
+		this.baselines.remove(tableName);
+		this.lastReports.remove(tableName);
+	}
+	
+	/**
+	 * @param listener notified with the report of each recomputation, on the scheduler thread
+	 */
+	public void setListener(final Consumer<FirebirdSelectivityReport> listener)
+	{
+		this.listener = listener;
+	}
+	
+	/**
+	 * @param tableName the unquoted table name as stored in the system tables
+	 * @return the report of the last recomputation of the table or <code>null</code> if there was none yet
+	 */
+	public FirebirdSelectivityReport getLastReport(final String tableName)
+	{
+		return this.lastReports.get(tableName);
+	}
+	
+	/**
+	 * @return the error of the last failed check or <code>null</code>
+	 */
+	public Exception getLastError()
+	{
+		return this.lastError;
+	}
+	
+	/**
+	 * Stops the scheduler.
+	 */
+	public void close()
+	{
+		this.executor.shutdownNow();
+	}
+	
+	private void checkAll()
+	{
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			final boolean tableStats = connection.getMetaData()
+				.getDatabaseMajorVersion() >= TABLE_STATS_MIN_VERSION;
+			for(final Map.Entry<String, Baseline> entry : this.baselines.entrySet())
+			{
+				this.check(connection, entry.getKey(), entry.getValue(), tableStats);
+			}
+		}
+		catch(final SQLException | RuntimeException e)
+		{
+			this.lastError = e;
+		}
+	}
+	
+	private void check(
+		final Connection connection, final String tableName, final Baseline baseline,
+		final boolean tableStats) throws SQLException
+	{
+		final long[] changes = tableStats ? readRecordChanges(connection, tableName) : null;
+		if(baseline.rowCount < 0 || changes != null && changes[0] < baseline.inserts)
+		{
+			// first check or the counts were reset by a restart of the database
+			final Long estimate = FirebirdIndexMaintenance.estimateRowCount(connection, tableName);
+			baseline.reset(estimate != null ? estimate : countRows(connection, tableName), changes);
+			if(changes != null)
+			{
+				return;
+			}
+		}
+		
+		final long rowCount = changes != null
+			? baseline.rowCount + (changes[0] - baseline.inserts) - (changes[1] - baseline.deletes)
+			: countRows(connection, tableName);
+		if(Math.abs(rowCount - baseline.rowCount) <= this.driftThreshold * Math.max(baseline.rowCount, 1))
+		{
+			return;
+		}
+		
+		final FirebirdSelectivityReport report = FirebirdIndexMaintenance.updateSelectivity(connection, tableName);
+		this.dataSource.invalidateStatementCaches();
+		baseline.reset(rowCount, changes);
+		this.lastReports.put(tableName, report);
+		
+		final Consumer<FirebirdSelectivityReport> listener = this.listener;
+		if(listener != null)
+		{
+			listener.accept(report);
+		}
+	}
+	
+	/**
+	 * @return the inserted and deleted records since the database was opened
+	 */
+	private static long[] readRecordChanges(final Connection connection, final String tableName)
+		throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_RECORD_CHANGES))
+		{
+			statement.setString(1, tableName);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				// no statistics yet if the table wasn't touched since the database was opened
+				return resultSet.next() ? new long[]{resultSet.getLong(1), resultSet.getLong(2)} : new long[2];
+			}
+		}
+	}
+	
+	private static long countRows(final Connection connection, final String tableName) throws SQLException
+	{
+		try(Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " //$NON-NLS-1$
+				+ FirebirdIndexMaintenance.quote(tableName)))
+		{
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+	
+	/**
+	 * The row count of a table at the last recomputation and the record counts at that time.
+	 */
+	private static final class Baseline
+	{
+		volatile long rowCount = -1;
+		volatile long inserts;
+		volatile long deletes;
+		
+		void reset(final long rowCount, final long[] changes)
+		{
+			this.rowCount = rowCount;
+			if(changes != null)
+			{
+				this.inserts = changes[0];
+				this.deletes = changes[1];
+			}
+		}
+	}
+}
@@ -17,13 +17,57 @@
  */
 package xdev.db.firebird.jdbc;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import com.xdev.jadoth.sqlengine.dbms.DbmsSyntax;
 
 
+/**
+ * Syntax of Firebird with the keywords of one server version, see {@link FirebirdKeywords}.
+ * {@link FirebirdDbms#setServerMajorVersion(int)} switches the adaptor to the syntax of the detected version,
+ * until then the keywords of the newest supported version are used. Identifiers are delimited by
+ * {@link FirebirdDbms#quoteIdentifier(String)}.
+ */
 public class FirebirdSyntax extends DbmsSyntax.Implementation<FirebirdDbms>
 {
+	private static final ConcurrentMap<Integer, FirebirdSyntax> INSTANCES = new ConcurrentHashMap<>();
+	
+	private final int majorVersion;
+	
 	protected FirebirdSyntax()
 	{
-		super(wordSet(), wordSet());
+		this(0);
+	}
+	
+	/**
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 */
+	protected FirebirdSyntax(int majorVersion)
+	{
+		super(wordSet(FirebirdKeywords.getReservedWords(majorVersion).toArray(new String[0])),
+			wordSet(FirebirdKeywords.getNonReservedWords(majorVersion).toArray(new String[0])));
+		this.majorVersion = majorVersion;
+	}
+	
+	/**
+	 * @param majorVersion the major version of the server, <code>0</code> if unknown
+	 * @return the shared syntax of the version
+	 */
+	public static FirebirdSyntax forVersion(int majorVersion)
+	{
+		if(majorVersion == 0)
+		{
+			return FirebirdDbms.SYNTAX;
+		}
+		return INSTANCES.computeIfAbsent(majorVersion, FirebirdSyntax::new);
+	}
+	
+	/**
+	 * @return the major version of the server whose keywords are used, <code>0</code> for the newest
+	 */
+	public int getMajorVersion()
+	{
+		return majorVersion;
 	}
 }
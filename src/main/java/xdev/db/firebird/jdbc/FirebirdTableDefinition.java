@@ -0,0 +1,93 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Definition of a table for {@link FirebirdJDBCConnection#createTables(java.util.List)}: a name, an
+ * <code>INTEGER</code> or explicitly typed primary key column and further columns with their Firebird types.
+ */
+public class FirebirdTableDefinition
+{
+	private final String tableName;
+	private final String primaryKey;
+	private final Map<String, String> columns;
+	
+	/**
+	 * @param tableName  the table name, as written in the DDL
+	 * @param primaryKey the primary key column, <code>INTEGER</code> if it isn't contained in <code>columns</code>
+	 * @param columns    the column types by column name, in DDL order
+	 */
+	public FirebirdTableDefinition(final String tableName, final String primaryKey, final Map<String, String> columns)
+	{
+		this.tableName = tableName;
+		this.primaryKey = primaryKey;
+		this.columns = new LinkedHashMap<>(columns);
+		this.columns.putIfAbsent(primaryKey, "INTEGER"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * @return the table name, as written in the DDL
+	 */
+	public String getTableName()
+	{
+		return this.tableName;
+	}
+	
+	/**
+	 * @return the primary key column
+	 */
+	public String getPrimaryKey()
+	{
+		return this.primaryKey;
+	}
+	
+	/**
+	 * @return the column types by column name
+	 */
+	public Map<String, String> getColumns()
+	{
+		return Collections.unmodifiableMap(this.columns);
+	}
+	
+	/**
+	 * Appends the <code>CREATE TABLE</code> statement.
+	 *
+	 * @param sb the builder to append to
+	 * @return <code>sb</code>
+	 */
+	public StringBuilder assembleCreateTable(final StringBuilder sb)
+	{
+		sb.append("CREATE TABLE ").append(this.tableName).append('(') //$NON-NLS-1$
+			.append(this.primaryKey).append(' ').append(this.columns.get(this.primaryKey)).append(" NOT NULL,");
+		
+		for(final Map.Entry<String, String> column : this.columns.entrySet())
+		{
+			if(!column.getKey().equals(this.primaryKey))
+			{
+				sb.append(column.getKey()).append(' ').append(column.getValue()).append(',');
+			}
+		}
+		
+		return sb.append(" PRIMARY KEY (").append(this.primaryKey).append("))"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.firebirdsql.gds.TransactionParameterBuffer;
+import org.firebirdsql.jdbc.FirebirdConnection;
+
+import xdev.db.DBException;
+
+
+/**
+ * Exports a table into files, one per key range, which are read in parallel on separate connections.
+ * <p>
+ * Tables with a single column integer primary key are split into ranges of equal key span between the minimum and
+ * maximum key. Other tables are exported as one partition. On Firebird 4 and later all partitions are read from
+ * the snapshot of one coordinating transaction (<code>isc_tpb_at_snapshot_number</code>), so the export is
+ * consistent. On older versions each partition reads its own snapshot; with
+ * {@link #setRequireConsistentSnapshot(boolean)} the table is exported as one partition there instead.
+ * <p>
+ * Each partition is streamed with a {@link FirebirdCursor} into its own file, so neither the rows nor the file
+ * contents are held in memory.
+ */
+public class FirebirdTableExporter
+{
+	/**
+	 * Partitions per thread, so threads which finish early can take over work from skewed ranges.
+	 */
+	public static final int PARTITIONS_PER_THREAD = 4;
+	
+	/**
+	 * First Firebird version which can share a snapshot between transactions.
+	 */
+	public static final int SHARED_SNAPSHOT_MIN_VERSION = 4;
+	
+	/**
+	 * <code>isc_tpb_at_snapshot_number</code>, not known to Jaybird 3.
+	 */
+	private static final int ISC_TPB_AT_SNAPSHOT_NUMBER = 23;
+	
+	private static final FirebirdTransactionProfile SNAPSHOT = new FirebirdTransactionProfile("export",
+		FirebirdTransactionProfile.Isolation.CONCURRENCY, false, true, false, 0);
+	
+	private static final String SELECT_SNAPSHOT_NUMBER =
+		"SELECT RDB$GET_CONTEXT('SYSTEM', 'SNAPSHOT_NUMBER') FROM RDB$DATABASE"; //$NON-NLS-1$
+	
+	/**
+	 * Primary key column of a table if the key has only one column of type SMALLINT, INTEGER or BIGINT.
+	 */
+	private static final String SELECT_INTEGER_PRIMARY_KEY = "SELECT TRIM(S.RDB$FIELD_NAME)" //$NON-NLS-1$
+		+ " FROM RDB$RELATION_CONSTRAINTS RC" //$NON-NLS-1$
+		+ " JOIN RDB$INDEX_SEGMENTS S ON S.RDB$INDEX_NAME = RC.RDB$INDEX_NAME" //$NON-NLS-1$
+		+ " JOIN RDB$RELATION_FIELDS RF ON RF.RDB$RELATION_NAME = RC.RDB$RELATION_NAME" //$NON-NLS-1$
+		+ " AND RF.RDB$FIELD_NAME = S.RDB$FIELD_NAME" //$NON-NLS-1$
+		+ " JOIN RDB$FIELDS F ON F.RDB$FIELD_NAME = RF.RDB$FIELD_SOURCE" //$NON-NLS-1$
+		+ " WHERE RC.RDB$RELATION_NAME = ? AND RC.RDB$CONSTRAINT_TYPE = 'PRIMARY KEY'" //$NON-NLS-1$
+		+ " AND F.RDB$FIELD_TYPE IN (7, 8, 16) AND COALESCE(F.RDB$FIELD_SCALE, 0) = 0" //$NON-NLS-1$
+		+ " AND (SELECT COUNT(*) FROM RDB$INDEX_SEGMENTS S2" //$NON-NLS-1$
+		+ " WHERE S2.RDB$INDEX_NAME = S.RDB$INDEX_NAME) = 1"; //$NON-NLS-1$
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+	private volatile FirebirdExportFormat format = FirebirdExportFormat.CSV;
+	private volatile boolean requireConsistentSnapshot = true;
+	
+	public FirebirdTableExporter(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Exports a table into <code>directory</code>. The files are named
+	 * <code>&lt;table&gt;.&lt;partition&gt;.&lt;extension&gt;</code>, existing files are replaced.
+	 *
+	 * @param tableName the table
+	 * @param directory the target directory, which must exist
+	 * @return the files and row count
+	 * @throws DBException if the table can't be read or a file can't be written; the files written so far are
+	 *                     left behind
+	 */
+	public FirebirdExportReport export(final String tableName, final Path directory) throws DBException
+	{
+		final long start = System.nanoTime();
+		final String name = FirebirdIndexMaintenance.unqualify(tableName);
+		final FirebirdExportFormat format = this.format;
+		
+		ExecutorService executor = null;
+		try(Connection coordinator = this.dataSource.borrowConnection())
+		{
+			// the coordinating transaction pins the snapshot until all partitions are read
+			SNAPSHOT.apply(coordinator);
+			coordinator.setAutoCommit(false);
+			final FirebirdExportReport report;
+			try
+			{
+				final Long snapshotNumber = this.dataSource.getDbmsAdaptor()
+					.getServerMajorVersion() >= SHARED_SNAPSHOT_MIN_VERSION ? readSnapshotNumber(coordinator)
+						: null;
+				
+				List<long[]> ranges = null;
+				String keyColumn = null;
+				if(snapshotNumber != null || !this.requireConsistentSnapshot)
+				{
+					keyColumn = findIntegerPrimaryKey(coordinator, name);
+					if(keyColumn != null)
+					{
+						ranges = this.splitKeyRange(coordinator, name, keyColumn);
+					}
+				}
+				final boolean partitioned = ranges != null && ranges.size() > 1;
+				
+				final List<Future<Long>> partitions = new ArrayList<>();
+				final List<Path> files = new ArrayList<>();
+				final int partitionCount = partitioned ? ranges.size() : 1;
+				executor = this.createExecutor(Math.min(this.parallelism, partitionCount));
+				for(int i = 0; i < partitionCount; i++)
+				{
+					final Path file = directory.resolve(fileName(name, i, format));
+					files.add(file);
+					final long[] range = partitioned ? ranges.get(i) : null;
+					final String sql = partitioned ? selectRange(name, keyColumn) : selectAll(name);
+					partitions.add(executor.submit(() -> this.exportPartition(sql, range, snapshotNumber, file,
+						format)));
+				}
+				
+				long rowCount = 0;
+				for(final Future<Long> partition : partitions)
+				{
+					rowCount += partition.get();
+				}
+				report = new FirebirdExportReport(tableName, files, rowCount, !partitioned || snapshotNumber != null,
+					System.nanoTime() - start);
+			}
+			catch(final SQLException | ExecutionException | InterruptedException | RuntimeException e)
+			{
+				try
+				{
+					coordinator.rollback();
+					coordinator.setAutoCommit(true);
+				}
+				catch(final SQLException rollbackFailure)
+				{
+					e.addSuppressed(rollbackFailure);
+				}
+				throw e;
+			}
+			coordinator.commit();
+			coordinator.setAutoCommit(true);
+			return report;
+		}
+		catch(final SQLException e)
+		{
+			throw new DBException(this.dataSource, e);
+		}
+		catch(final ExecutionException e)
+		{
+			throw new DBException(this.dataSource, e.getCause());
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new DBException(this.dataSource, e);
+		}
+		finally
+		{
+			if(executor != null)
+			{
+				executor.shutdownNow();
+			}
+		}
+	}
+	
+	private long exportPartition(
+		final String sql, final long[] range, final Long snapshotNumber, final Path file,
+		final FirebirdExportFormat format) throws SQLException, IOException
+	{
+		final Connection connection = this.dataSource.borrowConnection();
+		try
+		{
+			final FirebirdConnection firebirdConnection = connection.unwrap(FirebirdConnection.class);
+			final TransactionParameterBuffer tpb = SNAPSHOT.createTransactionParameterBuffer(firebirdConnection);
+			if(snapshotNumber != null)
+			{
+				tpb.addArgument(ISC_TPB_AT_SNAPSHOT_NUMBER, littleEndian(snapshotNumber));
+			}
+			firebirdConnection.setTransactionParameters(tpb);
+			
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			final PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+			if(range != null)
+			{
+				statement.setLong(1, range[0]);
+				statement.setLong(2, range[1]);
+			}
+			final int fetchSize = FirebirdCursor.estimateFetchSize(statement.getMetaData(),
+				this.dataSource.getFetchBufferSize());
+			
+			// the cursor owns the connection from here on
+			try(FirebirdCursor cursor = new FirebirdCursor(sql, connection, autoCommit, statement, fetchSize,
+				this.dataSource.getInstrumentation()); OutputStream out = Files.newOutputStream(file))
+			{
+				final FirebirdExportFormat.RowWriter writer = format.createWriter(out, columnNames(cursor
+					.getMetaData()));
+				while(cursor.hasNext())
+				{
+					writer.write(cursor.next());
+				}
+				writer.finish();
+				return cursor.getRowCount();
+			}
+		}
+		catch(final SQLException | IOException | RuntimeException e)
+		{
+			if(!connection.isClosed())
+			{
+				connection.close();
+			}
+			throw e;
+		}
+	}
+	
+	private List<long[]> splitKeyRange(final Connection connection, final String name, final String keyColumn)
+		throws SQLException
+	{
+		final FirebirdDbms dbms = this.dataSource.getDbmsAdaptor();
+		final String column = dbms.quoteIdentifier(keyColumn);
+		final String sql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM " //$NON-NLS-1$ //$NON-NLS-2$
+			+ dbms.quoteIdentifier(name);
+		final long min;
+		final long max;
+		try(PreparedStatement statement = connection.prepareStatement(sql);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			resultSet.next();
+			min = resultSet.getLong(1);
+			if(resultSet.wasNull())
+			{
+				return null;
+			}
+			max = resultSet.getLong(2);
+		}
+		
+		final BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+		final int count = (int)Math.min((long)this.parallelism * PARTITIONS_PER_THREAD, span.min(BigInteger
+			.valueOf(Integer.MAX_VALUE)).longValue());
+		final List<long[]> ranges = new ArrayList<>(count);
+		long lower = min;
+		for(int i = 1; i <= count; i++)
+		{
+			final long upper = i == count ? max : BigInteger.valueOf(min).add(span.multiply(BigInteger.valueOf(i))
+				.divide(BigInteger.valueOf(count))).longValue() - 1;
+			ranges.add(new long[]{lower, upper});
+			lower = upper + 1;
+		}
+		return ranges;
+	}
+	
+	private static String findIntegerPrimaryKey(final Connection connection, final String name) throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_INTEGER_PRIMARY_KEY))
+		{
+			statement.setString(1, name);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				return resultSet.next() ? resultSet.getString(1) : null;
+			}
+		}
+	}
+	
+	private static Long readSnapshotNumber(final Connection connection) throws SQLException
+	{
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_SNAPSHOT_NUMBER);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			return resultSet.next() ? Long.valueOf(resultSet.getString(1).trim()) : null;
+		}
+	}
+	
+	private String selectAll(final String name)
+	{
+		return "SELECT * FROM " + this.dataSource.getDbmsAdaptor().quoteIdentifier(name); //$NON-NLS-1$
+	}
+	
+	private String selectRange(final String name, final String keyColumn)
+	{
+		final String column = this.dataSource.getDbmsAdaptor().quoteIdentifier(keyColumn);
+		return selectAll(name) + " WHERE " + column + " BETWEEN ? AND ? ORDER BY " + column; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	private static String fileName(final String name, final int partition, final FirebirdExportFormat format)
+	{
+		final String prefix = name.replaceAll("[^\\w$]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
+		return prefix + "." + partition + "." + format.getFileExtension(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	private static String[] columnNames(final ResultSetMetaData metaData) throws SQLException
+	{
+		final String[] names = new String[metaData.getColumnCount()];
+		for(int i = 0; i < names.length; i++)
+		{
+			names[i] = metaData.getColumnLabel(i + 1);
+		}
+		return names;
+	}
+	
+	private static byte[] littleEndian(final long value)
+	{
+		final byte[] bytes = new byte[8];
+		for(int i = 0; i < 8; i++)
+		{
+			bytes[i] = (byte)(value >>> (i * 8));
+		}
+		return bytes;
+	}
+	
+	private ExecutorService createExecutor(final int threads)
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "Firebird export " + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * @return the maximum count of partitions which are read at the same time, one connection each
+	 */
+	public int getParallelism()
+	{
+		return this.parallelism;
+	}
+	
+	public void setParallelism(final int parallelism)
+	{
+		if(parallelism < 1)
+		{
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+	}
+	
+	public FirebirdExportFormat getFormat()
+	{
+		return this.format;
+	}
+	
+	public void setFormat(final FirebirdExportFormat format)
+	{
+		if(format == null)
+		{
+			throw new IllegalArgumentException("format must not be null");
+		}
+		this.format = format;
+	}
+	
+	/**
+	 * @return <code>true</code> if tables are exported as one partition on servers which can't share a snapshot
+	 *         between connections, <code>true</code> by default
+	 */
+	public boolean isRequireConsistentSnapshot()
+	{
+		return this.requireConsistentSnapshot;
+	}
+	
+	public void setRequireConsistentSnapshot(final boolean requireConsistentSnapshot)
+	{
+		this.requireConsistentSnapshot = requireConsistentSnapshot;
+	}
+}
@@ -0,0 +1,777 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import xdev.db.DBException;
+import xdev.util.ProgressMonitor;
+
+
+/**
+ * Bulk loader of tables: a parser stage reads the source, a batcher stage groups the rows into batches and a writer
+ * stage inserts the batches. The stages run in their own threads, connected by bounded queues, so parsing
+ * overlaps with writing and a slow server throttles the parser instead of filling the heap.
+ * <p>
+ * For the load, the indices of the table which don't enforce constraints are deactivated and rebuilt afterwards in
+ * one pass, which is much faster than maintaining them per row. On request the triggers of the table are
+ * deactivated as well, then they don't fire for the loaded rows, so derived data has to be maintained by the caller.
+ * Indices and triggers which can't be reactivated afterwards are listed in the {@link FirebirdImportReport}.
+ * <p>
+ * The writer commits every {@link #getCommitInterval() commit interval} rows. If the import fails or is canceled,
+ * the rows of the committed batches remain in the table.
+ */
+public class FirebirdTableImporter
+{
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+	public static final int DEFAULT_COMMIT_INTERVAL = 100000;
+	public static final int DEFAULT_QUEUE_CAPACITY = 4;
+	
+	/**
+	 * Maximum length of an <code>EXECUTE BLOCK</code> text, Firebird before version 4 limits statements to 64 KB.
+	 */
+	private static final int MAX_BLOCK_LENGTH = 60000;
+	
+	/**
+	 * Firebird limits the parameters of an <code>EXECUTE BLOCK</code>.
+	 */
+	private static final int MAX_BLOCK_PARAMETERS = 1000;
+	
+	private static final String SELECT_ACTIVE_TRIGGERS = "SELECT TRIM(RDB$TRIGGER_NAME) FROM RDB$TRIGGERS" //$NON-NLS-1$
+		+ " WHERE RDB$RELATION_NAME = ? AND COALESCE(RDB$TRIGGER_INACTIVE, 0) = 0" //$NON-NLS-1$
+		+ " AND COALESCE(RDB$SYSTEM_FLAG, 0) = 0"; //$NON-NLS-1$
+	
+	private static final Object[] END_OF_ROWS = new Object[0];
+	private static final List<Object[]> END_OF_BATCHES = Collections.emptyList();
+	
+	private final FirebirdJDBCDataSource dataSource;
+	private volatile FirebirdImportMode mode = FirebirdImportMode.EXECUTE_BLOCK;
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+	private volatile int commitInterval = DEFAULT_COMMIT_INTERVAL;
+	private volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private volatile boolean suspendIndices = true;
+	private volatile boolean suspendTriggers;
+	private volatile Path externalFileDirectory;
+	private volatile String externalFileServerDirectory;
+	
+	public FirebirdTableImporter(final FirebirdJDBCDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Imports a CSV file with a header line of column names, as written by {@link FirebirdExportFormat#CSV}. The
+	 * values are passed as strings, the driver converts them to the column types.
+	 *
+	 * @param tableName the table
+	 * @param file      the UTF-8 encoded file
+	 * @param monitor   the progress monitor, may be <code>null</code>
+	 * @return the count of imported rows
+	 * @throws DBException if the file can't be read or the rows can't be inserted
+	 */
+	public FirebirdImportReport importCsv(final String tableName, final Path file, final ProgressMonitor monitor)
+		throws DBException
+	{
+		try(FirebirdCsvReader reader = new FirebirdCsvReader(Files.newBufferedReader(file,
+			StandardCharsets.UTF_8)))
+		{
+			if(!reader.hasNext())
+			{
+				throw new DBException(this.dataSource, "Missing header line in " + file);
+			}
+			return this.importRows(tableName, reader.next(), reader, monitor);
+		}
+		catch(final IOException | UncheckedIOException e)
+		{
+			throw new DBException(this.dataSource, e);
+		}
+	}
+	
+	/**
+	 * Imports rows into a table. <code>rows</code> is consumed by the parser thread.
+	 *
+	 * @param tableName the table
+	 * @param columns   the column names as stored in the system tables
+	 * @param rows      the values of the rows, in the order of <code>columns</code>
+	 * @param monitor   the progress monitor, may be <code>null</code>
+	 * @return the count of imported rows
+	 * @throws DBException if the rows can't be inserted
+	 */
+	public FirebirdImportReport importRows(
+		final String tableName, final String[] columns, final Iterator<? extends Object[]> rows,
+		final ProgressMonitor monitor) throws DBException
+	{
+		final long start = System.nanoTime();
+		final String name = FirebirdIndexMaintenance.unqualify(tableName);
+		final int batchSize = this.batchSize;
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final BlockingQueue<Object[]> rowQueue = new ArrayBlockingQueue<>(batchSize);
+		final BlockingQueue<List<Object[]>> batchQueue = new ArrayBlockingQueue<>(this.queueCapacity);
+		
+		if(monitor != null)
+		{
+			monitor.beginTask(name, ProgressMonitor.UNKNOWN);
+		}
+		
+		final ExecutorService stages = this.createStages();
+		try
+		{
+			stages.execute(() -> parse(rows, columns.length, rowQueue, failure));
+			stages.execute(() -> batch(rowQueue, batchQueue, batchSize, failure));
+			return this.write(name, columns, batchQueue, failure, monitor, start);
+		}
+		finally
+		{
+			stages.shutdownNow();
+			if(monitor != null)
+			{
+				monitor.done();
+			}
+		}
+	}
+	
+	private static void parse(
+		final Iterator<? extends Object[]> rows, final int columnCount, final BlockingQueue<Object[]> rowQueue,
+		final AtomicReference<Throwable> failure)
+	{
+		try
+		{
+			while(rows.hasNext())
+			{
+				final Object[] row = rows.next();
+				if(row.length != columnCount)
+				{
+					throw new IllegalArgumentException("Row with " + row.length + " values instead of "
+						+ columnCount + ": " + Arrays.toString(row));
+				}
+				rowQueue.put(row);
+			}
+		}
+		catch(final InterruptedException e)
+		{
+			// the writer stopped
+			return;
+		}
+		catch(final RuntimeException e)
+		{
+			failure.compareAndSet(null, e);
+		}
+		try
+		{
+			rowQueue.put(END_OF_ROWS);
+		}
+		catch(final InterruptedException e)
+		{
+			// the writer stopped
+		}
+	}
+	
+	private static void batch(
+		final BlockingQueue<Object[]> rowQueue, final BlockingQueue<List<Object[]>> batchQueue,
+		final int batchSize, final AtomicReference<Throwable> failure)
+	{
+		try
+		{
+			List<Object[]> batch = new ArrayList<>(batchSize);
+			for(Object[] row = rowQueue.take(); row != END_OF_ROWS; row = rowQueue.take())
+			{
+				batch.add(row);
+				if(batch.size() == batchSize)
+				{
+					batchQueue.put(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if(!batch.isEmpty() && failure.get() == null)
+			{
+				batchQueue.put(batch);
+			}
+			batchQueue.put(END_OF_BATCHES);
+		}
+		catch(final InterruptedException e)
+		{
+			// the writer stopped
+		}
+	}
+	
+	private FirebirdImportReport write(
+		final String name, final String[] columns, final BlockingQueue<List<Object[]>> batchQueue,
+		final AtomicReference<Throwable> failure, final ProgressMonitor monitor, final long start)
+		throws DBException
+	{
+		List<String> indices = Collections.emptyList();
+		final List<String> triggers = new ArrayList<>();
+		final List<String> inactiveIndices = new ArrayList<>();
+		final List<String> inactiveTriggers = new ArrayList<>();
+		long rowCount = 0;
+		boolean canceled = false;
+		try(Connection connection = this.dataSource.borrowConnection())
+		{
+			try
+			{
+				if(this.suspendTriggers)
+				{
+					for(final String trigger : readActiveTriggers(connection, name))
+					{
+						setTriggerActive(connection, trigger, false);
+						triggers.add(trigger);
+					}
+				}
+				if(this.suspendIndices)
+				{
+					indices = FirebirdIndexMaintenance.deactivateIndices(connection, name);
+				}
+				if(!triggers.isEmpty() || !indices.isEmpty())
+				{
+					// cached statements on the table keep the plans of the active indices
+					this.dataSource.invalidateStatementCaches();
+				}
+				
+				final FirebirdDbms dbms = this.dataSource.getDbmsAdaptor();
+				final String table = dbms.quoteIdentifier(name);
+				final String[] quotedColumns = new String[columns.length];
+				final String[] columnTypes = new String[columns.length];
+				for(int i = 0; i < columns.length; i++)
+				{
+					quotedColumns[i] = dbms.quoteIdentifier(columns[i]);
+					columnTypes[i] = "TYPE OF COLUMN " + table + "." + quotedColumns[i]; //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				
+				connection.setAutoCommit(false);
+				long uncommitted = 0;
+				for(List<Object[]> batch = batchQueue.take(); batch != END_OF_BATCHES; batch = batchQueue.take())
+				{
+					if(monitor != null && monitor.isCanceled())
+					{
+						canceled = true;
+						break;
+					}
+					
+					if(this.mode == FirebirdImportMode.EXTERNAL_TABLE)
+					{
+						connection.commit();
+						rowCount += uncommitted;
+						uncommitted = 0;
+						this.writeExternalTable(connection, name, quotedColumns, columnTypes, batch);
+						rowCount += batch.size();
+					}
+					else
+					{
+						this.writeExecuteBlocks(connection, table, quotedColumns, columnTypes, batch);
+						uncommitted += batch.size();
+						if(uncommitted >= this.commitInterval)
+						{
+							connection.commit();
+							rowCount += uncommitted;
+							uncommitted = 0;
+						}
+					}
+					
+					if(monitor != null)
+					{
+						monitor.worked(batch.size());
+					}
+				}
+				
+				if(failure.get() != null)
+				{
+					throw new DBException(this.dataSource, failure.get());
+				}
+				connection.commit();
+				rowCount += uncommitted;
+			}
+			catch(final SQLException | IOException | DBException | InterruptedException | RuntimeException e)
+			{
+				try
+				{
+					connection.rollback();
+				}
+				catch(final SQLException rollbackFailure)
+				{
+					e.addSuppressed(rollbackFailure);
+				}
+				for(final Exception reactivationFailure : this.reactivate(connection, indices, triggers,
+					inactiveIndices, inactiveTriggers))
+				{
+					e.addSuppressed(reactivationFailure);
+				}
+				throw e;
+			}
+			
+			// failures are reported by the inactive indices and triggers of the report
+			this.reactivate(connection, indices, triggers, inactiveIndices, inactiveTriggers);
+		}
+		catch(final SQLException | IOException e)
+		{
+			throw new DBException(this.dataSource, e);
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new DBException(this.dataSource, e);
+		}
+		
+		final List<String> rebuiltIndices = new ArrayList<>(indices);
+		rebuiltIndices.removeAll(inactiveIndices);
+		return new FirebirdImportReport(name, rowCount, canceled, rebuiltIndices, triggers, inactiveIndices,
+			inactiveTriggers, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Reactivates the suspended indices and triggers one by one. An object which can't be reactivated on
+	 * <code>connection</code> is retried on a fresh connection, e.g. if the import broke the connection.
+	 *
+	 * @param inactiveIndices  receives the indices which are still inactive
+	 * @param inactiveTriggers receives the triggers which are still inactive
+	 * @return the failures
+	 */
+	private List<Exception> reactivate(
+		final Connection connection, final List<String> indices, final List<String> triggers,
+		final List<String> inactiveIndices, final List<String> inactiveTriggers)
+	{
+		final List<Exception> failures = new ArrayList<>();
+		try
+		{
+			connection.setAutoCommit(true);
+		}
+		catch(final SQLException e)
+		{
+			failures.add(e);
+		}
+		
+		Connection fresh = null;
+		try
+		{
+			for(int i = 0; i < indices.size() + triggers.size(); i++)
+			{
+				final boolean index = i < indices.size();
+				final String object = index ? indices.get(i) : triggers.get(i - indices.size());
+				try
+				{
+					reactivate(connection, object, index);
+				}
+				catch(final SQLException e)
+				{
+					try
+					{
+						if(fresh == null)
+						{
+							fresh = this.dataSource.borrowConnection();
+						}
+						reactivate(fresh, object, index);
+					}
+					catch(final SQLException retryFailure)
+					{
+						e.addSuppressed(retryFailure);
+						failures.add(e);
+						(index ? inactiveIndices : inactiveTriggers).add(object);
+					}
+				}
+			}
+		}
+		finally
+		{
+			if(fresh != null)
+			{
+				try
+				{
+					fresh.close();
+				}
+				catch(final SQLException e)
+				{
+					failures.add(e);
+				}
+			}
+			this.dataSource.ddlExecuted();
+		}
+		return failures;
+	}
+	
+	private static void reactivate(final Connection connection, final String object, final boolean index)
+		throws SQLException
+	{
+		if(index)
+		{
+			FirebirdIndexMaintenance.activateIndices(connection, Collections.singletonList(object));
+		}
+		else
+		{
+			setTriggerActive(connection, object, true);
+		}
+	}
+	
+	private void writeExecuteBlocks(
+		final Connection connection, final String table, final String[] columns, final String[] columnTypes,
+		final List<Object[]> batch) throws SQLException
+	{
+		final FirebirdDMLAssembler assembler = this.dataSource.getDbmsAdaptor().getDMLAssembler();
+		final FirebirdStatementCache cache = this.dataSource.getStatementCache(connection);
+		final int rowsPerBlock = rowsPerBlock(table, columns, columnTypes);
+		
+		for(int start = 0; start < batch.size(); start += rowsPerBlock)
+		{
+			final List<Object[]> block = batch.subList(start, Math.min(start + rowsPerBlock, batch.size()));
+			final String sql = assembler.assembleInsertBlock(table, columns, columnTypes, block.size(),
+				new StringBuilder()).toString();
+			
+			final PreparedStatement statement = cache.prepare(sql);
+			try
+			{
+				int parameter = 1;
+				for(final Object[] row : block)
+				{
+					for(final Object value : row)
+					{
+						statement.setObject(parameter++, value);
+					}
+				}
+				statement.execute();
+			}
+			finally
+			{
+				cache.release(statement, sql);
+			}
+		}
+	}
+	
+	/**
+	 * @return the count of rows which fit into one <code>EXECUTE BLOCK</code>
+	 */
+	private static int rowsPerBlock(final String table, final String[] columns, final String[] columnTypes)
+	{
+		// parameter declaration, insert column and value per column
+		int rowLength = 30 + table.length();
+		for(int i = 0; i < columns.length; i++)
+		{
+			rowLength += 2 * columns[i].length() + columnTypes[i].length() + 30;
+		}
+		return Math.max(1, Math.min(MAX_BLOCK_LENGTH / rowLength, MAX_BLOCK_PARAMETERS / columns.length));
+	}
+	
+	/**
+	 * Writes a batch into a fixed-width file and inserts it from an external table on that file. Each column is
+	 * stored as one null flag byte and the UTF-8 text of the value, padded with spaces; each record ends with a
+	 * line feed.
+	 */
+	private void writeExternalTable(
+		final Connection connection, final String name, final String[] columns, final String[] columnTypes,
+		final List<Object[]> batch) throws SQLException, IOException
+	{
+		final Path directory = this.externalFileDirectory;
+		if(directory == null)
+		{
+			throw new IllegalStateException("externalFileDirectory is required for " + this.mode);
+		}
+		
+		final byte[][][] values = new byte[batch.size()][][];
+		final int[] widths = new int[columns.length];
+		for(int row = 0; row < values.length; row++)
+		{
+			values[row] = new byte[columns.length][];
+			for(int col = 0; col < columns.length; col++)
+			{
+				final Object value = batch.get(row)[col];
+				if(value != null)
+				{
+					values[row][col] = externalText(value).getBytes(StandardCharsets.UTF_8);
+					widths[col] = Math.max(widths[col], values[row][col].length);
+				}
+			}
+		}
+		
+		final String baseName = "IMP$" + System.nanoTime(); //$NON-NLS-1$
+		final String fileName = baseName + ".dat"; //$NON-NLS-1$
+		final Path file = directory.resolve(fileName);
+		final String serverDirectory = this.externalFileServerDirectory;
+		final String serverFile = serverDirectory != null ? serverDirectory + "/" + fileName //$NON-NLS-1$
+			: file.toAbsolutePath().toString();
+		final String externalTable = FirebirdIndexMaintenance.quote(baseName);
+		
+		try
+		{
+			try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))
+			{
+				for(final byte[][] row : values)
+				{
+					for(int col = 0; col < columns.length; col++)
+					{
+						final byte[] bytes = row[col];
+						out.write(bytes == null ? '1' : '0');
+						final int length = bytes == null ? 0 : bytes.length;
+						if(length > 0)
+						{
+							out.write(bytes);
+						}
+						for(int i = length, width = Math.max(widths[col], 1); i < width; i++)
+						{
+							out.write(' ');
+						}
+					}
+					out.write('\n');
+				}
+			}
+			
+			final StringBuilder create = new StringBuilder("CREATE TABLE ").append(externalTable); //$NON-NLS-1$
+			create.append(" EXTERNAL FILE '") //$NON-NLS-1$
+				.append(serverFile.replace("'", "''")); //$NON-NLS-1$ //$NON-NLS-2$
+			create.append("' ("); //$NON-NLS-1$
+			final StringBuilder insert = this.dataSource.getDbmsAdaptor().getDMLAssembler()
+				.assembleIdentifier(name, new StringBuilder("INSERT INTO ")).append(" ("); //$NON-NLS-1$ //$NON-NLS-2$
+			final StringBuilder select = new StringBuilder(") SELECT "); //$NON-NLS-1$
+			for(int col = 0; col < columns.length; col++)
+			{
+				final int width = Math.max(widths[col], 1);
+				create.append("N").append(col) //$NON-NLS-1$
+					.append(" CHAR(1) CHARACTER SET OCTETS, V").append(col) //$NON-NLS-1$
+					.append(" CHAR(").append(width).append(") CHARACTER SET OCTETS, "); //$NON-NLS-1$ //$NON-NLS-2$
+				insert.append(col > 0 ? ", " : "").append(columns[col]); //$NON-NLS-1$ //$NON-NLS-2$
+				select.append(col > 0 ? ", " : "") //$NON-NLS-1$ //$NON-NLS-2$
+					.append("CASE WHEN N").append(col) //$NON-NLS-1$
+					.append(" = '1' THEN NULL ELSE CAST(TRIM(TRAILING FROM CAST(V").append(col) //$NON-NLS-1$
+					.append(" AS VARCHAR(").append(width) //$NON-NLS-1$
+					.append(") CHARACTER SET UTF8)) AS ") //$NON-NLS-1$
+					.append(columnTypes[col]).append(") END"); //$NON-NLS-1$
+			}
+			create.append("EOL CHAR(1) CHARACTER SET OCTETS)"); //$NON-NLS-1$
+			select.append(" FROM ").append(externalTable); //$NON-NLS-1$
+			
+			try(Statement statement = connection.createStatement())
+			{
+				statement.execute(create.toString());
+				connection.commit();
+				try
+				{
+					statement.executeUpdate(insert.append(select).toString());
+					connection.commit();
+				}
+				finally
+				{
+					statement.execute("DROP TABLE " + externalTable); //$NON-NLS-1$
+					connection.commit();
+				}
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+	
+	private static String externalText(final Object value)
+	{
+		if(value instanceof byte[])
+		{
+			throw new IllegalArgumentException("Binary values can't be loaded through external tables");
+		}
+		if(value instanceof BigDecimal)
+		{
+			return ((BigDecimal)value).toPlainString();
+		}
+		if(value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time))
+		{
+			// Firebird accepts at most 4 fractional digits
+			final String text = (value instanceof Timestamp ? (Timestamp)value : new Timestamp(((Date)value)
+				.getTime())).toString();
+			final int dot = text.lastIndexOf('.');
+			return dot < 0 ? text : text.substring(0, Math.min(text.length(), dot + 5));
+		}
+		return value.toString();
+	}
+	
+	private static List<String> readActiveTriggers(final Connection connection, final String name)
+		throws SQLException
+	{
+		final List<String> triggers = new ArrayList<>();
+		try(PreparedStatement statement = connection.prepareStatement(SELECT_ACTIVE_TRIGGERS))
+		{
+			statement.setString(1, name);
+			try(ResultSet resultSet = statement.executeQuery())
+			{
+				while(resultSet.next())
+				{
+					triggers.add(resultSet.getString(1));
+				}
+			}
+		}
+		return triggers;
+	}
+	
+	private static void setTriggerActive(final Connection connection, final String trigger, final boolean active)
+		throws SQLException
+	{
+		try(Statement statement = connection.createStatement())
+		{
+			statement.execute("ALTER TRIGGER " + FirebirdIndexMaintenance.quote(trigger) //$NON-NLS-1$
+				+ (active ? " ACTIVE" : " INACTIVE")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	private ExecutorService createStages()
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(2, runnable -> {
+			final Thread thread = new Thread(runnable, "Firebird import " + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	public FirebirdImportMode getMode()
+	{
+		return this.mode;
+	}
+	
+	public void setMode(final FirebirdImportMode mode)
+	{
+		if(mode == null)
+		{
+			throw new IllegalArgumentException("mode must not be null");
+		}
+		this.mode = mode;
+	}
+	
+	/**
+	 * @return the count of rows per batch, the unit of the writer and the progress reports
+	 */
+	public int getBatchSize()
+	{
+		return this.batchSize;
+	}
+	
+	public void setBatchSize(final int batchSize)
+	{
+		if(batchSize <= 0)
+		{
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * @return the count of rows after which the writer commits; {@link FirebirdImportMode#EXTERNAL_TABLE}
+	 *         commits every batch
+	 */
+	public int getCommitInterval()
+	{
+		return this.commitInterval;
+	}
+	
+	public void setCommitInterval(final int commitInterval)
+	{
+		if(commitInterval <= 0)
+		{
+			throw new IllegalArgumentException("commitInterval must be positive");
+		}
+		this.commitInterval = commitInterval;
+	}
+	
+	/**
+	 * @return the count of batches the batcher may prepare ahead of the writer
+	 */
+	public int getQueueCapacity()
+	{
+		return this.queueCapacity;
+	}
+	
+	public void setQueueCapacity(final int queueCapacity)
+	{
+		if(queueCapacity <= 0)
+		{
+			throw new IllegalArgumentException("queueCapacity must be positive");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+	
+	/**
+	 * @return <code>true</code> if the indices which don't enforce constraints are deactivated during the load,
+	 *         <code>true</code> by default
+	 */
+	public boolean isSuspendIndices()
+	{
+		return this.suspendIndices;
+	}
+	
+	public void setSuspendIndices(final boolean suspendIndices)
+	{
+		this.suspendIndices = suspendIndices;
+	}
+	
+	/**
+	 * @return <code>true</code> if the triggers are deactivated during the load, <code>false</code> by default
+	 */
+	public boolean isSuspendTriggers()
+	{
+		return this.suspendTriggers;
+	}
+	
+	/**
+	 * Trigger deactivation is DDL and therefore global: while the import runs, the triggers of the table don't fire
+	 * for the statements of any other connection either.
+	 *
+	 * @param suspendTriggers <code>true</code> to deactivate the triggers of the table during the load
+	 */
+	public void setSuspendTriggers(final boolean suspendTriggers)
+	{
+		this.suspendTriggers = suspendTriggers;
+	}
+	
+	/**
+	 * @return the local directory of the files of {@link FirebirdImportMode#EXTERNAL_TABLE}
+	 */
+	public Path getExternalFileDirectory()
+	{
+		return this.externalFileDirectory;
+	}
+	
+	/**
+	 * @param externalFileDirectory the local directory of the files of {@link FirebirdImportMode#EXTERNAL_TABLE},
+	 *                              which must be readable by the server
+	 * @param serverDirectory       the same directory as seen by the server, <code>null</code> if the server
+	 *                              sees the same path
+	 */
+	public void setExternalFileDirectory(final Path externalFileDirectory, final String serverDirectory)
+	{
+		this.externalFileDirectory = externalFileDirectory;
+		this.externalFileServerDirectory = serverDirectory;
+	}
+}
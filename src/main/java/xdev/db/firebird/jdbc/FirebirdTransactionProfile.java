@@ -0,0 +1,306 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import org.firebirdsql.gds.TransactionParameterBuffer;
+import org.firebirdsql.jdbc.FirebirdConnection;
+
+
+/**
+ * Named transaction parameter buffer (TPB) for one kind of workload.
+ * <p>
+ * A profile is applied to a connection with {@link #apply(Connection)} and stays in effect for all following
+ * transactions of the connection until {@link #reset(Connection)} is called. Pooled connections are reset when
+ * they are returned to the pool.
+ *
+ * @see FirebirdJDBCDataSource#registerTransactionProfile(FirebirdTransactionProfile)
+ */
+public class FirebirdTransactionProfile
+{
+	public enum Isolation
+	{
+		/**
+		 * Table stability, locks the tables read by the transaction.
+		 */
+		CONSISTENCY(TransactionParameterBuffer.CONSISTENCY),
+		
+		/**
+		 * Snapshot, the driver default.
+		 */
+		CONCURRENCY(TransactionParameterBuffer.CONCURRENCY),
+		
+		READ_COMMITTED(TransactionParameterBuffer.READ_COMMITTED);
+		
+		final int tpbArgument;
+		
+		private Isolation(final int tpbArgument)
+		{
+			this.tpbArgument = tpbArgument;
+		}
+	}
+	
+	/**
+	 * <code>read_committed rec_version nowait</code>: short read-write transactions which fail at once on a
+	 * lock conflict instead of waiting for the holder of the lock.
+	 */
+	public static final FirebirdTransactionProfile OLTP = new FirebirdTransactionProfile("oltp",
+		Isolation.READ_COMMITTED, true, false, false, 0);
+	
+	/**
+	 * <code>read only read_committed rec_version</code>: read-only read committed transactions don't hold back
+	 * the oldest interesting transaction, so long reports don't block garbage collection and sweep.
+	 */
+	public static final FirebirdTransactionProfile REPORTING = new FirebirdTransactionProfile("reporting",
+		Isolation.READ_COMMITTED, true, true, false, 0);
+	
+	private final String name;
+	private final Isolation isolation;
+	private final boolean recordVersion;
+	private final boolean readOnly;
+	private final boolean wait;
+	private final int lockTimeout;
+	
+	/**
+	 * @param name          the name of the profile
+	 * @param isolation     the isolation level
+	 * @param recordVersion <code>true</code> to read the latest committed version of a row which has an
+	 *                      uncommitted update, only for {@link Isolation#READ_COMMITTED}
+	 * @param readOnly      <code>true</code> for read-only transactions
+	 * @param wait          <code>true</code> to wait for locks
+	 * @param lockTimeout   the maximum time to wait for a lock in seconds, 0 to wait without limit; only if
+	 *                      <code>wait</code> is <code>true</code>
+	 */
+	public FirebirdTransactionProfile(
+		final String name, final Isolation isolation, final boolean recordVersion, final boolean readOnly,
+		final boolean wait, final int lockTimeout)
+	{
+		if(name == null || name.isEmpty())
+		{
+			throw new IllegalArgumentException("name must not be empty");
+		}
+		if(isolation == null)
+		{
+			throw new IllegalArgumentException("isolation must not be null");
+		}
+		if(lockTimeout < 0 || (lockTimeout > 0 && !wait))
+		{
+			throw new IllegalArgumentException("lockTimeout must not be negative and requires wait");
+		}
+		this.name = name;
+		this.isolation = isolation;
+		this.recordVersion = recordVersion;
+		this.readOnly = readOnly;
+		this.wait = wait;
+		this.lockTimeout = lockTimeout;
+	}
+	
+	/**
+	 * Parses a profile in the notation of the Firebird documentation, e.g.
+	 * <code>read_committed rec_version nowait</code>, <code>read only read_committed</code> or
+	 * <code>concurrency lock_timeout 10</code>. The keywords are case insensitive, the <code>isc_tpb_</code>
+	 * prefix is optional. Unspecified parameters default to <code>concurrency write wait</code>.
+	 *
+	 * @param name       the name of the profile
+	 * @param definition the parameters, separated by spaces or commas
+	 * @return the profile
+	 * @throws IllegalArgumentException if the definition contains an unknown keyword
+	 */
+	public static FirebirdTransactionProfile parse(final String name, final String definition)
+	{
+		Isolation isolation = Isolation.CONCURRENCY;
+		boolean recordVersion = false;
+		boolean readOnly = false;
+		boolean wait = true;
+		int lockTimeout = 0;
+		
+		final String[] tokens = definition.trim().toLowerCase(Locale.ENGLISH).split("[\\s,]+"); //$NON-NLS-1$
+		for(int i = 0; i < tokens.length; i++)
+		{
+			final String token = tokens[i].startsWith("isc_tpb_") ? tokens[i].substring(8) : tokens[i]; //$NON-NLS-1$
+			switch(token)
+			{
+				case "consistency": //$NON-NLS-1$
+					isolation = Isolation.CONSISTENCY;
+					break;
+				case "concurrency": //$NON-NLS-1$
+					isolation = Isolation.CONCURRENCY;
+					break;
+				case "read_committed": //$NON-NLS-1$
+					isolation = Isolation.READ_COMMITTED;
+					break;
+				case "rec_version": //$NON-NLS-1$
+					recordVersion = true;
+					break;
+				case "no_rec_version": //$NON-NLS-1$
+					recordVersion = false;
+					break;
+				case "read": //$NON-NLS-1$
+					readOnly = true;
+					if(i + 1 < tokens.length && tokens[i + 1].equals("only")) //$NON-NLS-1$
+					{
+						i++;
+					}
+					else if(i + 1 < tokens.length && tokens[i + 1].equals("write")) //$NON-NLS-1$
+					{
+						readOnly = false;
+						i++;
+					}
+					break;
+				case "write": //$NON-NLS-1$
+					readOnly = false;
+					break;
+				case "wait": //$NON-NLS-1$
+					wait = true;
+					break;
+				case "nowait": //$NON-NLS-1$
+					wait = false;
+					break;
+				case "lock_timeout": //$NON-NLS-1$
+					if(i + 1 == tokens.length)
+					{
+						throw new IllegalArgumentException("lock_timeout requires the timeout in seconds");
+					}
+					lockTimeout = Integer.parseInt(tokens[++i]);
+					wait = true;
+					break;
+				case "": //$NON-NLS-1$
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown transaction parameter: " + tokens[i]);
+			}
+		}
+		return new FirebirdTransactionProfile(name, isolation, recordVersion, readOnly, wait, lockTimeout);
+	}
+	
+	/**
+	 * @param lockTimeout the lock timeout in seconds
+	 * @return a copy of this profile which waits at most <code>lockTimeout</code> seconds for locks
+	 */
+	public FirebirdTransactionProfile withLockTimeout(final int lockTimeout)
+	{
+		return new FirebirdTransactionProfile(this.name, this.isolation, this.recordVersion, this.readOnly, true,
+			lockTimeout);
+	}
+	
+	/**
+	 * Sets the transaction parameters of the following transactions of <code>connection</code>. Must not be
+	 * called while a transaction is active.
+	 *
+	 * @param connection a Jaybird connection
+	 * @throws SQLException if the connection isn't a Jaybird connection or the parameters can't be set
+	 */
+	public void apply(final Connection connection) throws SQLException
+	{
+		final FirebirdConnection firebirdConnection = connection.unwrap(FirebirdConnection.class);
+		firebirdConnection.setTransactionParameters(this.createTransactionParameterBuffer(firebirdConnection));
+	}
+	
+	/**
+	 * @param connection a Jaybird connection
+	 * @return the TPB of this profile
+	 * @throws SQLException if the TPB can't be created
+	 */
+	TransactionParameterBuffer createTransactionParameterBuffer(final FirebirdConnection connection)
+		throws SQLException
+	{
+		final TransactionParameterBuffer tpb = connection.createTransactionParameterBuffer();
+		tpb.addArgument(this.isolation.tpbArgument);
+		if(this.isolation == Isolation.READ_COMMITTED)
+		{
+			tpb.addArgument(this.recordVersion ? TransactionParameterBuffer.REC_VERSION
+				: TransactionParameterBuffer.NO_REC_VERSION);
+		}
+		tpb.addArgument(this.readOnly ? TransactionParameterBuffer.READ : TransactionParameterBuffer.WRITE);
+		tpb.addArgument(this.wait ? TransactionParameterBuffer.WAIT : TransactionParameterBuffer.NOWAIT);
+		if(this.lockTimeout > 0)
+		{
+			tpb.addArgument(TransactionParameterBuffer.LOCK_TIMEOUT, this.lockTimeout);
+		}
+		return tpb;
+	}
+	
+	/**
+	 * Restores the transaction parameters of the isolation level of <code>connection</code>. Jaybird uses
+	 * explicitly set parameters until the isolation level is set again.
+	 *
+	 * @param connection a connection
+	 * @throws SQLException if the isolation level can't be set
+	 */
+	public static void reset(final Connection connection) throws SQLException
+	{
+		connection.setTransactionIsolation(connection.getTransactionIsolation());
+	}
+	
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	public Isolation getIsolation()
+	{
+		return this.isolation;
+	}
+	
+	public boolean isRecordVersion()
+	{
+		return this.recordVersion;
+	}
+	
+	public boolean isReadOnly()
+	{
+		return this.readOnly;
+	}
+	
+	public boolean isWait()
+	{
+		return this.wait;
+	}
+	
+	/**
+	 * @return the lock timeout in seconds, 0 for none
+	 */
+	public int getLockTimeout()
+	{
+		return this.lockTimeout;
+	}
+	
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder(this.name).append(": ");
+		if(this.readOnly)
+		{
+			sb.append("read only ");
+		}
+		sb.append(this.isolation.name().toLowerCase(Locale.ENGLISH));
+		if(this.isolation == Isolation.READ_COMMITTED && this.recordVersion)
+		{
+			sb.append(" rec_version");
+		}
+		sb.append(this.wait ? " wait" : " nowait");
+		if(this.lockTimeout > 0)
+		{
+			sb.append(" lock_timeout ").append(this.lockTimeout);
+		}
+		return sb.toString();
+	}
+}
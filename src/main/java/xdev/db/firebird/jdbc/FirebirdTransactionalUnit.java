@@ -0,0 +1,41 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+
+/**
+ * A unit of work which runs in one transaction of a {@link FirebirdRetryExecutor}.
+ * <p>
+ * The unit may be executed several times, so it must be idempotent apart from its effects on the database and
+ * must not commit, roll back or close the connection.
+ *
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface FirebirdTransactionalUnit<T>
+{
+	/**
+	 * @param connection the connection, with auto commit disabled
+	 * @return the result of the unit
+	 * @throws SQLException if the unit fails, the transaction is rolled back then
+	 */
+	public T execute(Connection connection) throws SQLException;
+}
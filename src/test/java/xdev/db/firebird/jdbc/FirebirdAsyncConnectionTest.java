@@ -0,0 +1,114 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+
+class FirebirdAsyncConnectionTest
+{
+	private final FirebirdAsyncExecutor executor = new FirebirdAsyncExecutor(4);
+	private final FirebirdJDBCDataSource dataSource = new FirebirdJDBCDataSource()
+	{
+		@Override
+		public FirebirdAsyncExecutor getAsyncExecutor()
+		{
+			return FirebirdAsyncConnectionTest.this.executor;
+		}
+	};
+	
+	@AfterEach
+	void closeExecutor()
+	{
+		this.executor.close();
+	}
+	
+	@Test
+	void callsOnOneConnectionRunOneAfterAnother() throws Exception
+	{
+		final FirebirdAsyncConnection async = new FirebirdJDBCConnection(this.dataSource).async();
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> events = new CopyOnWriteArrayList<>();
+		
+		final CompletableFuture<String> first = async.submit(() -> {
+			events.add("first started");
+			release.await();
+			events.add("first done");
+			return "first";
+		});
+		final CompletableFuture<String> second = async.submit(() -> {
+			events.add("second started");
+			return "second";
+		});
+		
+		Thread.sleep(50);
+		assertFalse(second.isDone());
+		release.countDown();
+		
+		assertEquals("second", second.get(5, TimeUnit.SECONDS));
+		assertEquals("first", first.get());
+		assertEquals(Arrays.asList("first started", "first done", "second started"), events);
+	}
+	
+	@Test
+	void failedCallDoesNotBlockTheFollowingCalls() throws Exception
+	{
+		final FirebirdAsyncConnection async = new FirebirdJDBCConnection(this.dataSource).async();
+		final CompletableFuture<Object> failed = async.submit(() -> {
+			throw new IllegalStateException("failed");
+		});
+		final CompletableFuture<Integer> next = async.submit(() -> 42);
+		
+		assertEquals(42, next.get(5, TimeUnit.SECONDS).intValue());
+		final ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+		assertTrue(e.getCause() instanceof IllegalStateException);
+	}
+	
+	@Test
+	void connectionsRunConcurrently() throws Exception
+	{
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final CompletableFuture<Boolean> first = new FirebirdJDBCConnection(this.dataSource).async()
+			.submit(() -> {
+				bothStarted.countDown();
+				return bothStarted.await(5, TimeUnit.SECONDS);
+			});
+		final CompletableFuture<Boolean> second = new FirebirdJDBCConnection(this.dataSource).async()
+			.submit(() -> {
+				bothStarted.countDown();
+				return bothStarted.await(5, TimeUnit.SECONDS);
+			});
+		
+		assertTrue(first.get(10, TimeUnit.SECONDS));
+		assertTrue(second.get(10, TimeUnit.SECONDS));
+	}
+}
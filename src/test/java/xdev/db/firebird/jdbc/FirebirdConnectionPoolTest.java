@@ -0,0 +1,296 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+
+class FirebirdConnectionPoolTest
+{
+	private final List<PhysicalConnection> opened = new CopyOnWriteArrayList<>();
+	private final FirebirdJDBCDataSource dataSource = new FirebirdJDBCDataSource()
+	{
+		@Override
+		Connection openPhysicalConnection()
+		{
+			final PhysicalConnection physical = new PhysicalConnection();
+			FirebirdConnectionPoolTest.this.opened.add(physical);
+			return physical.connection;
+		}
+	};
+	private FirebirdConnectionPool pool;
+	
+	private FirebirdConnectionPool pool(final int maxIdle, final int maxSize)
+	{
+		this.pool = new FirebirdConnectionPool(this.dataSource, 0, maxIdle, maxSize, 0, 0, 50);
+		return this.pool;
+	}
+	
+	/**
+	 * A physical connection in auto-commit mode which records whether the pool closed it and counts prepares.
+	 */
+	private static final class PhysicalConnection
+	{
+		volatile boolean closed;
+		final AtomicInteger prepares = new AtomicInteger();
+		final Connection connection = (Connection)Proxy.newProxyInstance(this.getClass().getClassLoader(),
+			new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "close":
+						this.closed = true;
+						return null;
+					case "isClosed":
+						return this.closed;
+					case "getAutoCommit":
+						return true;
+					case "createStatement":
+						return statement(Statement.class, proxy);
+					case "prepareStatement":
+						this.prepares.incrementAndGet();
+						return statement(PreparedStatement.class, proxy);
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "getTransactionIsolation":
+						return Connection.TRANSACTION_READ_COMMITTED;
+					default:
+						// setters and resets of the pool
+						return null;
+				}
+			});
+	}
+	
+	private static <S extends Statement> S statement(final Class<S> type, final Object connection)
+	{
+		return type.cast(Proxy.newProxyInstance(FirebirdConnectionPoolTest.class.getClassLoader(),
+			new Class<?>[]{type}, new InvocationHandler()
+			{
+				private boolean closed;
+				
+				@Override
+				public Object invoke(final Object proxy, final Method method, final Object[] args)
+				{
+					switch(method.getName())
+					{
+						case "getConnection":
+							return connection;
+						case "close":
+							this.closed = true;
+							return null;
+						case "isClosed":
+							return this.closed;
+						case "clearParameters":
+						case "setInt":
+						case "setFetchSize":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				}
+			}));
+	}
+	
+	@AfterEach
+	void closePool()
+	{
+		if(this.pool != null)
+		{
+			this.pool.close();
+		}
+	}
+	
+	@Test
+	void returnedConnectionIsReused() throws SQLException
+	{
+		final FirebirdConnectionPool pool = this.pool(2, 2);
+		final Connection first = pool.borrow();
+		final Connection physical = FirebirdConnectionPool.physical(first);
+		first.close();
+		assertEquals(1, pool.getIdleCount());
+		
+		final Connection second = pool.borrow();
+		assertSame(physical, FirebirdConnectionPool.physical(second));
+		assertEquals(1, this.opened.size());
+		assertEquals(1, pool.getSize());
+		assertEquals(0, pool.getIdleCount());
+	}
+	
+	@Test
+	void borrowTimesOutAtMaximumSize() throws SQLException
+	{
+		final FirebirdConnectionPool pool = this.pool(2, 2);
+		final Connection first = pool.borrow();
+		pool.borrow();
+		
+		assertThrows(SQLTransientConnectionException.class, pool::borrow);
+		assertEquals(2, pool.getSize());
+		
+		first.close();
+		pool.borrow();
+		assertEquals(2, this.opened.size());
+	}
+	
+	@Test
+	void surplusIdleConnectionsAreClosed() throws SQLException
+	{
+		final FirebirdConnectionPool pool = this.pool(1, 2);
+		final Connection first = pool.borrow();
+		final Connection second = pool.borrow();
+		first.close();
+		second.close();
+		
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(1, pool.getSize());
+		assertTrue(this.opened.get(1).closed);
+		assertFalse(this.opened.get(0).closed);
+	}
+	
+	@Test
+	void closedLeaseCanNotBeUsed() throws SQLException
+	{
+		final FirebirdConnectionPool pool = this.pool(2, 2);
+		final Connection connection = pool.borrow();
+		connection.close();
+		connection.close();
+		
+		assertTrue(connection.isClosed());
+		assertThrows(SQLException.class, connection::createStatement);
+		assertEquals(1, pool.getIdleCount());
+	}
+	
+	@Test
+	void statementsReturnTheBorrowedConnection() throws SQLException
+	{
+		final Connection connection = this.pool(2, 2).borrow();
+		final Statement statement = connection.createStatement();
+		
+		assertSame(connection, statement.getConnection());
+		assertSame(connection, connection.prepareStatement("SELECT 1 FROM RDB$DATABASE").getConnection());
+	}
+	
+	@Test
+	void concurrentBorrowsStayWithinMaximumSize() throws Exception
+	{
+		final FirebirdConnectionPool pool = new FirebirdConnectionPool(this.dataSource, 0, 3, 3, 0, 0, 10_000);
+		this.pool = pool;
+		final AtomicInteger inUse = new AtomicInteger();
+		final AtomicInteger maxInUse = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>();
+			for(int t = 0; t < 8; t++)
+			{
+				futures.add(executor.submit(() -> {
+					for(int i = 0; i < 200; i++)
+					{
+						try(Connection connection = pool.borrow())
+						{
+							assertFalse(connection.isClosed());
+							maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+							inUse.decrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			for(final Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		assertTrue(maxInUse.get() <= 3);
+		assertTrue(this.opened.size() <= 3);
+		assertEquals(pool.getSize(), pool.getIdleCount());
+	}
+	
+	@Test
+	void preparedStatementsAreServedFromTheStatementCache() throws SQLException
+	{
+		final Connection connection = this.pool(1, 1).borrow();
+		final PreparedStatement first = connection.prepareStatement("SELECT 1 FROM RDB$DATABASE");
+		first.setInt(1, 1);
+		first.close();
+		
+		assertTrue(first.isClosed());
+		assertThrows(SQLException.class, () -> first.setInt(1, 1));
+		
+		final PreparedStatement second = connection.prepareStatement("SELECT 1 FROM RDB$DATABASE");
+		assertSame(connection, second.getConnection());
+		assertFalse(second.isClosed());
+		second.close();
+		assertEquals(1, this.opened.get(0).prepares.get());
+		assertEquals(1, this.dataSource.getStatementCache(connection).size());
+	}
+	
+	@Test
+	void statementsWithChangedPropertiesAreNotCached() throws SQLException
+	{
+		final Connection connection = this.pool(1, 1).borrow();
+		final PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM RDB$DATABASE");
+		statement.setFetchSize(10);
+		statement.close();
+		
+		assertEquals(0, this.dataSource.getStatementCache(connection).size());
+		connection.prepareStatement("SELECT 1 FROM RDB$DATABASE").close();
+		assertEquals(2, this.opened.get(0).prepares.get());
+	}
+	
+	@Test
+	void invalidatedStatementsArePreparedAgain() throws SQLException
+	{
+		final Connection connection = this.pool(1, 1).borrow();
+		final PreparedStatement checkedOut = connection.prepareStatement("SELECT 1 FROM RDB$DATABASE");
+		this.dataSource.invalidateStatementCaches();
+		checkedOut.close();
+		
+		assertEquals(0, this.dataSource.getStatementCache(connection).size());
+		connection.prepareStatement("SELECT 1 FROM RDB$DATABASE").close();
+		assertEquals(2, this.opened.get(0).prepares.get());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import xdev.db.firebird.jdbc.FirebirdConnectionTuning.WireCrypt;
+
+
+class FirebirdConnectionTuningTest
+{
+	@Test
+	void emptyDefinitionIsTheDefault()
+	{
+		assertSame(FirebirdConnectionTuning.DEFAULT, FirebirdConnectionTuning.parse(""));
+		assertSame(FirebirdConnectionTuning.DEFAULT, FirebirdConnectionTuning.parse("  "));
+	}
+	
+	@Test
+	void presetNamesAreCaseInsensitive()
+	{
+		assertSame(FirebirdConnectionTuning.LAN_BULK, FirebirdConnectionTuning.parse("lan_bulk"));
+		assertSame(FirebirdConnectionTuning.EMBEDDED, FirebirdConnectionTuning.parse("Embedded"));
+	}
+	
+	@Test
+	void propertiesOverrideThePreset()
+	{
+		final FirebirdConnectionTuning tuning = FirebirdConnectionTuning
+			.parse("lan_bulk, blobBufferSize=4096; CHARSET = UTF-8");
+		
+		assertEquals("lan_bulk", tuning.getName());
+		assertEquals(WireCrypt.DISABLED, tuning.getWireCrypt());
+		assertEquals(4096, (int)tuning.getBlobBufferSize());
+		assertEquals("UTF-8", tuning.getCharSet());
+		assertEquals(FirebirdConnectionTuning.LAN_BULK.getSocketBufferSize(), tuning.getSocketBufferSize());
+	}
+	
+	@Test
+	void propertiesWithoutPresetExtendTheDefault()
+	{
+		final FirebirdConnectionTuning tuning = FirebirdConnectionTuning.parse("wireCrypt=required,pageCacheSize=100");
+		
+		assertEquals("default", tuning.getName());
+		assertEquals(WireCrypt.REQUIRED, tuning.getWireCrypt());
+		assertEquals(100, (int)tuning.getPageCacheSize());
+		assertNull(tuning.getBlobBufferSize());
+	}
+	
+	@Test
+	void invalidDefinitionsAreRejected()
+	{
+		assertThrows(IllegalArgumentException.class, () -> FirebirdConnectionTuning.parse("fast"));
+		assertThrows(IllegalArgumentException.class,
+			() -> FirebirdConnectionTuning.parse("blobBufferSize=4096, lan_bulk"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdConnectionTuning.parse("tcpNoDelay=true"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdConnectionTuning.parse("blobBufferSize=100"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdConnectionTuning.parse("wireCrypt=maybe"));
+	}
+	
+	@Test
+	void appendToSkipsPropertiesOfTheUrl()
+	{
+		final FirebirdConnectionTuning tuning = FirebirdConnectionTuning.parse("blobBufferSize=4096, charSet=UTF-8");
+		
+		assertEquals("jdbc:firebirdsql://host/db?blobBufferSize=4096&charSet=UTF-8",
+			tuning.appendTo("jdbc:firebirdsql://host/db"));
+		assertEquals("jdbc:firebirdsql://host/db?charset=ISO-8859-1&blobBufferSize=4096",
+			tuning.appendTo("jdbc:firebirdsql://host/db?charset=ISO-8859-1"));
+	}
+	
+	@Test
+	void wireCompressionRequiresJaybird4()
+	{
+		final FirebirdConnectionTuning tuning = FirebirdConnectionTuning.parse("wireCompression=true");
+		
+		assertEquals("jdbc:firebirdsql://host/db", tuning.appendTo("jdbc:firebirdsql://host/db", 3));
+		assertEquals("jdbc:firebirdsql://host/db?wireCompression=true",
+			tuning.appendTo("jdbc:firebirdsql://host/db", 4));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+
+class FirebirdCsvReaderTest
+{
+	private static FirebirdCsvReader reader(final String csv)
+	{
+		return new FirebirdCsvReader(new StringReader(csv));
+	}
+	
+	@Test
+	void unquotedEmptyFieldsAreNull()
+	{
+		final FirebirdCsvReader reader = reader("a,,\"\"\n");
+		
+		assertArrayEquals(new String[]{"a", null, ""}, reader.next());
+		assertFalse(reader.hasNext());
+	}
+	
+	@Test
+	void quotedFieldsContainSeparatorsQuotesAndLineBreaks()
+	{
+		final FirebirdCsvReader reader = reader("\"x,y\",\"say \"\"hi\"\"\",\"l1\r\nl2\"\n2");
+		
+		assertArrayEquals(new String[]{"x,y", "say \"hi\"", "l1\r\nl2"}, reader.next());
+		assertArrayEquals(new String[]{"2"}, reader.next());
+		assertFalse(reader.hasNext());
+	}
+	
+	@Test
+	void recordsAreSeparatedByAnyLineBreak()
+	{
+		final FirebirdCsvReader reader = reader("1,a\r\n2,b\r3,c\n");
+		
+		assertArrayEquals(new String[]{"1", "a"}, reader.next());
+		assertArrayEquals(new String[]{"2", "b"}, reader.next());
+		assertArrayEquals(new String[]{"3", "c"}, reader.next());
+		assertFalse(reader.hasNext());
+	}
+	
+	@Test
+	void emptyInputHasNoRecords()
+	{
+		final FirebirdCsvReader reader = reader("");
+		
+		assertFalse(reader.hasNext());
+		assertThrows(NoSuchElementException.class, reader::next);
+	}
+	
+	@Test
+	void unterminatedQuotedFieldFails()
+	{
+		assertThrows(UncheckedIOException.class, reader("a,\"b\n")::hasNext);
+	}
+}
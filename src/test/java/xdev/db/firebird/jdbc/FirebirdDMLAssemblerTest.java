@@ -0,0 +1,96 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.xdev.jadoth.sqlengine.SELECT;
+
+
+class FirebirdDMLAssemblerTest
+{
+	private static FirebirdDMLAssembler assembler(final int serverMajorVersion)
+	{
+		final FirebirdDbms dbms = new FirebirdDbms();
+		dbms.setServerMajorVersion(serverMajorVersion);
+		return dbms.getDMLAssembler();
+	}
+	
+	private static SELECT rowLimit(final Integer skip, final Integer range)
+	{
+		return new SELECT()
+		{
+			@Override
+			public Integer getOffsetSkipCount()
+			{
+				return skip;
+			}
+			
+			@Override
+			public Integer getFetchFirstRowCount()
+			{
+				return range;
+			}
+		};
+	}
+	
+	@Test
+	void skipIsInsertedAfterTheSelectKeywordOfTheOuterQuery()
+	{
+		final StringBuilder sb = new StringBuilder("SELECT A, (SELECT MAX(B) FROM T2) FROM T1 WHERE C = 'SELECT ('");
+		FirebirdDMLAssembler.insertSkip(sb, "10");
+		
+		assertEquals("SELECT SKIP 10 A, (SELECT MAX(B) FROM T2) FROM T1 WHERE C = 'SELECT ('", sb.toString());
+	}
+	
+	@Test
+	void skipIsInsertedIntoTheEnclosingDerivedTable()
+	{
+		final StringBuilder sb = new StringBuilder("SELECT * FROM (SELECT DISTINCT A FROM T");
+		FirebirdDMLAssembler.insertSkip(sb, "?");
+		
+		assertEquals("SELECT * FROM (SELECT SKIP ? DISTINCT A FROM T", sb.toString());
+	}
+	
+	@Test
+	void skipWithoutRangeHasNoUpperBoundBeforeFirebird3()
+	{
+		final FirebirdDMLAssembler assembler = assembler(2);
+		final SELECT skipOnly = rowLimit(20, null);
+		
+		assertArrayEquals(new Object[]{20}, assembler.rowLimitParameters(skipOnly));
+		assertTrue(assembler.isRowLimitLeading(skipOnly));
+		assertArrayEquals(new Object[]{21L, 30L}, assembler.rowLimitParameters(rowLimit(20, 10)));
+		assertFalse(assembler.isRowLimitLeading(rowLimit(20, 10)));
+	}
+	
+	@Test
+	void offsetFollowsTheQueryParametersFromFirebird3()
+	{
+		final FirebirdDMLAssembler assembler = assembler(3);
+		final SELECT skipOnly = rowLimit(20, null);
+		
+		assertArrayEquals(new Object[]{20}, assembler.rowLimitParameters(skipOnly));
+		assertFalse(assembler.isRowLimitLeading(skipOnly));
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+class FirebirdLatencyHistogramTest
+{
+	private final FirebirdLatencyHistogram histogram = new FirebirdLatencyHistogram();
+	
+	@Test
+	void emptyHistogramReportsZero()
+	{
+		assertEquals(0, this.histogram.getCount());
+		assertEquals(0, this.histogram.getMean());
+		assertEquals(0, this.histogram.getMax());
+		assertEquals(0, this.histogram.getPercentile(99));
+	}
+	
+	@Test
+	void smallValuesAreExact()
+	{
+		for(long nanos = 0; nanos < 8; nanos++)
+		{
+			this.histogram.record(nanos);
+		}
+		
+		assertEquals(8, this.histogram.getCount());
+		assertEquals(3, this.histogram.getMean());
+		assertEquals(3, this.histogram.getPercentile(50));
+		assertEquals(7, this.histogram.getPercentile(100));
+	}
+	
+	@Test
+	void percentilesAreWithinTheBucketError()
+	{
+		for(long nanos = 1; nanos <= 1_000_000; nanos += 1000)
+		{
+			this.histogram.record(nanos);
+		}
+		
+		for(final double percentile : new double[]{10, 50, 90, 99})
+		{
+			final long exact = 1 + (long)Math.ceil(1000 * percentile / 100 - 1) * 1000;
+			final long reported = this.histogram.getPercentile(percentile);
+			assertTrue(reported >= exact && reported <= exact * 1.125,
+				percentile + "th percentile " + reported + " for " + exact);
+		}
+		assertEquals(this.histogram.getMax(), this.histogram.getPercentile(100));
+	}
+	
+	@Test
+	void percentileIsCappedByTheMaximum()
+	{
+		this.histogram.record(1000);
+		this.histogram.record(1000);
+		
+		assertEquals(1000, this.histogram.getPercentile(50));
+		assertEquals(1000, this.histogram.getMax());
+	}
+	
+	@Test
+	void negativeValuesAreRecordedAsZero()
+	{
+		this.histogram.record(-5);
+		
+		assertEquals(1, this.histogram.getCount());
+		assertEquals(0, this.histogram.getMax());
+		assertEquals(0, this.histogram.getPercentile(100));
+	}
+	
+	@Test
+	void resetClearsAllValues()
+	{
+		this.histogram.record(42);
+		this.histogram.reset();
+		
+		assertEquals(0, this.histogram.getCount());
+		assertEquals(0, this.histogram.getMax());
+		assertEquals(0, this.histogram.getPercentile(50));
+	}
+	
+	@Test
+	void invalidPercentileIsRejected()
+	{
+		assertThrows(IllegalArgumentException.class, () -> this.histogram.getPercentile(100.5));
+		assertThrows(IllegalArgumentException.class, () -> this.histogram.getPercentile(-1));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.xdev.jadoth.sqlengine.SQL.INDEXTYPE;
+import com.xdev.jadoth.sqlengine.exceptions.SQLEngineException;
+
+
+class FirebirdRetrospectionAccessorTest
+{
+	private final FirebirdRetrospectionAccessor accessor = new FirebirdDbms().getRetrospectionAccessor();
+	
+	/**
+	 * A connection whose statements answer the index select with <code>indexRows</code> and every other select
+	 * without rows.
+	 */
+	private Connection connection(final List<Map<String, Object>> indexRows)
+	{
+		return (Connection)Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{Connection.class},
+			(proxy, method, args) -> {
+				if(method.getName().equals("createStatement"))
+				{
+					return statement(indexRows);
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+	}
+	
+	private Statement statement(final List<Map<String, Object>> indexRows)
+	{
+		return (Statement)Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{Statement.class},
+			(proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "executeQuery":
+						return resultSet(this.accessor.createSelect_ALL_INDICES().equals(args[0])
+							? indexRows
+							: Collections.<Map<String, Object>>emptyList());
+					case "close":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+	
+	private static ResultSet resultSet(final List<Map<String, Object>> rows)
+	{
+		final Iterator<Map<String, Object>> iterator = rows.iterator();
+		final Object[] row = new Object[1];
+		return (ResultSet)Proxy.newProxyInstance(FirebirdRetrospectionAccessorTest.class.getClassLoader(),
+			new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "next":
+						row[0] = iterator.hasNext() ? iterator.next() : null;
+						return row[0] != null;
+					case "getString":
+					case "getObject":
+					case "getInt":
+					case "getDouble":
+						return ((Map<?, ?>)row[0]).get(args[0]);
+					case "close":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+	
+	private static Map<String, Object> segment(
+		final String index, final int unique, final int primaryKey, final String column)
+	{
+		final Map<String, Object> row = new LinkedHashMap<>();
+		row.put("TABLE_NAME", "ORDERS");
+		row.put("INDEX_NAME", index);
+		row.put("IS_UNIQUE", unique);
+		row.put("IS_PRIMARY_KEY", primaryKey);
+		row.put("IS_DESCENDING", 0);
+		row.put("IS_INACTIVE", 0);
+		row.put("SELECTIVITY", 0.5);
+		row.put("COLUMN_NAME", column);
+		return row;
+	}
+	
+	@Test
+	void snapshotGroupsTheSegmentsOfAllIndicesByTable() throws SQLException
+	{
+		final FirebirdSchemaSnapshot snapshot = FirebirdSchemaSnapshot.load(this.connection(Arrays.asList(
+			segment("PK_ORDERS", 1, 1, "ID"),
+			segment("IX_ORDERS_CUSTOMER", 0, 0, "CUSTOMER_ID"),
+			segment("IX_ORDERS_CUSTOMER", 0, 0, "ORDERED_AT"))), this.accessor);
+		
+		final List<FirebirdSchemaSnapshot.Index> indices = snapshot.getIndices("ORDERS");
+		assertEquals(2, indices.size());
+		assertEquals("PK_ORDERS", indices.get(0).getName());
+		assertTrue(indices.get(0).isPrimaryKey());
+		assertEquals(Arrays.asList("CUSTOMER_ID", "ORDERED_AT"), indices.get(1).getColumns());
+		assertFalse(indices.get(1).isUnique());
+		assertTrue(snapshot.getIndices("CUSTOMERS").isEmpty());
+	}
+	
+	@Test
+	void primaryKeysAndUniqueIndicesAreUnique() throws SQLException
+	{
+		final List<FirebirdSchemaSnapshot.Index> indices = FirebirdSchemaSnapshot.load(this.connection(Arrays.asList(
+			segment("PK_ORDERS", 0, 1, "ID"),
+			segment("UQ_ORDERS_NUMBER", 1, 0, "ORDER_NUMBER"),
+			segment("IX_ORDERS_CUSTOMER", 0, 0, "CUSTOMER_ID"))), this.accessor).getIndices("ORDERS");
+		
+		assertEquals(INDEXTYPE.UNIQUE, FirebirdRetrospectionAccessor.indexType(indices.get(0)));
+		assertEquals(INDEXTYPE.UNIQUE, FirebirdRetrospectionAccessor.indexType(indices.get(1)));
+		assertEquals(INDEXTYPE.NORMAL, FirebirdRetrospectionAccessor.indexType(indices.get(2)));
+	}
+	
+	@Test
+	void loadIndicesRequiresADataSource()
+	{
+		assertThrows(SQLEngineException.class, () -> this.accessor.loadIndices(null));
+	}
+}
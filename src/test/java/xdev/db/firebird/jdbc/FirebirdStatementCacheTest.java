@@ -0,0 +1,182 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+class FirebirdStatementCacheTest
+{
+	private final AtomicInteger prepares = new AtomicInteger();
+	private final FirebirdStatementCache.Statistics statistics = new FirebirdStatementCache.Statistics();
+	
+	private FirebirdStatementCache cache(final int maxSize, final long maxWeight)
+	{
+		final Connection connection = (Connection)Proxy.newProxyInstance(this.getClass().getClassLoader(),
+			new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+				if(method.getName().equals("prepareStatement"))
+				{
+					this.prepares.incrementAndGet();
+					return statement();
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+		return new FirebirdStatementCache(connection, maxSize, maxWeight, this.statistics);
+	}
+	
+	/**
+	 * A prepared statement which only knows whether it was closed.
+	 */
+	private static PreparedStatement statement()
+	{
+		final boolean[] closed = new boolean[1];
+		return (PreparedStatement)Proxy.newProxyInstance(FirebirdStatementCacheTest.class.getClassLoader(),
+			new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "close":
+						closed[0] = true;
+						return null;
+					case "isClosed":
+						return closed[0];
+					case "clearParameters":
+						return null;
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+	
+	@Test
+	void releasedStatementIsReused() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(10, 1000);
+		final PreparedStatement statement = cache.prepare("A");
+		cache.release(statement, "A");
+		
+		assertSame(statement, cache.prepare("A"));
+		assertEquals(1, this.prepares.get());
+		assertEquals(1, this.statistics.getHitCount());
+		assertEquals(1, this.statistics.getMissCount());
+	}
+	
+	@Test
+	void checkedOutStatementIsNotShared() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(10, 1000);
+		final PreparedStatement a = cache.prepare("A");
+		assertNotSame(a, cache.prepare("A"));
+		assertEquals(2, this.prepares.get());
+	}
+	
+	@Test
+	void leastRecentlyUsedIsEvicted() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(2, 1000);
+		final PreparedStatement a = cache.prepare("A");
+		cache.release(a, "A");
+		final PreparedStatement b = cache.prepare("B");
+		cache.release(b, "B");
+		cache.release(cache.prepare("A"), "A");
+		final PreparedStatement c = cache.prepare("C");
+		cache.release(c, "C");
+		
+		assertEquals(2, cache.size());
+		assertTrue(b.isClosed());
+		assertFalse(a.isClosed());
+		assertFalse(c.isClosed());
+		assertEquals(1, this.statistics.getEvictionCount());
+		assertSame(a, cache.prepare("A"));
+		assertNotSame(b, cache.prepare("B"));
+	}
+	
+	@Test
+	void weightBoundsTheSummedSqlLength() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(10, 5);
+		final PreparedStatement abc = cache.prepare("ABC");
+		cache.release(abc, "ABC");
+		final PreparedStatement def = cache.prepare("DEF");
+		cache.release(def, "DEF");
+		
+		assertEquals(1, cache.size());
+		assertTrue(abc.isClosed());
+		assertFalse(def.isClosed());
+		
+		final PreparedStatement tooLong = cache.prepare("ABCDEF");
+		cache.release(tooLong, "ABCDEF");
+		assertTrue(tooLong.isClosed());
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	void disabledCacheClosesReleasedStatements() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(0, 0);
+		final PreparedStatement statement = cache.prepare("A");
+		cache.release(statement, "A");
+		
+		assertTrue(statement.isClosed());
+		assertEquals(0, cache.size());
+		cache.prepare("A");
+		assertEquals(2, this.prepares.get());
+	}
+	
+	@Test
+	void invalidateClosesAllStatements() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(10, 1000);
+		final PreparedStatement a = cache.prepare("A");
+		final PreparedStatement b = cache.prepare("B");
+		cache.release(a, "A");
+		cache.release(b, "B");
+		cache.invalidate();
+		
+		assertEquals(0, cache.size());
+		assertTrue(a.isClosed());
+		assertTrue(b.isClosed());
+	}
+	
+	@Test
+	void statementCheckedOutDuringInvalidateIsClosedOnRelease() throws SQLException
+	{
+		final FirebirdStatementCache cache = this.cache(10, 1000);
+		final PreparedStatement statement = cache.prepare("A");
+		cache.invalidate();
+		cache.release(statement, "A");
+		
+		assertEquals(0, cache.size());
+		assertTrue(statement.isClosed());
+	}
+}
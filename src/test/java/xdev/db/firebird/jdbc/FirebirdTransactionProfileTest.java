@@ -0,0 +1,87 @@
+/*
+ * SqlEngine Database Adapter Firebird - XAPI SqlEngine Database Adapter for Firebird
+ * Copyright © 2003 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.db.firebird.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import xdev.db.firebird.jdbc.FirebirdTransactionProfile.Isolation;
+
+
+class FirebirdTransactionProfileTest
+{
+	@Test
+	void unspecifiedParametersAreConcurrencyWriteWait()
+	{
+		final FirebirdTransactionProfile profile = FirebirdTransactionProfile.parse("p", "");
+		
+		assertEquals("p", profile.getName());
+		assertEquals(Isolation.CONCURRENCY, profile.getIsolation());
+		assertFalse(profile.isReadOnly());
+		assertTrue(profile.isWait());
+		assertEquals(0, profile.getLockTimeout());
+	}
+	
+	@Test
+	void documentationNotationIsParsed()
+	{
+		final FirebirdTransactionProfile profile = FirebirdTransactionProfile.parse("oltp",
+			"read_committed rec_version nowait");
+		
+		assertEquals(Isolation.READ_COMMITTED, profile.getIsolation());
+		assertTrue(profile.isRecordVersion());
+		assertFalse(profile.isWait());
+		assertFalse(profile.isReadOnly());
+	}
+	
+	@Test
+	void prefixesCaseAndCommasAreAccepted()
+	{
+		final FirebirdTransactionProfile profile = FirebirdTransactionProfile.parse("report",
+			"ISC_TPB_READ ONLY, isc_tpb_read_committed,no_rec_version");
+		
+		assertEquals(Isolation.READ_COMMITTED, profile.getIsolation());
+		assertTrue(profile.isReadOnly());
+		assertFalse(profile.isRecordVersion());
+	}
+	
+	@Test
+	void readWriteAndLockTimeoutAreParsed()
+	{
+		final FirebirdTransactionProfile profile = FirebirdTransactionProfile.parse("batch",
+			"read only read write consistency nowait lock_timeout 10");
+		
+		assertEquals(Isolation.CONSISTENCY, profile.getIsolation());
+		assertFalse(profile.isReadOnly());
+		assertTrue(profile.isWait());
+		assertEquals(10, profile.getLockTimeout());
+	}
+	
+	@Test
+	void invalidDefinitionsAreRejected()
+	{
+		assertThrows(IllegalArgumentException.class, () -> FirebirdTransactionProfile.parse("p", "serializable"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdTransactionProfile.parse("p", "lock_timeout"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdTransactionProfile.parse("p", "lock_timeout x"));
+		assertThrows(IllegalArgumentException.class, () -> FirebirdTransactionProfile.parse("", "concurrency"));
+	}
+}